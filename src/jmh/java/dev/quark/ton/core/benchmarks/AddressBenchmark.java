@@ -0,0 +1,52 @@
+package dev.quark.ton.core.benchmarks;
+
+import dev.quark.ton.core.address.Address;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AddressBenchmark {
+
+    private List<Address> addresses;
+    private String[] friendly;
+    private String[] raw;
+
+    @Setup
+    public void setup() {
+        addresses = Corpus.addresses("address", 256);
+        friendly = addresses.stream().map(Address::toString).toArray(String[]::new);
+        raw = addresses.stream().map(Address::toRawString).toArray(String[]::new);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(256)
+    public void parseFriendly(Blackhole bh) {
+        for (String s : friendly) {
+            bh.consume(Address.parse(s));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(256)
+    public void parseRaw(Blackhole bh) {
+        for (String s : raw) {
+            bh.consume(Address.parse(s));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(256)
+    public void format(Blackhole bh) {
+        for (Address a : addresses) {
+            bh.consume(a.toString());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package dev.quark.ton.core.benchmarks;
+
+import dev.quark.ton.core.boc.BitBuilder;
+import dev.quark.ton.core.boc.BitReader;
+import dev.quark.ton.core.boc.BitString;
+import dev.quark.ton.core.test.Prando;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BitsBenchmark {
+
+    private static final int[] WIDTHS = {1, 4, 8, 32, 13, 63, 16, 3};
+
+    private long[] values;
+    private BitString written;
+    private BitString payload;
+
+    @Setup
+    public void setup() {
+        Prando p = new Prando("bits");
+        values = new long[WIDTHS.length];
+        BitBuilder b = new BitBuilder();
+        for (int i = 0; i < WIDTHS.length; i++) {
+            values[i] = (long) p.nextInt(0, Integer.MAX_VALUE) & ((1L << Math.min(WIDTHS[i], 31)) - 1);
+            b.writeUint(values[i], WIDTHS[i]);
+        }
+        written = b.build();
+
+        BitBuilder pb = new BitBuilder();
+        pb.writeBit(true); // unaligned source
+        for (int i = 0; i < 31; i++) {
+            pb.writeUint(p.nextInt(0, Integer.MAX_VALUE), 32);
+        }
+        payload = pb.build().substring(1, 990);
+    }
+
+    @Benchmark
+    public BitString writeUints() {
+        BitBuilder b = new BitBuilder();
+        for (int i = 0; i < WIDTHS.length; i++) {
+            b.writeUint(values[i], WIDTHS[i]);
+        }
+        return b.build();
+    }
+
+    @Benchmark
+    public void readUints(Blackhole bh) {
+        BitReader r = new BitReader(written);
+        for (int w : WIDTHS) {
+            bh.consume(r.loadUint(w));
+        }
+    }
+
+    @Benchmark
+    public BitString copyBits() {
+        BitBuilder b = new BitBuilder();
+        b.writeBit(false);
+        b.writeBits(payload);
+        return b.build();
+    }
+
+    @Benchmark
+    public boolean compareBits() {
+        return payload.equals(payload.compact());
+    }
+}
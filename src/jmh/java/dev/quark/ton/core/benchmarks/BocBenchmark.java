@@ -0,0 +1,59 @@
+package dev.quark.ton.core.benchmarks;
+
+import dev.quark.ton.core.boc.Cell;
+import dev.quark.ton.core.boc.cell.serialization.BocSerialization;
+import dev.quark.ton.core.boc.cell.serialization.CellArena;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BocBenchmark {
+
+    @Param({"1000", "50000"})
+    public int cells;
+
+    private Cell root;
+    private byte[] boc;
+    private byte[] bocWithIndex;
+
+    @Setup
+    public void setup() {
+        root = Corpus.cellTree("boc", cells);
+        boc = BocSerialization.serializeBoc(root, false, true);
+        bocWithIndex = BocSerialization.serializeBoc(root, true, true);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return BocSerialization.serializeBoc(root, false, true);
+    }
+
+    @Benchmark
+    public List<Cell> deserialize() {
+        return BocSerialization.deserializeBoc(boc);
+    }
+
+    @Benchmark
+    public byte[] deserializeAndHash() {
+        return BocSerialization.deserializeBoc(bocWithIndex).get(0).hash();
+    }
+
+    @Benchmark
+    public byte[] computeRootHash() {
+        return BocSerialization.computeRootHashes(bocWithIndex).get(0);
+    }
+
+    @Benchmark
+    public byte[] loadArenaAndHash() {
+        try (CellArena arena = CellArena.load(bocWithIndex)) {
+            return arena.root().hash();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package dev.quark.ton.core.benchmarks;
+
+import dev.quark.ton.core.boc.BitString;
+import dev.quark.ton.core.boc.Builder;
+import dev.quark.ton.core.boc.Cell;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CellBenchmark {
+
+    private BitString payload;
+    private List<Cell> refs;
+    private Cell tree;
+
+    @Setup
+    public void setup() {
+        tree = Corpus.cellTree("cell", 2000);
+        payload = tree.refs.get(0).bits;
+        refs = List.of(tree.refs.get(1), tree.refs.get(0));
+    }
+
+    @Benchmark
+    public Cell build() {
+        return Builder.beginCell().storeBits(payload).storeRef(refs.get(0)).storeRef(refs.get(1)).endCell();
+    }
+
+    @Benchmark
+    public byte[] buildAndHash() {
+        return Builder.beginCell().storeBits(payload).storeRef(refs.get(0)).storeRef(refs.get(1)).endCell().hash();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public byte[] hashTree() {
+        // Fresh copy so that nothing is memoized
+        return Cell.fromBoc(tree.toBoc()).get(0).hash();
+    }
+}
@@ -0,0 +1,98 @@
+package dev.quark.ton.core.benchmarks;
+
+import dev.quark.ton.core.address.Address;
+import dev.quark.ton.core.boc.Builder;
+import dev.quark.ton.core.boc.Cell;
+import dev.quark.ton.core.test.Prando;
+import dev.quark.ton.core.tuple.Tuple;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deterministic benchmark inputs generated with {@link Prando}
+ */
+final class Corpus {
+
+    private Corpus() {}
+
+    /**
+     * DAG of {@code count} cells shaped like account state: random payloads,
+     * up to four refs, some subtrees shared
+     */
+    static Cell cellTree(String seed, int count) {
+        Prando p = new Prando(seed);
+        List<Cell> pool = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Builder b = Builder.beginCell();
+            int bits = p.nextInt(0, 1000);
+            while (bits >= 32) {
+                b.storeUint(p.nextInt(0, Integer.MAX_VALUE), 32);
+                bits -= 32;
+            }
+            b.storeUint(p.nextInt(0, (1 << bits) - 1), bits);
+            int refs = pool.isEmpty() ? 0 : p.nextInt(0, 4);
+            for (int j = 0; j < refs; j++) {
+                // mostly recent cells, occasionally shared old ones
+                int back = p.nextInt(0, 9) == 0 ? p.nextInt(0, pool.size() - 1) : pool.size() - 1 - p.nextInt(0, Math.min(7, pool.size() - 1));
+                b.storeRef(pool.get(back));
+            }
+            pool.add(b.endCell());
+        }
+
+        // Tie everything reachable to a single root
+        Cell root = pool.get(pool.size() - 1);
+        for (int i = pool.size() - 2; i >= 0; i -= 3) {
+            root = Builder.beginCell().storeRef(root).storeRef(pool.get(i)).endCell();
+        }
+        return root;
+    }
+
+    static Map<BigInteger, Long> dict(String seed, int size, int keyBits) {
+        Prando p = new Prando(seed);
+        Map<BigInteger, Long> res = new LinkedHashMap<>();
+        while (res.size() < size) {
+            BigInteger key = BigInteger.ZERO;
+            for (int i = 0; i < keyBits; i += 16) {
+                key = key.shiftLeft(16).or(BigInteger.valueOf(p.nextInt(0, 0xFFFF)));
+            }
+            res.put(key.shiftRight(Math.max(0, ((keyBits + 15) / 16) * 16 - keyBits)), (long) p.nextInt(0, Integer.MAX_VALUE));
+        }
+        return res;
+    }
+
+    static List<Address> addresses(String seed, int count) {
+        Prando p = new Prando(seed);
+        List<Address> res = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] hash = new byte[32];
+            for (int j = 0; j < hash.length; j++) {
+                hash[j] = (byte) p.nextInt(0, 255);
+            }
+            res.add(new Address(p.nextInt(0, 1) - 1, hash));
+        }
+        return res;
+    }
+
+    static List<Tuple.TupleItem> tuple(String seed, int size, int depth) {
+        Prando p = new Prando(seed);
+        return tuple(p, size, depth);
+    }
+
+    private static List<Tuple.TupleItem> tuple(Prando p, int size, int depth) {
+        List<Tuple.TupleItem> res = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int kind = p.nextInt(0, depth > 0 ? 3 : 2);
+            switch (kind) {
+                case 0 -> res.add(new Tuple.TupleItemInt(BigInteger.valueOf(p.nextInt(Integer.MIN_VALUE, Integer.MAX_VALUE))));
+                case 1 -> res.add(new Tuple.TupleItemNull());
+                case 2 -> res.add(new Tuple.TupleItemCell(Builder.beginCell().storeUint(p.nextInt(0, 1 << 20), 32).endCell()));
+                default -> res.add(new Tuple.TupleItemTuple(tuple(p, 3, depth - 1)));
+            }
+        }
+        return res;
+    }
+}
@@ -0,0 +1,89 @@
+package dev.quark.ton.core.benchmarks;
+
+import dev.quark.ton.core.boc.Builder;
+import dev.quark.ton.core.boc.Cell;
+import dev.quark.ton.core.dict.Dictionary;
+import dev.quark.ton.core.dict.DictionaryView;
+import dev.quark.ton.core.dict.ParseDict;
+import dev.quark.ton.core.dict.PersistentDictionary;
+import dev.quark.ton.core.dict.SerializeDict;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DictBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    @Param({"32", "256"})
+    public int keyBits;
+
+    private Map<BigInteger, Long> entries;
+    private Cell serialized;
+    private Dictionary<BigInteger, Long> dict;
+    private BigInteger[] keys;
+    private BigInteger[] sortedKeys;
+
+    @Setup
+    public void setup() {
+        entries = Corpus.dict("dict", size, keyBits);
+        serialized = serialize();
+        dict = Dictionary.empty(Dictionary.Keys.BigUint(keyBits), Dictionary.Values.Uint(32));
+        entries.forEach(dict::set);
+        keys = entries.keySet().toArray(new BigInteger[0]);
+        sortedKeys = keys.clone();
+        Arrays.sort(sortedKeys);
+    }
+
+    @Benchmark
+    public Cell serialize() {
+        Builder b = Builder.beginCell();
+        SerializeDict.serializeDict(entries, keyBits, (v, to) -> to.storeUint(v, 32), b);
+        return b.endCell();
+    }
+
+    @Benchmark
+    public Map<BigInteger, Long> parse() {
+        return ParseDict.parseDict(serialized.beginParse(), keyBits, s -> s.loadUint(32));
+    }
+
+    @Benchmark
+    public Long viewGet() {
+        return DictionaryView.loadDirect(Dictionary.Keys.BigUint(keyBits), Dictionary.Values.Uint(32), serialized)
+                .get(keys[keys.length / 2]);
+    }
+
+    @Benchmark
+    public Dictionary<BigInteger, Long> viewPage() {
+        int from = sortedKeys.length / 2;
+        int to = Math.min(from + 10, sortedKeys.length - 1);
+        return DictionaryView.loadDirect(Dictionary.Keys.BigUint(keyBits), Dictionary.Values.Uint(32), serialized)
+                .subMap(sortedKeys[from], sortedKeys[to]);
+    }
+
+    @Benchmark
+    public Cell persistentSet() {
+        return PersistentDictionary.loadDirect(Dictionary.Keys.BigUint(keyBits), Dictionary.Values.Uint(32), serialized)
+                .set(keys[keys.length / 2], 0L)
+                .root();
+    }
+
+    @Benchmark
+    public long lookup() {
+        long sum = 0;
+        for (BigInteger k : keys) {
+            sum += dict.get(k);
+        }
+        return sum;
+    }
+}
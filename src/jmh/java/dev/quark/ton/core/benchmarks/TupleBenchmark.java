@@ -0,0 +1,36 @@
+package dev.quark.ton.core.benchmarks;
+
+import dev.quark.ton.core.boc.Cell;
+import dev.quark.ton.core.tuple.Tuple;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TupleBenchmark {
+
+    private List<Tuple.TupleItem> items;
+    private Cell serialized;
+
+    @Setup
+    public void setup() {
+        items = Corpus.tuple("tuple", 200, 2);
+        serialized = Tuple.serializeTuple(items);
+    }
+
+    @Benchmark
+    public Cell serialize() {
+        return Tuple.serializeTuple(items);
+    }
+
+    @Benchmark
+    public List<Tuple.TupleItem> parse() {
+        return Tuple.parseTuple(serialized);
+    }
+}
@@ -3,6 +3,8 @@ package dev.quark.ton.core.boc;
 import dev.quark.ton.core.address.Address;
 import dev.quark.ton.core.address.ExternalAddress;
 
+import dev.quark.ton.core.boc.utils.BitOps;
+
 import java.math.BigInteger;
 import java.util.Arrays;
 
@@ -63,9 +65,12 @@ public final class BitBuilder {
      * Copy bits from BitString
      */
     public void writeBits(BitString src) {
-        for (int i = 0; i < src.length(); i++) {
-            writeBit(src.at(i));
+        int n = src.length();
+        if (this.length + n > this.buffer.length * 8) {
+            throw new IllegalStateException("BitBuilder overflow");
         }
+        BitOps.copy(src.backing(), src.backingOffset(), this.buffer, this.length, n);
+        this.length += n;
     }
 
     /**
@@ -76,28 +81,49 @@ public final class BitBuilder {
             throw new IllegalArgumentException("src is null");
         }
 
-        // Special case for aligned offsets
-        if (this.length % 8 == 0) {
-            if (this.length + src.length * 8 > this.buffer.length * 8) {
-                throw new IllegalStateException("BitBuilder overflow");
-            }
-            System.arraycopy(src, 0, this.buffer, this.length / 8, src.length);
-            this.length += src.length * 8;
-        } else {
-            for (byte b : src) {
-                writeUint(b & 0xFF, 8);
-            }
+        if (this.length + src.length * 8 > this.buffer.length * 8) {
+            throw new IllegalStateException("BitBuilder overflow");
         }
+        BitOps.copy(src, 0, this.buffer, this.length, src.length * 8);
+        this.length += src.length * 8;
     }
 
     // ---- writeUint ----
 
     public void writeUint(long value, int bits) {
-        writeUint(BigInteger.valueOf(value), bits);
+        if (bits < 0 || bits > 64) {
+            writeUint(BigInteger.valueOf(value), bits);
+            return;
+        }
+
+        // Aligned bytes keep their own message, as in the BigInteger path
+        if ((bits == 8 || bits == 16) && this.length % 8 == 0 && (value < 0 || value >= 1L << bits)) {
+            throw new IllegalArgumentException("value is out of range for " + bits + " bits. Got " + value);
+        }
+
+        // Corner case: zero bits
+        if (bits == 0) {
+            if (value != 0) {
+                throw new IllegalArgumentException("value is not zero for " + bits + " bits. Got " + value);
+            }
+            return;
+        }
+
+        if (value < 0 || (bits < 64 && (value >>> bits) != 0)) {
+            throw new IllegalArgumentException("bitLength is too small for a value " + value + ". Got " + bits);
+        }
+
+        writeRaw(value, bits);
     }
 
     public void writeUint(BigInteger value, int bits) {
 
+        // Fits a long: take the primitive path
+        if (bits >= 0 && bits <= 64 && value.bitLength() < 64) {
+            writeUint(value.longValue(), bits);
+            return;
+        }
+
         // Special case for 8 bits (byte aligned)
         if (bits == 8 && this.length % 8 == 0) {
             int v;
@@ -155,17 +181,63 @@ public final class BitBuilder {
             throw new IllegalArgumentException("bitLength is too small for a value " + value + ". Got " + bits);
         }
 
-        // Write bits MSB -> LSB
-        for (int i = 0; i < bits; i++) {
-            int bitIndex = bits - i - 1;
-            writeBit(value.testBit(bitIndex));
+        // Copy the low bits of the big-endian magnitude
+        if (this.length + bits > this.buffer.length * 8) {
+            throw new IllegalStateException("BitBuilder overflow");
         }
+        byte[] src = value.toByteArray();
+        int srcBits = src.length * 8;
+        int lead = bits - Math.min(bits, srcBits); // leading zeros, buffer may be dirty
+        BitOps.fill(this.buffer, this.length, lead, false);
+        BitOps.copy(src, srcBits - (bits - lead), this.buffer, this.length + lead, bits - lead);
+        this.length += bits;
+    }
+
+    /**
+     * Write the low {@code bits} (1..64) bits of {@code value} as is
+     */
+    private void writeRaw(long value, int bits) {
+        if (this.length + bits > this.buffer.length * 8) {
+            throw new IllegalStateException("BitBuilder overflow");
+        }
+        BitOps.writeLong(this.buffer, this.length, value, bits);
+        this.length += bits;
     }
 
     // ---- writeInt ----
 
     public void writeInt(long value, int bits) {
-        writeInt(BigInteger.valueOf(value), bits);
+        if (bits < 0 || bits > 64) {
+            writeInt(BigInteger.valueOf(value), bits);
+            return;
+        }
+
+        // Corner case: zero bits
+        if (bits == 0) {
+            if (value != 0) {
+                throw new IllegalArgumentException("value is not zero for " + bits + " bits. Got " + value);
+            }
+            return;
+        }
+
+        // Corner case: one bit
+        if (bits == 1) {
+            if (value != 0 && value != -1) {
+                throw new IllegalArgumentException("value is not zero or -1 for " + bits + " bits. Got " + value);
+            }
+            writeBit(value == -1);
+            return;
+        }
+
+        if (bits < 64) {
+            long vBits = 1L << (bits - 1);
+            if (value < -vBits || value >= vBits) {
+                throw new IllegalArgumentException("value is out of range for " + bits + " bits. Got " + value);
+            }
+        }
+
+        // Two's complement of the low bits: sign, then 2^(bits-1) + value
+        writeRaw(value, bits);
     }
 
     public void writeInt(BigInteger value, int bits) {
@@ -211,7 +283,22 @@ public final class BitBuilder {
     // ---- var ints/uints ----
 
     public void writeVarUint(long value, int headerBits) {
-        writeVarUint(BigInteger.valueOf(value), headerBits);
+        if (headerBits < 0) {
+            throw new IllegalArgumentException("invalid bit length. Got " + headerBits);
+        }
+        if (value < 0) {
+            throw new IllegalArgumentException("value is negative. Got " + value);
+        }
+
+        // Corner case: zero
+        if (value == 0) {
+            writeUint(0, headerBits);
+            return;
+        }
+
+        int sizeBytes = (64 - Long.numberOfLeadingZeros(value) + 7) / 8;
+        writeUint(sizeBytes, headerBits);
+        writeUint(value, sizeBytes * 8);
     }
 
     public void writeVarUint(BigInteger value, int headerBits) {
@@ -237,7 +324,21 @@ public final class BitBuilder {
     }
 
     public void writeVarInt(long value, int headerBits) {
-        writeVarInt(BigInteger.valueOf(value), headerBits);
+        if (headerBits < 0) {
+            throw new IllegalArgumentException("invalid bit length. Got " + headerBits);
+        }
+
+        // Corner case: zero
+        if (value == 0) {
+            writeUint(0, headerBits);
+            return;
+        }
+
+        // bit length of |value|, Long.MIN_VALUE needs all 64
+        int bitLen = value == Long.MIN_VALUE ? 64 : 64 - Long.numberOfLeadingZeros(Math.abs(value));
+        int sizeBytes = (bitLen + 1 + 7) / 8;
+        writeUint(sizeBytes, headerBits);
+        writeInt(value, sizeBytes * 8);
     }
 
     public void writeVarInt(BigInteger value, int headerBits) {
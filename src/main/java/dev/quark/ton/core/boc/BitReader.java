@@ -3,6 +3,8 @@ package dev.quark.ton.core.boc;
 import dev.quark.ton.core.address.Address;
 import dev.quark.ton.core.address.ExternalAddress;
 
+import dev.quark.ton.core.boc.utils.BitOps;
+
 import java.math.BigInteger;
 import java.util.ArrayDeque;
 import java.util.Arrays;
@@ -122,7 +124,9 @@ public final class BitReader {
      * Load uint as long (TS returns number, but in tests they keep <= 48 bits)
      */
     public long loadUint(int countBits) {
-        return loadUintBig(countBits).longValueExact(); // loadUintBig уже двигает offset
+        long loaded = preloadUint(countBits);
+        this.offset += countBits;
+        return loaded;
     }
 
     public BigInteger loadUintBig(int countBits) {
@@ -132,6 +136,13 @@ public final class BitReader {
     }
 
     public long preloadUint(int countBits) {
+        if (countBits >= 0 && countBits <= 64) {
+            long v = preloadUintLongAt(countBits, this.offset);
+            if (v < 0) {
+                throw new ArithmeticException("BigInteger out of long range");
+            }
+            return v;
+        }
         return preloadUintBig(countBits).longValueExact();
     }
 
@@ -143,9 +154,9 @@ public final class BitReader {
      * Load int as long (fits test ranges)
      */
     public long loadInt(int countBits) {
-        BigInteger res = preloadIntAt(countBits, this.offset);
+        long res = preloadInt(countBits);
         this.offset += countBits;
-        return res.longValueExact();
+        return res;
     }
 
     public BigInteger loadIntBig(int countBits) {
@@ -155,6 +166,9 @@ public final class BitReader {
     }
 
     public long preloadInt(int countBits) {
+        if (countBits >= 0 && countBits <= 64) {
+            return preloadIntLongAt(countBits, this.offset);
+        }
         return preloadIntAt(countBits, this.offset).longValueExact();
     }
 
@@ -166,7 +180,7 @@ public final class BitReader {
 
     public long loadVarUint(int headerBits) {
         int size = (int) loadUint(headerBits);
-        return loadUintBig(size * 8).longValueExact();
+        return loadUint(size * 8);
     }
 
     public BigInteger loadVarUintBig(int headerBits) {
@@ -175,18 +189,22 @@ public final class BitReader {
     }
 
     public long preloadVarUint(int headerBits) {
-        int size = preloadUintAt(headerBits, this.offset).intValueExact();
-        return preloadUintAt(size * 8, this.offset + headerBits).longValueExact();
+        int size = (int) preloadUint(headerBits);
+        long v = size * 8 <= 64 ? preloadUintLongAt(size * 8, this.offset + headerBits) : -1;
+        if (v < 0) {
+            return preloadUintAt(size * 8, this.offset + headerBits).longValueExact();
+        }
+        return v;
     }
 
     public BigInteger preloadVarUintBig(int headerBits) {
-        int size = preloadUintAt(headerBits, this.offset).intValueExact();
+        int size = (int) preloadUint(headerBits);
         return preloadUintAt(size * 8, this.offset + headerBits);
     }
 
     public long loadVarInt(int headerBits) {
         int size = (int) loadUint(headerBits);
-        return loadIntBig(size * 8).longValueExact();
+        return loadInt(size * 8);
     }
 
     public BigInteger loadVarIntBig(int headerBits) {
@@ -195,12 +213,15 @@ public final class BitReader {
     }
 
     public long preloadVarInt(int headerBits) {
-        int size = preloadUintAt(headerBits, this.offset).intValueExact();
+        int size = (int) preloadUint(headerBits);
+        if (size * 8 <= 64) {
+            return preloadIntLongAt(size * 8, this.offset + headerBits);
+        }
         return preloadIntAt(size * 8, this.offset + headerBits).longValueExact();
     }
 
     public BigInteger preloadVarIntBig(int headerBits) {
-        int size = preloadUintAt(headerBits, this.offset).intValueExact();
+        int size = (int) preloadUint(headerBits);
         return preloadIntAt(size * 8, this.offset + headerBits);
     }
 
@@ -217,7 +238,7 @@ public final class BitReader {
     // ---- Addresses ----
 
     public Address loadAddress() {
-        int type = preloadUintAt(2, this.offset).intValueExact();
+        int type = (int) preloadUintLongAt(2, this.offset);
         if (type == 2) {
             return loadInternalAddress();
         }
@@ -225,7 +246,7 @@ public final class BitReader {
     }
 
     public Address loadMaybeAddress() {
-        int type = preloadUintAt(2, this.offset).intValueExact();
+        int type = (int) preloadUintLongAt(2, this.offset);
         if (type == 0) {
             this.offset += 2;
             return null;
@@ -237,7 +258,7 @@ public final class BitReader {
     }
 
     public ExternalAddress loadExternalAddress() {
-        int type = preloadUintAt(2, this.offset).intValueExact();
+        int type = (int) preloadUintLongAt(2, this.offset);
         if (type == 1) {
             return loadExternalAddressImpl();
         }
@@ -245,7 +266,7 @@ public final class BitReader {
     }
 
     public ExternalAddress loadMaybeExternalAddress() {
-        int type = preloadUintAt(2, this.offset).intValueExact();
+        int type = (int) preloadUintLongAt(2, this.offset);
         if (type == 0) {
             this.offset += 2;
             return null;
@@ -261,7 +282,7 @@ public final class BitReader {
      * For now, return Object to keep same semantics.
      */
     public Object loadAddressAny() {
-        int type = preloadUintAt(2, this.offset).intValueExact();
+        int type = (int) preloadUintLongAt(2, this.offset);
         if (type == 0) {
             this.offset += 2;
             return null;
@@ -306,40 +327,70 @@ public final class BitReader {
 
     // ---- internal preload helpers (ported 1:1) ----
 
+    /**
+     * Raw {@code countBits} (0..64) bits as an unsigned long, no allocation
+     */
+    private long preloadUintLongAt(int countBits, int atOffset) {
+        checkRange(countBits, atOffset);
+        return BitOps.readLong(this.bits.backing(), this.bits.backingOffset() + atOffset, countBits);
+    }
+
+    /**
+     * Sign-extended {@code countBits} (0..64) bits, no allocation
+     */
+    private long preloadIntLongAt(int countBits, int atOffset) {
+        long v = preloadUintLongAt(countBits, atOffset);
+        if (countBits == 0 || countBits == 64) {
+            return v;
+        }
+        int shift = 64 - countBits;
+        return (v << shift) >> shift;
+    }
+
     private BigInteger preloadIntAt(int countBits, int atOffset) {
         if (countBits == 0) {
             return BigInteger.ZERO;
         }
-
-        boolean sign = this.bits.at(atOffset);
-        BigInteger res = BigInteger.ZERO;
-
-        for (int i = 0; i < countBits - 1; i++) {
-            if (this.bits.at(atOffset + 1 + i)) {
-                int shift = (countBits - i - 1 - 1);
-                res = res.add(BigInteger.ONE.shiftLeft(shift));
-            }
+        if (countBits <= 64) {
+            return BigInteger.valueOf(preloadIntLongAt(countBits, atOffset));
         }
 
-        if (sign) {
-            res = res.subtract(BigInteger.ONE.shiftLeft(countBits - 1));
+        BigInteger res = preloadUintAt(countBits, atOffset);
+        if (res.testBit(countBits - 1)) {
+            res = res.subtract(BigInteger.ONE.shiftLeft(countBits));
         }
         return res;
     }
 
     private BigInteger preloadUintAt(int countBits, int atOffset) {
-        if (countBits == 0) {
+        if (countBits <= 0) {
             return BigInteger.ZERO;
         }
+        if (countBits < 64) {
+            return BigInteger.valueOf(preloadUintLongAt(countBits, atOffset));
+        }
 
-        BigInteger res = BigInteger.ZERO;
-        for (int i = 0; i < countBits; i++) {
-            if (this.bits.at(atOffset + i)) {
-                int shift = (countBits - i - 1);
-                res = res.add(BigInteger.ONE.shiftLeft(shift));
-            }
+        // Wide values: right-align the bits in a byte array
+        checkRange(countBits, atOffset);
+        byte[] buf = new byte[(countBits + 7) >> 3];
+        BitOps.copy(this.bits.backing(), this.bits.backingOffset() + atOffset, buf, buf.length * 8 - countBits, countBits);
+        return new BigInteger(1, buf);
+    }
+
+    /**
+     * Same bounds errors as reading the bits one by one with {@link BitString#at}
+     */
+    private void checkRange(int countBits, int atOffset) {
+        if (countBits == 0) {
+            return;
+        }
+        if (atOffset < 0) {
+            throw new IllegalArgumentException("Index " + atOffset + " < 0 is out of bounds");
+        }
+        int length = this.bits.length();
+        if (atOffset + countBits > length) {
+            throw new IllegalArgumentException("Index " + Math.max(atOffset, length) + " > " + length + " is out of bounds");
         }
-        return res;
     }
 
     private byte[] preloadBufferAt(int bytes, int atOffset) {
@@ -350,16 +401,14 @@ public final class BitReader {
             return fast;
         }
 
-        // Slow path
+        // Unaligned: shift whole words (bounds were checked by subbuffer)
         byte[] buf = new byte[bytes];
-        for (int i = 0; i < bytes; i++) {
-            buf[i] = (byte) preloadUintAt(8, atOffset + i * 8).intValueExact();
-        }
+        BitOps.copy(this.bits.backing(), this.bits.backingOffset() + atOffset, buf, 0, bytes * 8);
         return buf;
     }
 
     private Address loadInternalAddress() {
-        int type = preloadUintAt(2, this.offset).intValueExact();
+        int type = (int) preloadUintLongAt(2, this.offset);
         if (type != 2) {
             throw new IllegalArgumentException("Invalid address");
         }
@@ -368,16 +417,16 @@ public final class BitReader {
         Integer rewriteDepth = null;
         Integer rewritePfx = null;
 
-        if (!preloadUintAt(1, this.offset + 2).equals(BigInteger.ZERO)) {
-            rewriteDepth = preloadUintAt(5, this.offset + 3).intValueExact();
+        if (preloadUintLongAt(1, this.offset + 2) != 0) {
+            rewriteDepth = (int) preloadUintLongAt(5, this.offset + 3);
             // depth is <= 31, fits int
-            rewritePfx = preloadUintAt(rewriteDepth, this.offset + 8).intValueExact();
+            rewritePfx = (int) preloadUintLongAt(rewriteDepth, this.offset + 8);
 
             // Shift base offset like TS: offset += 5 + rewrite_depth
             this.offset += 5 + rewriteDepth;
         }
 
-        int wc = preloadIntAt(8, this.offset + 3).intValueExact();
+        int wc = (int) preloadIntLongAt(8, this.offset + 3);
         byte[] hash = preloadBufferAt(32, this.offset + 11);
 
         // Apply rewrite prefix if present (port of TS loop)
@@ -417,12 +466,12 @@ public final class BitReader {
 
     private ExternalAddress loadExternalAddressImpl() {
 
-        int type = preloadUintAt(2, this.offset).intValueExact();
+        int type = (int) preloadUintLongAt(2, this.offset);
         if (type != 1) {
             throw new IllegalArgumentException("Invalid address");
         }
 
-        int bitsCount = preloadUintAt(9, this.offset + 2).intValueExact();
+        int bitsCount = (int) preloadUintLongAt(9, this.offset + 2);
         BigInteger value = preloadUintAt(bitsCount, this.offset + 11);
 
         this.offset += 11 + bitsCount;
@@ -1,5 +1,6 @@
 package dev.quark.ton.core.boc;
 
+import dev.quark.ton.core.boc.utils.BitOps;
 import dev.quark.ton.core.boc.utils.PaddedBits;
 
 import java.util.Arrays;
@@ -39,6 +40,27 @@ public final class BitString {
         return length;
     }
 
+    /**
+     * Copy all bits into {@code dst} starting at bit {@code dstOffset};
+     * other bits of {@code dst} are kept
+     */
+    public void copyTo(byte[] dst, int dstOffset) {
+        if (dstOffset < 0 || dstOffset + length > dst.length * 8) {
+            throw new IllegalArgumentException("Offset " + dstOffset + " + Length " + length + " is out of bounds");
+        }
+        BitOps.copy(data, offset, dst, dstOffset, length);
+    }
+
+    // ---- raw access for bulk copies inside the package ----
+
+    byte[] backing() {
+        return data;
+    }
+
+    int backingOffset() {
+        return offset;
+    }
+
     /**
      * Returns the bit at the specified index
      *
@@ -119,16 +141,30 @@ public final class BitString {
         return Arrays.copyOfRange(this.data, start, end);
     }
 
+    /**
+     * Copy of this bitstring that owns a right-sized array starting at bit 0,
+     * so it no longer keeps a larger backing buffer alive.
+     * Returns {@code this} if it is already compact.
+     */
+    public BitString compact() {
+        int bytes = (length + 7) >> 3;
+        if (offset == 0 && data.length == bytes) {
+            return this;
+        }
+        if (length == 0) {
+            return EMPTY;
+        }
+
+        byte[] out = new byte[bytes];
+        BitOps.copy(data, offset, out, 0, length);
+        return new BitString(out, 0, length);
+    }
+
     public boolean equalsBits(BitString other) {
         if (this.length != other.length) {
             return false;
         }
-        for (int i = 0; i < this.length; i++) {
-            if (this.at(i) != other.at(i)) {
-                return false;
-            }
-        }
-        return true;
+        return BitOps.equals(this.data, this.offset, other.data, other.offset, this.length);
     }
 
     /**
@@ -185,11 +221,6 @@ public final class BitString {
     @Override
     public int hashCode() {
         // consistent with equalsBits: hash only visible bits
-        int h = 1;
-        h = 31 * h + length;
-        for (int i = 0; i < length; i++) {
-            h = 31 * h + (at(i) ? 1 : 0);
-        }
-        return h;
+        return BitOps.hash(data, offset, length);
     }
 }
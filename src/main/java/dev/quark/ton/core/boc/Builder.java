@@ -1,5 +1,6 @@
 package dev.quark.ton.core.boc;
 
+import dev.quark.ton.core.boc.cell.utils.CellInterner;
 import dev.quark.ton.core.boc.utils.Strings;
 import dev.quark.ton.core.dict.Dictionary;
 
@@ -452,6 +453,14 @@ public final class Builder {
         return new Cell(o);
     }
 
+    /**
+     * Build an ordinary cell and return its canonical instance from {@code interner}
+     */
+    public Cell endCell(CellInterner interner) {
+        Objects.requireNonNull(interner, "interner");
+        return interner.intern(endCell());
+    }
+
     public Cell endCellExotic() {
         Cell.Options o = new Cell.Options();
         o.bits = bits.build();
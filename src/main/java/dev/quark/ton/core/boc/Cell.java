@@ -2,13 +2,19 @@ package dev.quark.ton.core.boc;
 
 import dev.quark.ton.core.boc.cell.LevelMask;
 import dev.quark.ton.core.boc.cell.serialization.BocSerialization;
+import dev.quark.ton.core.boc.cell.serialization.CellResolver;
+import dev.quark.ton.core.boc.cell.utils.CellInterner;
 import dev.quark.ton.core.boc.cell.resolve.ResolveExotic;
 import dev.quark.ton.core.boc.cell.wonder.WonderCalculator;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
 
 /**
  * Cell as described in TVM spec
@@ -30,6 +36,21 @@ public final class Cell {
         return BocSerialization.deserializeBoc(src);
     }
 
+    public static List<Cell> fromBoc(byte[] src, DeserializeOptions opts) {
+        return BocSerialization.deserializeBoc(src, opts);
+    }
+
+    /**
+     * Deserialize cells from a BOC stream without buffering it whole
+     */
+    public static List<Cell> fromBoc(InputStream src) throws IOException {
+        return BocSerialization.deserializeBoc(src);
+    }
+
+    public static List<Cell> fromBoc(InputStream src, DeserializeOptions opts) throws IOException {
+        return BocSerialization.deserializeBoc(src, opts);
+    }
+
     /**
      * Deserialize a single cell from base64 BOC
      */
@@ -76,8 +97,17 @@ public final class Cell {
     /* ======================= internal fields ==================== */
     /* ============================================================ */
 
-    private final byte[][] hashes;
-    private final int[] depths;
+    /**
+     * Hashes and depths, computed on first access and then shared by all threads.
+     * Computation is idempotent, so a race only costs a duplicate calculation.
+     *
+     * Level 0 cells (almost all of them) keep a single inline hash here as
+     * {@code byte[]} with its depth in {@link #depth0}; other cells keep a
+     * {@link WonderCalculator.Result}. {@code depth0} is written before the
+     * volatile store, so it is visible to every reader that sees the hash.
+     */
+    private volatile Object wonders;
+    private int depth0;
 
     /* ============================================================ */
     /* ======================= constructors ======================= */
@@ -95,30 +125,21 @@ public final class Cell {
             bits = opts.bits;
         }
 
-        // Resolve refs
-        List<Cell> refs = new ArrayList<>();
-        if (opts != null && opts.refs != null) {
-            refs.addAll(opts.refs);
-        }
+        // Resolve refs into an immutable array-backed list
+        List<Cell> refs = opts != null && opts.refs != null
+                ? List.of(opts.refs.toArray(new Cell[0]))
+                : List.of();
 
         CellType type;
         LevelMask mask;
-        byte[][] hashes;
-        int[] depths;
+
+        boolean stored = opts != null && opts.hashes != null;
 
         if (opts != null && opts.exotic) {
 
             // Resolve exotic cell
             ResolveExotic.Result resolved = ResolveExotic.resolve(bits, refs);
-
-            // Perform wonders
-            WonderCalculator.Result wonders =
-                    WonderCalculator.calculate(resolved.type, bits, refs);
-
             type = resolved.type;
-            mask = wonders.mask;
-            hashes = wonders.hashes;
-            depths = wonders.depths;
 
         } else {
 
@@ -130,22 +151,83 @@ public final class Cell {
                 throw new IllegalStateException("Bits overflow: " + bits.length() + " > 1023");
             }
 
-            // Perform wonders
-            WonderCalculator.Result wonders =
-                    WonderCalculator.calculate(CellType.Ordinary, bits, refs);
-
             type = CellType.Ordinary;
-            mask = wonders.mask;
-            hashes = wonders.hashes;
-            depths = wonders.depths;
+        }
+
+        // Level mask is cheap and validates exotic cells, hashes are deferred
+        mask = WonderCalculator.resolveMask(type, bits, refs);
+
+        if (stored) {
+
+            // Take stored hashes as is
+            if (opts.depths == null
+                    || opts.hashes.length != mask.hashCount()
+                    || opts.depths.length != mask.hashCount()) {
+                throw new IllegalStateException("Invalid stored hashes");
+            }
+
+            byte[][] hashes = new byte[4][];
+            int[] depths = new int[4];
+            for (int i = 0; i < 4; i++) {
+                int idx = mask.apply(i).hashIndex();
+                hashes[i] = opts.hashes[idx];
+                depths[i] = opts.depths[idx];
+            }
+            setWonders(new WonderCalculator.Result(mask, hashes, depths));
         }
 
         this.type = type;
         this.bits = bits;
-        this.refs = Collections.unmodifiableList(refs);
+        this.refs = refs;
         this.mask = mask;
-        this.hashes = hashes;
-        this.depths = depths;
+    }
+
+    private void setWonders(WonderCalculator.Result w) {
+        if (w.mask.value() == 0) {
+            depth0 = w.depths[0];
+            wonders = w.hashes[0];
+        } else {
+            wonders = w;
+        }
+    }
+
+    /**
+     * Compute hashes of this cell and of every not yet hashed descendant,
+     * children first. Iterative, so long chains do not exhaust the stack.
+     */
+    private Object wonders() {
+        Object w = wonders;
+        if (w != null) {
+            return w;
+        }
+
+        ArrayDeque<Cell> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            Cell c = pending.peek();
+            if (c.wonders != null) {
+                pending.pop();
+                continue;
+            }
+            boolean ready = true;
+            for (Cell r : c.refs) {
+                if (r.wonders == null) {
+                    pending.push(r);
+                    ready = false;
+                }
+            }
+            if (ready) {
+                pending.pop();
+                if (c.mask.value() == 0) {
+                    // Single hash, kept inline: no Result to build
+                    c.depth0 = WonderCalculator.depth(c.type, c.refs, 0);
+                    c.wonders = WonderCalculator.hash0(c.type, c.bits, c.refs);
+                } else {
+                    c.setWonders(WonderCalculator.calculate(c.type, c.bits, c.refs));
+                }
+            }
+        }
+        return wonders;
     }
 
     /* ============================================================ */
@@ -156,6 +238,64 @@ public final class Cell {
         return type != CellType.Ordinary;
     }
 
+    /**
+     * Equal cell whose whole subtree owns right-sized bit buffers, so it does
+     * not keep the BOC it was decoded from alive. Already computed hashes are
+     * carried over. Returns {@code this} if nothing needs copying.
+     */
+    public Cell compact() {
+        IdentityHashMap<Cell, Cell> done = new IdentityHashMap<>();
+        ArrayDeque<Cell> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            Cell c = pending.peek();
+            if (done.containsKey(c)) {
+                pending.pop();
+                continue;
+            }
+            boolean ready = true;
+            for (Cell r : c.refs) {
+                if (!done.containsKey(r)) {
+                    pending.push(r);
+                    ready = false;
+                }
+            }
+            if (!ready) {
+                continue;
+            }
+            pending.pop();
+
+            BitString compacted = c.bits.compact();
+            boolean same = compacted == c.bits;
+            Cell[] refs = new Cell[c.refs.size()];
+            for (int i = 0; i < refs.length; i++) {
+                refs[i] = done.get(c.refs.get(i));
+                same &= refs[i] == c.refs.get(i);
+            }
+            if (same) {
+                done.put(c, c);
+                continue;
+            }
+
+            Options o = new Options();
+            o.exotic = c.isExotic();
+            o.bits = compacted;
+            o.refs = List.of(refs);
+            if (c.wonders != null) {
+                o.hashes = new byte[c.mask.hashCount()][];
+                o.depths = new int[c.mask.hashCount()];
+                for (int level = 0, i = 0; level <= 3; level++) {
+                    if (c.mask.isSignificant(level)) {
+                        o.hashes[i] = c.hash(level);
+                        o.depths[i++] = c.depth(level);
+                    }
+                }
+            }
+            done.put(c, new Cell(o));
+        }
+        return done.get(this);
+    }
+
     /* ============================================================ */
     /* ======================= parsing ============================ */
     /* ============================================================ */
@@ -180,6 +320,11 @@ public final class Cell {
     }
 
     public byte[] hash(int level) {
+        Object w = wonders();
+        if (w instanceof byte[] h) {
+            return h;
+        }
+        byte[][] hashes = ((WonderCalculator.Result) w).hashes;
         int idx = Math.min(hashes.length - 1, level);
         return hashes[idx];
     }
@@ -189,6 +334,11 @@ public final class Cell {
     }
 
     public int depth(int level) {
+        Object w = wonders();
+        if (w instanceof byte[]) {
+            return depth0;
+        }
+        int[] depths = ((WonderCalculator.Result) w).depths;
         int idx = Math.min(depths.length - 1, level);
         return depths[idx];
     }
@@ -205,6 +355,23 @@ public final class Cell {
         return java.util.Arrays.equals(this.hash(), other.hash());
     }
 
+    /**
+     * Content equality: cells are equal when their representation hashes are
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        return other instanceof Cell c && equals(c);
+    }
+
+    @Override
+    public int hashCode() {
+        byte[] h = hash();
+        return ((h[0] & 0xFF) << 24) | ((h[1] & 0xFF) << 16) | ((h[2] & 0xFF) << 8) | (h[3] & 0xFF);
+    }
+
     /* ============================================================ */
     /* ======================= serialization ====================== */
     /* ============================================================ */
@@ -214,9 +381,19 @@ public final class Cell {
     }
 
     public byte[] toBoc(SerializeOptions opts) {
+        return toBoc(List.of(this), opts);
+    }
+
+    /**
+     * Serialize several roots into a single BOC
+     */
+    public static byte[] toBoc(List<Cell> roots, SerializeOptions opts) {
         boolean idx = opts != null && opts.idx != null ? opts.idx : false;
         boolean crc32 = opts != null && opts.crc32 != null ? opts.crc32 : true;
-        return BocSerialization.serializeBoc(this, idx, crc32);
+        boolean cacheBits = opts != null && opts.cacheBits != null ? opts.cacheBits : false;
+        boolean withHashes = opts != null && opts.withHashes != null ? opts.withHashes : false;
+        Predicate<Cell> absent = opts != null ? opts.absent : null;
+        return BocSerialization.serializeBoc(roots, idx, crc32, cacheBits, withHashes, absent);
     }
 
     /* ============================================================ */
@@ -288,11 +465,58 @@ public final class Cell {
         public boolean exotic;
         public BitString bits;
         public List<Cell> refs;
+
+        /**
+         * Precomputed hashes and depths, one per significant level in
+         * ascending order (as stored in BOC). Trusted, not verified.
+         */
+        public byte[][] hashes;
+        public int[] depths;
     }
 
     public static final class SerializeOptions {
         public Boolean idx;
         public Boolean crc32;
+        /** Mark cells referenced more than once in the index (requires idx) */
+        public Boolean cacheBits;
+        /** Store hashes and depths of every level in each cell */
+        public Boolean withHashes;
+        /**
+         * Cells to leave out, e.g. ones the receiver already has. They are
+         * stored as absent cells with their hashes only, without their subtrees
+         */
+        public Predicate<Cell> absent;
+    }
+
+    public static final class DeserializeOptions {
+        /** Use hashes and depths stored in the BOC instead of recomputing them */
+        public Boolean trustStoredHashes;
+        /** Recompute trusted hashes before returning and fail on mismatch */
+        public Boolean verifyStoredHashes;
+        /** Build and hash cells eagerly, grouped by height, in parallel */
+        public Boolean parallelHashing;
+        /**
+         * Executor for parallel hashing (common fork-join pool if null) and for
+         * verification (calling thread if null)
+         */
+        public Executor executor;
+        /**
+         * Give every cell its own right-sized bit buffer instead of a view into
+         * the BOC. Defaults to true for BOCs of {@link BocSerialization#COMPACT_THRESHOLD}
+         * bytes of cell data and more
+         */
+        public Boolean compact;
+        /**
+         * Route every decoded cell through this interner, children first.
+         * With trusted hashes it requires {@link #verifyStoredHashes}, and no
+         * cell is interned before the whole BOC passes verification
+         */
+        public CellInterner interner;
+        /**
+         * Source of absent cells of a partial BOC. Absent cells that are not
+         * resolved become pruned branches carrying their hashes
+         */
+        public CellResolver resolver;
     }
 
     public int bitsLength() {
@@ -5,6 +5,15 @@ package dev.quark.ton.core.boc.cell;
  */
 public final class LevelMask {
 
+    /** Shared instances for every valid 3-bit mask */
+    private static final LevelMask[] CACHE = new LevelMask[8];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new LevelMask(i);
+        }
+    }
+
     private final int mask;
     private final int hashIndex;
     private final int hashCount;
@@ -19,6 +28,16 @@ public final class LevelMask {
         this.hashCount = this.hashIndex + 1;
     }
 
+    /**
+     * Shared instance for {@code mask}, allocation-free for valid masks
+     */
+    public static LevelMask of(int mask) {
+        if (mask >= 0 && mask < CACHE.length) {
+            return CACHE[mask];
+        }
+        return new LevelMask(mask);
+    }
+
     public int value() {
         return mask;
     }
@@ -46,7 +65,7 @@ public final class LevelMask {
      * apply(level): mask & ((1 << level) - 1)
      */
     public LevelMask apply(int level) {
-        return new LevelMask(mask & ((1 << level) - 1));
+        return of(mask & ((1 << level) - 1));
     }
 
     /**
@@ -55,11 +55,11 @@ public final class ExoticPruned {
         if (bits.length() == 280) {
 
             // Special case for config proof
-            mask = new LevelMask(1);
+            mask = LevelMask.of(1);
 
         } else {
 
-            mask = new LevelMask((int) reader.loadUint(8));
+            mask = LevelMask.of((int) reader.loadUint(8));
             if (mask.level() < 1 || mask.level() > 3) {
                 throw new IllegalStateException(
                         "Pruned Branch cell level must be >= 1 and <= 3, got \"" +
@@ -50,7 +50,7 @@ public final class ResolveExotic {
         // Calculate parameters
         int[] depths = new int[pruned.pruned.length];
         byte[][] hashes = new byte[pruned.pruned.length][];
-        LevelMask mask = new LevelMask(pruned.mask);
+        LevelMask mask = LevelMask.of(pruned.mask);
 
         for (int i = 0; i < pruned.pruned.length; i++) {
             depths[i] = pruned.pruned[i].depth;
@@ -68,7 +68,7 @@ public final class ResolveExotic {
         // Calculate parameters
         int[] depths = new int[0];
         byte[][] hashes = new byte[0][];
-        LevelMask mask = new LevelMask();
+        LevelMask mask = LevelMask.of(0);
 
         return new Result(CellType.Library, depths, hashes, mask);
     }
@@ -81,7 +81,7 @@ public final class ResolveExotic {
         // Calculate parameters
         int[] depths = new int[0];
         byte[][] hashes = new byte[0][];
-        LevelMask mask = new LevelMask(refs.get(0).level() >> 1);
+        LevelMask mask = LevelMask.of(refs.get(0).level() >> 1);
 
         return new Result(CellType.MerkleProof, depths, hashes, mask);
     }
@@ -94,7 +94,7 @@ public final class ResolveExotic {
         // Calculate parameters
         int[] depths = new int[0];
         byte[][] hashes = new byte[0][];
-        LevelMask mask = new LevelMask((refs.get(0).level() | refs.get(1).level()) >> 1);
+        LevelMask mask = LevelMask.of((refs.get(0).level() | refs.get(1).level()) >> 1);
 
         return new Result(CellType.MerkleUpdate, depths, hashes, mask);
     }
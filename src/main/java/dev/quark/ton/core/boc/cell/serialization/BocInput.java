@@ -0,0 +1,125 @@
+package dev.quark.ton.core.boc.cell.serialization;
+
+import dev.quark.ton.core.utils.Crc32c;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Big-endian reader over a channel through a bounded buffer.
+ *
+ * Keeps a running CRC32C over every consumed byte so the BOC trailer can be
+ * verified without holding the source in memory.
+ */
+final class BocInput {
+
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final Crc32c.Digest crc = new Crc32c.Digest();
+    private int crcMark; // buffer position up to which crc is up to date
+    private long consumed;
+
+    BocInput(ReadableByteChannel channel, int bufferSize) {
+        if (bufferSize < 8) {
+            throw new IllegalArgumentException("Buffer size must be >= 8, got " + bufferSize);
+        }
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.buffer.flip(); // start empty
+    }
+
+    /**
+     * Number of bytes consumed so far
+     */
+    long consumed() {
+        return consumed;
+    }
+
+    /**
+     * CRC32C of all bytes consumed so far
+     */
+    int crc() {
+        flushCrc();
+        return crc.value();
+    }
+
+    int readByte() throws IOException {
+        require(1);
+        consumed++;
+        return buffer.get() & 0xFF;
+    }
+
+    /**
+     * Read big-endian unsigned integer of {@code bytes} bytes (at most 7)
+     */
+    long readUint(int bytes) throws IOException {
+        require(bytes);
+        long res = 0;
+        for (int i = 0; i < bytes; i++) {
+            res = (res << 8) | (buffer.get() & 0xFF);
+        }
+        consumed += bytes;
+        return res;
+    }
+
+    void readFully(byte[] dst, int off, int len) throws IOException {
+        while (len > 0) {
+            if (!buffer.hasRemaining()) {
+                fill();
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(dst, off, n);
+            off += n;
+            len -= n;
+            consumed += n;
+        }
+    }
+
+    void skip(long len) throws IOException {
+        while (len > 0) {
+            if (!buffer.hasRemaining()) {
+                fill();
+            }
+            int n = (int) Math.min(len, buffer.remaining());
+            buffer.position(buffer.position() + n);
+            len -= n;
+            consumed += n;
+        }
+    }
+
+    /* ============================================================ */
+    /* ======================= buffer ============================= */
+    /* ============================================================ */
+
+    private void require(int bytes) throws IOException {
+        while (buffer.remaining() < bytes) {
+            fill();
+        }
+    }
+
+    private void flushCrc() {
+        int pos = buffer.position();
+        if (pos > crcMark) {
+            crc.update(buffer.array(), crcMark, pos - crcMark);
+            crcMark = pos;
+        }
+    }
+
+    private void fill() throws IOException {
+        flushCrc();
+        buffer.compact();
+        crcMark = 0;
+        int n;
+        do {
+            n = channel.read(buffer);
+        } while (n == 0);
+        buffer.flip();
+        if (n < 0) {
+            throw new EOFException("Unexpected end of BOC stream");
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package dev.quark.ton.core.boc.cell.serialization;
+
+import dev.quark.ton.core.utils.Crc32c;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+
+/**
+ * Cell records of a BOC located in place, without decoding them.
+ *
+ * The header is parsed and the start of every record is collected once (from
+ * the offset index when present, otherwise by a scan); descriptors, data and
+ * refs are then read straight from the segment on demand.
+ */
+final class BocRecords {
+
+    final MemorySegment segment;
+    final int size;
+    final int cells;
+    final int[] root;
+
+    private final boolean hasCrc32c;
+    private final long dataStart;
+    private final long dataEnd;
+    private final long[] offsets; // absolute start of each record
+
+    private BocRecords(MemorySegment segment) {
+        this.segment = segment;
+
+        long pos = 0;
+        if (segment.byteSize() < 6) {
+            throw new IllegalStateException("Invalid BOC file");
+        }
+        long magic = readUint(pos, 4);
+        pos += 4;
+
+        boolean hasIdx;
+        boolean hasCacheBits;
+        int size;
+        if (magic == 0x68ff65f3L || magic == 0xacc3a728L) {
+            hasIdx = true;
+            hasCrc32c = magic == 0xacc3a728L;
+            hasCacheBits = false;
+            size = readByte(pos++);
+        } else if (magic == 0xb5ee9c72L) {
+            int flags = readByte(pos++);
+            hasIdx = (flags & 0x80) != 0;
+            hasCrc32c = (flags & 0x40) != 0;
+            hasCacheBits = (flags & 0x20) != 0;
+            size = flags & 0x07;
+        } else {
+            throw new IllegalStateException("Invalid magic");
+        }
+        this.size = size;
+
+        int offBytes = readByte(pos++);
+        if (size < 1 || size > 4 || offBytes < 1 || offBytes > 8) {
+            throw new IllegalStateException("Invalid BOC header");
+        }
+        if (pos + 3L * size + offBytes > segment.byteSize()) {
+            throw new IllegalStateException("Invalid BOC file");
+        }
+
+        cells = readCount(pos, size);
+        pos += size;
+        int roots = readCount(pos, size);
+        pos += size;
+        long absent = readUint(pos, size);
+        pos += size;
+        long totalCellSize = readUint(pos, offBytes);
+        pos += offBytes;
+
+        // Every record takes at least 2 bytes: bound the cell count by the
+        // data size before anything is sized by it
+        if (totalCellSize < 0 || cells > totalCellSize / 2 || totalCellSize > segment.byteSize()) {
+            throw new IllegalStateException("Invalid BOC header");
+        }
+
+        if (magic == 0xb5ee9c72L) {
+            if (pos + (long) roots * size > segment.byteSize()) {
+                throw new IllegalStateException("Invalid BOC file");
+            }
+            root = new int[roots];
+            for (int i = 0; i < roots; i++) {
+                root[i] = readCount(pos, size);
+                pos += size;
+            }
+        } else {
+            root = new int[]{0};
+        }
+
+        long indexStart = pos;
+        if (hasIdx) {
+            pos += (long) cells * offBytes;
+            if (pos > segment.byteSize()) {
+                throw new IllegalStateException("Invalid BOC file");
+            }
+        }
+        dataStart = pos;
+        dataEnd = dataStart + totalCellSize;
+
+        if (dataEnd + (hasCrc32c ? 4 : 0) > segment.byteSize()) {
+            throw new IllegalStateException("Invalid BOC file");
+        }
+        for (int r : root) {
+            checkIndex(r);
+        }
+
+        // Locate records
+        offsets = new long[cells];
+        long at = 0;
+        long absentCount = 0;
+        for (int i = 0; i < cells; i++) {
+            if (hasIdx && i > 0) {
+                long end = readUint(indexStart + (long) (i - 1) * offBytes, offBytes);
+                at = hasCacheBits ? end >>> 1 : end;
+            }
+            long start = dataStart + at;
+            if (start + 2 > dataEnd) {
+                throw new IllegalStateException("Invalid BOC file");
+            }
+            int d1 = readByte(start);
+            int d2 = readByte(start + 1);
+            int refs = d1 & 7;
+            if (refs == 7) {
+                // Absent cell: hashes and depths only
+                if ((d1 & 16) == 0 || d2 != 0) {
+                    throw new IllegalStateException("Invalid BOC file");
+                }
+                refs = 0;
+                absentCount++;
+            } else if (refs > 4) {
+                throw new IllegalStateException("Invalid BOC file");
+            }
+            long length = 2 + ((d1 & 16) != 0 ? hashesCount(d1 >> 5) * (32 + 2) : 0)
+                    + (d2 + 1) / 2 + (long) refs * size;
+            if (start + length > dataEnd) {
+                throw new IllegalStateException("Invalid BOC file");
+            }
+            offsets[i] = start;
+            at += length;
+        }
+        if (absentCount != absent) {
+            throw new IllegalStateException("Invalid BOC file");
+        }
+    }
+
+    static BocRecords parse(MemorySegment segment) {
+        return new BocRecords(segment);
+    }
+
+    /* ============================================================ */
+    /* ======================= records ============================ */
+    /* ============================================================ */
+
+    int d1(int i) {
+        return readByte(offsets[i]);
+    }
+
+    int d2(int i) {
+        return readByte(offsets[i] + 1);
+    }
+
+    int refsCount(int i) {
+        int refs = d1(i) & 7;
+        return refs == 7 ? 0 : refs;
+    }
+
+    /**
+     * Cell left out of a partial BOC; only its hashes and depths are stored
+     */
+    boolean isAbsent(int i) {
+        return (d1(i) & 7) == 7;
+    }
+
+    /**
+     * Absolute offset of the stored hashes of cell {@code i}, followed by the depths
+     */
+    long hashesOffset(int i) {
+        return offsets[i] + 2;
+    }
+
+    boolean isExotic(int i) {
+        return (d1(i) & 8) != 0;
+    }
+
+    /**
+     * Absolute offset of the (padded) data bytes of cell {@code i}
+     */
+    long dataOffset(int i) {
+        long pos = offsets[i] + 2;
+        int d1 = d1(i);
+        if ((d1 & 16) != 0) {
+            pos += (long) hashesCount(d1 >> 5) * (32 + 2);
+        }
+        return pos;
+    }
+
+    int dataBytes(int i) {
+        return (d2(i) + 1) / 2;
+    }
+
+    /**
+     * Length in bits of the data of cell {@code i}, without the padding
+     */
+    int bitsLength(int i) {
+        int d2 = d2(i);
+        int bytes = (d2 + 1) / 2;
+        if ((d2 & 1) == 0) {
+            return bytes * 8;
+        }
+        int last = readByte(dataOffset(i) + bytes - 1);
+        if (last == 0) {
+            throw new IllegalStateException("Invalid BOC file");
+        }
+        return bytes * 8 - Integer.numberOfTrailingZeros(last) - 1;
+    }
+
+    /**
+     * Index of the {@code r}-th child of cell {@code i}; children always follow their parent
+     */
+    int ref(int i, int r) {
+        int child = readCount(dataOffset(i) + dataBytes(i) + (long) r * size, size);
+        if (child <= i || child >= cells) {
+            throw new IllegalStateException("Invalid BOC file");
+        }
+        return child;
+    }
+
+    /**
+     * Check CRC32C of the whole file
+     *
+     * @throws IllegalStateException if the checksum does not match
+     */
+    void verifyCrc32c() {
+        if (!hasCrc32c) {
+            return;
+        }
+        // Buffers of shared-arena segments cannot be checksummed directly,
+        // so stream through a small heap chunk
+        Crc32c.Digest crc = new Crc32c.Digest();
+        byte[] chunk = new byte[(int) Math.min(64 * 1024, dataEnd)];
+        for (long pos = 0; pos < dataEnd; ) {
+            int n = (int) Math.min(chunk.length, dataEnd - pos);
+            MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, pos, chunk, 0, n);
+            crc.update(chunk, 0, n);
+            pos += n;
+        }
+        byte[] stored = new byte[4];
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, dataEnd, stored, 0, 4);
+        if (!Arrays.equals(crc.toBytes(), stored)) {
+            throw new IllegalStateException("Invalid CRC32C");
+        }
+    }
+
+    /* ============================================================ */
+    /* ======================= raw reads ========================== */
+    /* ============================================================ */
+
+    static int hashesCount(int levelMask) {
+        return Integer.bitCount(levelMask & 7) + 1;
+    }
+
+    int readByte(long pos) {
+        return segment.get(ValueLayout.JAVA_BYTE, pos) & 0xFF;
+    }
+
+    private long readUint(long pos, int bytes) {
+        long res = 0;
+        for (int i = 0; i < bytes; i++) {
+            res = (res << 8) | readByte(pos + i);
+        }
+        return res;
+    }
+
+    private int readCount(long pos, int bytes) {
+        long v = readUint(pos, bytes);
+        if (v > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Invalid BOC header");
+        }
+        return (int) v;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= cells) {
+            throw new IllegalStateException("Invalid BOC file");
+        }
+    }
+}
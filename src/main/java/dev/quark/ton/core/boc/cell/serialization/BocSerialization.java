@@ -1,14 +1,34 @@
 package dev.quark.ton.core.boc.cell.serialization;
 
 import dev.quark.ton.core.boc.*;
+import dev.quark.ton.core.boc.cell.LevelMask;
 import dev.quark.ton.core.boc.cell.descriptor.Descriptor;
+import dev.quark.ton.core.boc.cell.utils.CellInterner;
 import dev.quark.ton.core.boc.cell.utils.TopologicalSort;
+import dev.quark.ton.core.boc.cell.wonder.WonderCalculator;
 import dev.quark.ton.core.boc.utils.PaddedBits;
 import dev.quark.ton.core.utils.BitsForNumber;
 import dev.quark.ton.core.utils.Crc32c;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
 
 /**
  * Ported 1:1 from ton-core/src/boc/cell/serialization.ts
@@ -34,7 +54,7 @@ public final class BocSerialization {
         return n + 1;
     }
 
-    private static ReadCellResult readCell(BitReader reader, int sizeBytes) {
+    private static TempCell readCell(BitReader reader, int sizeBytes, boolean trustHashes, boolean compact) {
 
         // D1
         int d1 = (int) reader.loadUint(8);
@@ -49,10 +69,28 @@ public final class BocSerialization {
         int levelMask = d1 >> 5;
         boolean hasHashes = (d1 & 16) != 0;
 
-        int hashesSize = hasHashes ? getHashesCount(levelMask) * 32 : 0;
-        int depthSize = hasHashes ? getHashesCount(levelMask) * 2 : 0;
+        if (refsCount == 7) {
+            return readAbsent(reader, d1, d2);
+        }
 
-        reader.skip((hashesSize + depthSize) * 8);
+        byte[][] hashes = null;
+        int[] depths = null;
+        if (hasHashes && trustHashes) {
+            int count = getHashesCount(levelMask);
+            hashes = new byte[count][];
+            depths = new int[count];
+            for (int i = 0; i < count; i++) {
+                hashes[i] = reader.loadBuffer(32);
+            }
+            for (int i = 0; i < count; i++) {
+                depths[i] = (int) reader.loadUint(16);
+            }
+        } else {
+            int hashesSize = hasHashes ? getHashesCount(levelMask) * 32 : 0;
+            int depthSize = hasHashes ? getHashesCount(levelMask) * 2 : 0;
+
+            reader.skip((hashesSize + depthSize) * 8);
+        }
 
         // Bits
         BitString bits = BitString.EMPTY;
@@ -62,6 +100,9 @@ public final class BocSerialization {
             } else {
                 bits = reader.loadBits(dataByteSize * 8);
             }
+            if (compact) {
+                bits = bits.compact();
+            }
         }
 
         // Refs
@@ -70,11 +111,31 @@ public final class BocSerialization {
             refs[i] = (int) reader.loadUint(sizeBytes * 8);
         }
 
-        return new ReadCellResult(bits, refs, exotic);
+        return new TempCell(bits, refs, exotic, hashes, depths);
+    }
+
+    /**
+     * Absent cell: refs count 7 with hashes and depths, no data and no refs
+     */
+    private static TempCell readAbsent(BitReader reader, int d1, int d2) {
+        if ((d1 & 16) == 0 || d2 != 0) {
+            throw new IllegalStateException("Invalid BOC file");
+        }
+        int count = getHashesCount(d1 >> 5);
+        byte[][] hashes = new byte[count][];
+        int[] depths = new int[count];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = reader.loadBuffer(32);
+        }
+        for (int i = 0; i < count; i++) {
+            depths[i] = (int) reader.loadUint(16);
+        }
+        return TempCell.absent((d1 >> 5) & 7, hashes, depths);
     }
 
-    private static int calcCellSize(Cell cell, int sizeBytes) {
-        return 2 + (int) Math.ceil(cell.bits.length() / 8.0) + cell.refs.size() * sizeBytes;
+    private static int calcCellSize(Cell cell, int sizeBytes, boolean withHashes) {
+        int hashesSize = withHashes ? cell.mask.hashCount() * (32 + 2) : 0;
+        return 2 + hashesSize + (int) Math.ceil(cell.bits.length() / 8.0) + cell.refs.size() * sizeBytes;
     }
 
     /* ============================================================ */
@@ -100,7 +161,7 @@ public final class BocSerialization {
 
             if (magic == 0xacc3a728L) {
                 byte[] crc32 = reader.loadBuffer(4);
-                byte[] calc = Crc32c.crc32c(slice(src, 0, src.length - 4));
+                byte[] calc = Crc32c.crc32c(src, 0, src.length - 4);
                 if (!java.util.Arrays.equals(calc, crc32)) {
                     throw new IllegalStateException("Invalid CRC32C");
                 }
@@ -133,7 +194,7 @@ public final class BocSerialization {
 
             if (hasCrc32c) {
                 byte[] crc32 = reader.loadBuffer(4);
-                byte[] calc = Crc32c.crc32c(slice(src, 0, src.length - 4));
+                byte[] calc = Crc32c.crc32c(src, 0, src.length - 4);
                 if (!java.util.Arrays.equals(calc, crc32)) {
                     throw new IllegalStateException("Invalid CRC32C");
                 }
@@ -145,50 +206,628 @@ public final class BocSerialization {
         throw new IllegalStateException("Invalid magic");
     }
 
+    /**
+     * Cell data size from which cells get their own bit buffers by default
+     */
+    public static final int COMPACT_THRESHOLD = 1 << 20;
+
     public static List<Cell> deserializeBoc(byte[] src) {
+        return deserializeBoc(src, null);
+    }
+
+    public static List<Cell> deserializeBoc(byte[] src, Cell.DeserializeOptions opts) {
 
         ParsedBoc boc = parseBoc(src);
         BitReader reader = new BitReader(new BitString(boc.cellData, 0, boc.cellData.length * 8));
 
-        List<TempCell> cells = new ArrayList<>();
+        boolean trust = opts != null && Boolean.TRUE.equals(opts.trustStoredHashes);
+        boolean compact = opts != null && opts.compact != null
+                ? opts.compact
+                : boc.cellData.length >= COMPACT_THRESHOLD;
+        TempCell[] cells = new TempCell[boc.cells];
         for (int i = 0; i < boc.cells; i++) {
-            ReadCellResult r = readCell(reader, boc.size);
-            cells.add(new TempCell(r.bits, r.refs, r.exotic));
+            cells[i] = readCell(reader, boc.size, trust, compact);
+        }
+        checkAbsent(cells, boc.cells, boc.absent);
+
+        return buildCells(cells, boc.cells, boc.root, opts);
+    }
+
+    /* ============================================================ */
+    /* ======================= streaming ========================== */
+    /* ============================================================ */
+
+    /**
+     * Deserialize cells from a BOC stream without materializing the source.
+     *
+     * The index is skipped, every cell copies only its own data bytes and
+     * CRC32C is checked on the fly, so peak memory is close to the size of the
+     * resulting cell graph. The stream is read through a bounded buffer and may
+     * be consumed past the end of the BOC.
+     */
+    public static List<Cell> deserializeBoc(InputStream src) throws IOException {
+        return deserializeBoc(Channels.newChannel(src), BocInput.DEFAULT_BUFFER_SIZE, null);
+    }
+
+    public static List<Cell> deserializeBoc(InputStream src, Cell.DeserializeOptions opts) throws IOException {
+        return deserializeBoc(Channels.newChannel(src), BocInput.DEFAULT_BUFFER_SIZE, opts);
+    }
+
+    public static List<Cell> deserializeBoc(ReadableByteChannel src) throws IOException {
+        return deserializeBoc(src, BocInput.DEFAULT_BUFFER_SIZE, null);
+    }
+
+    public static List<Cell> deserializeBoc(ReadableByteChannel src, int bufferSize) throws IOException {
+        return deserializeBoc(src, bufferSize, null);
+    }
+
+    public static List<Cell> deserializeBoc(ReadableByteChannel src, int bufferSize, Cell.DeserializeOptions opts) throws IOException {
+
+        BocInput in = new BocInput(src, bufferSize);
+        long magic = in.readUint(4);
+
+        boolean hasIdx;
+        boolean hasCrc32c;
+        int size;
+
+        if (magic == 0x68ff65f3L || magic == 0xacc3a728L) {
+            hasIdx = true;
+            hasCrc32c = magic == 0xacc3a728L;
+            size = in.readByte();
+        } else if (magic == 0xb5ee9c72L) {
+            int flags = in.readByte();
+            hasIdx = (flags & 0x80) != 0;
+            hasCrc32c = (flags & 0x40) != 0;
+            size = flags & 0x07;
+        } else {
+            throw new IllegalStateException("Invalid magic");
+        }
+
+        int offBytes = in.readByte();
+        if (size < 1 || size > 4 || offBytes < 1 || offBytes > 7) {
+            throw new IllegalStateException("Invalid BOC header");
+        }
+
+        int cellsNum = readCount(in, size);
+        int rootsNum = readCount(in, size);
+        int absent = readCount(in, size);
+        long totalCellSize = in.readUint(offBytes);
+
+        int[] root;
+        if (magic == 0xb5ee9c72L) {
+            root = new int[rootsNum];
+            for (int i = 0; i < rootsNum; i++) {
+                root[i] = readCount(in, size);
+            }
+        } else {
+            root = new int[]{0};
+        }
+
+        if (hasIdx) {
+            in.skip((long) cellsNum * offBytes);
+        }
+
+        // Header values are not trusted for allocation: grow as cells arrive
+        boolean trust = opts != null && Boolean.TRUE.equals(opts.trustStoredHashes);
+        TempCell[] cells = new TempCell[Math.min(cellsNum, 1024)];
+        long dataStart = in.consumed();
+        for (int i = 0; i < cellsNum; i++) {
+            if (i == cells.length) {
+                cells = java.util.Arrays.copyOf(cells, (int) Math.min(cellsNum, cells.length * 2L));
+            }
+            cells[i] = readCell(in, size, trust);
+        }
+        if (in.consumed() - dataStart != totalCellSize) {
+            throw new IllegalStateException("Invalid BOC file");
+        }
+        checkAbsent(cells, cellsNum, absent);
+
+        if (hasCrc32c) {
+            byte[] calc = Crc32c.toBytes(in.crc());
+            byte[] crc32 = new byte[4];
+            in.readFully(crc32, 0, 4);
+            if (!java.util.Arrays.equals(calc, crc32)) {
+                throw new IllegalStateException("Invalid CRC32C");
+            }
+        }
+
+        return buildCells(cells, cellsNum, root, opts);
+    }
+
+    private static int readCount(BocInput in, int sizeBytes) throws IOException {
+        long v = in.readUint(sizeBytes);
+        if (v > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Invalid BOC header");
+        }
+        return (int) v;
+    }
+
+    private static TempCell readCell(BocInput in, int sizeBytes, boolean trustHashes) throws IOException {
+
+        // D1
+        int d1 = in.readByte();
+        int refsCount = d1 % 8;
+        boolean exotic = (d1 & 8) != 0;
+        if (refsCount > 4 && refsCount != 7) {
+            throw new IllegalStateException("Invalid BOC file");
+        }
+
+        // D2
+        int d2 = in.readByte();
+        if (refsCount == 7) {
+            if ((d1 & 16) == 0 || d2 != 0) {
+                throw new IllegalStateException("Invalid BOC file");
+            }
+            int count = getHashesCount(d1 >> 5);
+            byte[][] hashes = new byte[count][32];
+            int[] depths = new int[count];
+            for (int i = 0; i < count; i++) {
+                in.readFully(hashes[i], 0, 32);
+            }
+            for (int i = 0; i < count; i++) {
+                depths[i] = (int) in.readUint(2);
+            }
+            return TempCell.absent((d1 >> 5) & 7, hashes, depths);
+        }
+        int dataByteSize = (d2 + 1) / 2;
+        boolean paddingAdded = (d2 % 2) != 0;
+
+        int levelMask = d1 >> 5;
+        boolean hasHashes = (d1 & 16) != 0;
+        byte[][] hashes = null;
+        int[] depths = null;
+        if (hasHashes && trustHashes) {
+            int count = getHashesCount(levelMask);
+            hashes = new byte[count][32];
+            depths = new int[count];
+            for (int i = 0; i < count; i++) {
+                in.readFully(hashes[i], 0, 32);
+            }
+            for (int i = 0; i < count; i++) {
+                depths[i] = (int) in.readUint(2);
+            }
+        } else if (hasHashes) {
+            in.skip(getHashesCount(levelMask) * (32 + 2));
         }
 
-        for (int i = cells.size() - 1; i >= 0; i--) {
-            TempCell tc = cells.get(i);
-            List<Cell> refs = new ArrayList<>();
-            for (int r : tc.refs) {
-                if (cells.get(r).result == null) {
+        // Bits: each cell owns a right-sized copy of its data
+        BitString bits = BitString.EMPTY;
+        if (dataByteSize > 0) {
+            byte[] data = new byte[dataByteSize];
+            in.readFully(data, 0, dataByteSize);
+            int length = dataByteSize * 8;
+            if (paddingAdded) {
+                int last = data[dataByteSize - 1] & 0xFF;
+                if (last == 0) {
                     throw new IllegalStateException("Invalid BOC file");
                 }
-                refs.add(cells.get(r).result);
+                length -= Integer.numberOfTrailingZeros(last) + 1;
             }
+            bits = new BitString(data, 0, length);
+        }
 
-            Cell.Options opts = new Cell.Options();
-            opts.bits = tc.bits;
-            opts.exotic = tc.exotic;
-            opts.refs = refs;
-            tc.result = new Cell(opts);
+        // Refs
+        int[] refs = new int[refsCount];
+        for (int i = 0; i < refsCount; i++) {
+            refs[i] = readCount(in, sizeBytes);
+        }
+
+        return new TempCell(bits, refs, exotic, hashes, depths);
+    }
+
+    /* ============================================================ */
+    /* ======================= cell building ====================== */
+    /* ============================================================ */
+
+    private static List<Cell> buildCells(TempCell[] cells, int count, int[] root, Cell.DeserializeOptions opts) {
+
+        CellInterner interner = opts != null ? opts.interner : null;
+        CellResolver resolver = opts != null ? opts.resolver : null;
+        boolean trust = opts != null && Boolean.TRUE.equals(opts.trustStoredHashes);
+        boolean verify = trust && Boolean.TRUE.equals(opts.verifyStoredHashes);
+        if (interner != null && trust && !verify) {
+            // The interner would key cells by hashes nobody checked
+            throw new IllegalArgumentException("Interning trusted stored hashes requires verifyStoredHashes");
+        }
+
+        // Verified cells reach the interner only after the check
+        CellInterner buildInterner = verify ? null : interner;
+        if (opts != null && Boolean.TRUE.equals(opts.parallelHashing)) {
+            buildCellsParallel(cells, count, opts.executor, buildInterner, resolver);
+        } else {
+            for (int i = count - 1; i >= 0; i--) {
+                buildCell(cells, count, i, buildInterner, resolver);
+            }
+        }
+
+        if (verify) {
+            List<Cell> all = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                all.add(cells[i].result);
+            }
+            verifyCells(all, opts.executor);
+            if (interner != null) {
+                for (int i = count - 1; i >= 0; i--) {
+                    internCell(cells, i, interner);
+                }
+            }
         }
 
         List<Cell> roots = new ArrayList<>();
-        for (int r : boc.root) {
-            roots.add(cells.get(r).result);
+        for (int r : root) {
+            if (r < 0 || r >= count) {
+                throw new IllegalStateException("Invalid BOC file");
+            }
+            roots.add(cells[r].result);
         }
 
         return roots;
     }
 
+    private static void buildCell(TempCell[] cells, int count, int i, CellInterner interner, CellResolver resolver) {
+        TempCell tc = cells[i];
+        if (tc.absent) {
+            Cell c = resolveAbsent(tc.mask, tc.hashes, tc.depths, resolver);
+            tc.pruned = c.mask.value() != tc.mask;
+            tc.result = interner != null ? interner.intern(c) : c;
+            return;
+        }
+        List<Cell> refs = new ArrayList<>(tc.refs.length);
+        for (int r : tc.refs) {
+            if (r <= i || r >= count || cells[r].result == null) {
+                throw new IllegalStateException("Invalid BOC file");
+            }
+            refs.add(cells[r].result);
+            tc.pruned |= cells[r].pruned;
+        }
+
+        Cell.Options o = new Cell.Options();
+        o.bits = tc.bits;
+        o.exotic = tc.exotic;
+        o.refs = refs;
+        if (!tc.pruned) {
+            // Stored hashes describe the original subtree
+            o.hashes = tc.hashes;
+            o.depths = tc.depths;
+        }
+        Cell c = new Cell(o);
+        tc.result = interner != null ? interner.intern(c) : c;
+    }
+
+    /**
+     * Replace a built cell with its canonical instance, children first. A cell
+     * whose children were replaced is rebuilt over them; its hashes are the
+     * same, since interned children are equal to the ones they replace.
+     */
+    private static void internCell(TempCell[] cells, int i, CellInterner interner) {
+        TempCell tc = cells[i];
+        Cell c = tc.result;
+        List<Cell> refs = null;
+        for (int k = 0; k < tc.refs.length; k++) {
+            Cell ref = cells[tc.refs[k]].result;
+            if (ref != c.refs.get(k) && refs == null) {
+                refs = new ArrayList<>(c.refs.subList(0, k));
+            }
+            if (refs != null) {
+                refs.add(ref);
+            }
+        }
+        if (refs != null) {
+            Cell.Options o = new Cell.Options();
+            o.bits = c.bits;
+            o.exotic = c.isExotic();
+            o.refs = refs;
+            if (!tc.pruned) {
+                o.hashes = tc.hashes;
+                o.depths = tc.depths;
+            }
+            c = new Cell(o);
+        }
+        tc.result = interner.intern(c);
+    }
+
+    private static void checkAbsent(TempCell[] cells, int count, int expected) {
+        int absent = 0;
+        for (int i = 0; i < count; i++) {
+            if (cells[i].absent) {
+                absent++;
+            }
+        }
+        if (absent != expected) {
+            throw new IllegalStateException("Invalid BOC file");
+        }
+    }
+
+    /**
+     * Cell standing for an absent one: the resolved cell when the resolver knows
+     * it, otherwise a pruned branch one level up that keeps the stored hashes, so
+     * hashes of the parents below that level are those of the full tree.
+     *
+     * @param mask   level mask of the absent cell
+     * @param hashes its hashes of every significant level, ascending
+     */
+    static Cell resolveAbsent(int mask, byte[][] hashes, int[] depths, CellResolver resolver) {
+        LevelMask levelMask = LevelMask.of(mask);
+
+        if (resolver != null) {
+            Cell c = resolver.resolve(hashes[hashes.length - 1]);
+            if (c != null) {
+                boolean same = c.mask.value() == mask;
+                for (int level = 0, i = 0; same && level <= levelMask.level(); level++) {
+                    if (levelMask.isSignificant(level)) {
+                        same = Arrays.equals(hashes[i], c.hash(level)) && depths[i] == c.depth(level);
+                        i++;
+                    }
+                }
+                if (!same) {
+                    throw new IllegalStateException("Resolved cell does not match the absent cell hash");
+                }
+                return c;
+            }
+        }
+
+        int level = levelMask.level();
+        if (level >= 3) {
+            throw new IllegalStateException("Absent cell of level " + level + " cannot be pruned");
+        }
+        BitBuilder b = new BitBuilder(8 + 8 + hashes.length * (256 + 16));
+        b.writeUint(1, 8);
+        b.writeUint(mask | (1 << level), 8);
+        for (byte[] h : hashes) {
+            b.writeBuffer(h);
+        }
+        for (int d : depths) {
+            b.writeUint(d, 16);
+        }
+        Cell.Options o = new Cell.Options();
+        o.exotic = true;
+        o.bits = b.build();
+        return new Cell(o);
+    }
+
+    private static final int PARALLEL_CHUNK = 1024;
+
+    /**
+     * Build and hash cells height by height: cells of the same height only
+     * depend on lower ones, so every group is processed in parallel.
+     */
+    private static void buildCellsParallel(TempCell[] cells, int count, Executor executor, CellInterner interner, CellResolver resolver) {
+
+        // Height in the DAG, refs always point forward
+        int[] height = new int[count];
+        int maxHeight = 0;
+        for (int i = count - 1; i >= 0; i--) {
+            int h = 0;
+            for (int r : cells[i].refs) {
+                if (r <= i || r >= count) {
+                    throw new IllegalStateException("Invalid BOC file");
+                }
+                h = Math.max(h, height[r] + 1);
+            }
+            height[i] = h;
+            maxHeight = Math.max(maxHeight, h);
+        }
+
+        // Counting sort by height
+        int[] start = new int[maxHeight + 2];
+        for (int i = 0; i < count; i++) {
+            start[height[i] + 1]++;
+        }
+        for (int h = 0; h <= maxHeight; h++) {
+            start[h + 1] += start[h];
+        }
+        int[] order = new int[count];
+        int[] fill = java.util.Arrays.copyOf(start, maxHeight + 1);
+        for (int i = 0; i < count; i++) {
+            order[fill[height[i]]++] = i;
+        }
+
+        Executor ex = executor != null ? executor : ForkJoinPool.commonPool();
+        for (int h = 0; h <= maxHeight; h++) {
+            int from = start[h];
+            int to = start[h + 1];
+            if (to - from <= PARALLEL_CHUNK) {
+                buildAndHash(cells, count, order, from, to, interner, resolver);
+                continue;
+            }
+            List<CompletableFuture<Void>> tasks = new ArrayList<>();
+            for (int f = from; f < to; f += PARALLEL_CHUNK) {
+                int cf = f;
+                int ct = Math.min(to, f + PARALLEL_CHUNK);
+                tasks.add(CompletableFuture.runAsync(() -> buildAndHash(cells, count, order, cf, ct, interner, resolver), ex));
+            }
+            join(CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])));
+        }
+    }
+
+    private static void buildAndHash(TempCell[] cells, int count, int[] order, int from, int to, CellInterner interner, CellResolver resolver) {
+        for (int k = from; k < to; k++) {
+            buildCell(cells, count, order[k], interner, resolver);
+            cells[order[k]].result.hash(); // children are already hashed
+        }
+    }
+
+    private static void join(CompletableFuture<Void> f) {
+        try {
+            f.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    /* ============================================================ */
+    /* ======================= root hashes ======================== */
+    /* ============================================================ */
+
+    /**
+     * Representation hashes of the roots of a BOC, without building cells.
+     *
+     * Cell records are hashed in place from the last one to the first, so the
+     * only allocations are one 32-byte hash and 2-byte depth per significant
+     * level of each cell. Results are the same as {@code Cell.hash()} of the
+     * deserialized roots, exotic cells included. CRC32C is checked when present.
+     */
+    public static List<byte[]> computeRootHashes(byte[] src) {
+        return computeRootHashes(MemorySegment.ofArray(src));
+    }
+
+    /**
+     * Same as {@link #computeRootHashes(byte[])} for the remaining bytes of
+     * {@code src}; its position is not changed
+     */
+    public static List<byte[]> computeRootHashes(ByteBuffer src) {
+        return computeRootHashes(MemorySegment.ofBuffer(src.slice()));
+    }
+
+    private static List<byte[]> computeRootHashes(MemorySegment src) {
+        BocRecords boc = BocRecords.parse(src);
+        boc.verifyCrc32c();
+
+        RawCellHasher hasher = new RawCellHasher(boc);
+        long slots = hasher.slots();
+        if (slots * 32 > Integer.MAX_VALUE) {
+            throw new IllegalStateException("BOC is too large: " + boc.cells + " cells");
+        }
+        byte[] hashes = new byte[(int) slots * 32];
+        hasher.hashAll(MemorySegment.ofArray(hashes), MemorySegment.ofArray(new byte[(int) slots * 2]));
+
+        List<byte[]> res = new ArrayList<>(boc.root.length);
+        for (int r : boc.root) {
+            int at = hasher.slot(r, 3) * 32;
+            res.add(java.util.Arrays.copyOfRange(hashes, at, at + 32));
+        }
+        return res;
+    }
+
+    /* ============================================================ */
+    /* ======================= hash verification ================== */
+    /* ============================================================ */
+
+    private static final int VERIFY_CHUNK = 4096;
+
+    /**
+     * Recompute hashes and depths of every cell reachable from roots and
+     * compare them with the ones the cells carry (e.g. trusted stored hashes).
+     *
+     * Every cell is checked against the hashes of its children only, so the
+     * check is embarrassingly parallel and covers the whole graph.
+     *
+     * @throws IllegalStateException on the first mismatch
+     */
+    public static void verifyHashes(List<Cell> roots) {
+        verifyCells(collectCells(roots), null);
+    }
+
+    /**
+     * Same as {@link #verifyHashes(List)} but runs on the executor, e.g. to
+     * verify a trusted BOC in background while it is already being used.
+     */
+    public static CompletableFuture<Void> verifyHashesAsync(List<Cell> roots, Executor executor) {
+        Objects.requireNonNull(executor, "executor");
+        return CompletableFuture
+                .supplyAsync(() -> collectCells(roots), executor)
+                .thenCompose(all -> verifyCellsAsync(all, executor));
+    }
+
+    private static List<Cell> collectCells(List<Cell> roots) {
+        Set<Cell> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Cell> all = new ArrayList<>();
+        ArrayDeque<Cell> pending = new ArrayDeque<>(roots);
+        while (!pending.isEmpty()) {
+            Cell c = pending.pop();
+            if (seen.add(c)) {
+                all.add(c);
+                pending.addAll(c.refs);
+            }
+        }
+        return all;
+    }
+
+    private static void verifyCells(List<Cell> cells, Executor executor) {
+        if (executor == null) {
+            verifyRange(cells, 0, cells.size());
+            return;
+        }
+        join(verifyCellsAsync(cells, executor));
+    }
+
+    private static CompletableFuture<Void> verifyCellsAsync(List<Cell> cells, Executor executor) {
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < cells.size(); from += VERIFY_CHUNK) {
+            int f = from;
+            int to = Math.min(cells.size(), from + VERIFY_CHUNK);
+            tasks.add(CompletableFuture.runAsync(() -> verifyRange(cells, f, to), executor));
+        }
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private static void verifyRange(List<Cell> cells, int from, int to) {
+        for (int i = from; i < to; i++) {
+            Cell c = cells.get(i);
+            WonderCalculator.Result w = WonderCalculator.calculate(c.type, c.bits, c.refs);
+            for (int level = 0; level < 4; level++) {
+                if (w.depths[level] != c.depth(level) || !java.util.Arrays.equals(w.hashes[level], c.hash(level))) {
+                    throw new IllegalStateException("Invalid stored hash at level " + level);
+                }
+            }
+        }
+    }
+
     /* ============================================================ */
     /* ======================= serialization ====================== */
     /* ============================================================ */
 
     public static byte[] serializeBoc(Cell root, boolean idx, boolean crc32) {
+        return serializeBoc(List.of(root), idx, crc32, false, false);
+    }
 
-        List<TopologicalSort.Entry> all = TopologicalSort.sort(root);
+    /**
+     * Serialize several roots into one BOC. Cells shared between roots are stored once.
+     *
+     * @param cacheBits  mark cells referenced more than once in the index (requires idx)
+     * @param withHashes store hashes and depths of every level in each cell, so readers
+     *                   may skip rehashing (see {@link Cell.DeserializeOptions#trustStoredHashes})
+     */
+    public static byte[] serializeBoc(List<Cell> roots, boolean idx, boolean crc32, boolean cacheBits, boolean withHashes) {
+        return serializeBoc(roots, idx, crc32, cacheBits, withHashes, null);
+    }
+
+    /**
+     * Serialize a partial BOC: cells matching {@code absent} are stored by
+     * hashes and depths only and their subtrees are skipped, e.g. to send only
+     * the cells the receiver does not have yet. Readers fill them in through
+     * {@link Cell.DeserializeOptions#resolver}.
+     *
+     * @param absent cells to leave out, or null to store every cell; roots cannot be absent
+     */
+    public static byte[] serializeBoc(
+            List<Cell> roots,
+            boolean idx,
+            boolean crc32,
+            boolean cacheBits,
+            boolean withHashes,
+            Predicate<Cell> absent
+    ) {
+
+        if (roots.isEmpty()) {
+            throw new IllegalArgumentException("At least one root is required");
+        }
+        if (cacheBits && !idx) {
+            throw new IllegalArgumentException("Cache bits require index");
+        }
+
+        TopologicalSort.Sorted sorted = TopologicalSort.sortRoots(roots, absent);
+        List<TopologicalSort.Entry> all = sorted.cells;
         int cellsNum = all.size();
+        int absentNum = 0;
+        for (TopologicalSort.Entry e : all) {
+            if (e.absent) {
+                absentNum++;
+            }
+        }
 
         int sizeBytes = Math.max(
                 (int) Math.ceil(BitsForNumber.bitsForNumber(cellsNum, BitsForNumber.Mode.UINT) / 8.0),
@@ -198,17 +837,33 @@ public final class BocSerialization {
         int totalCellSize = 0;
         int[] index = new int[cellsNum];
         for (int i = 0; i < cellsNum; i++) {
-            totalCellSize += calcCellSize(all.get(i).cell, sizeBytes);
+            TopologicalSort.Entry e = all.get(i);
+            totalCellSize += e.absent
+                    ? 2 + e.cell.mask.hashCount() * (32 + 2)
+                    : calcCellSize(e.cell, sizeBytes, withHashes);
             index[i] = totalCellSize; // end offset
         }
 
+        // Cache bit: cell is referenced more than once
+        if (cacheBits) {
+            int[] refCount = new int[cellsNum];
+            for (TopologicalSort.Entry e : all) {
+                for (int r : e.refs) {
+                    refCount[r]++;
+                }
+            }
+            for (int i = 0; i < cellsNum; i++) {
+                index[i] = index[i] * 2 + (refCount[i] > 1 ? 1 : 0);
+            }
+        }
+
         int offsetBytes = Math.max(
-                (int) Math.ceil(BitsForNumber.bitsForNumber(totalCellSize, BitsForNumber.Mode.UINT) / 8.0),
+                (int) Math.ceil(BitsForNumber.bitsForNumber(cacheBits ? totalCellSize * 2 : totalCellSize, BitsForNumber.Mode.UINT) / 8.0),
                 1
         );
 
         int totalBits =
-                (4 + 1 + 1 + 3 * sizeBytes + offsetBytes + sizeBytes +
+                (4 + 1 + 1 + 3 * sizeBytes + offsetBytes + roots.size() * sizeBytes +
                         (idx ? cellsNum * offsetBytes : 0) +
                         totalCellSize + (crc32 ? 4 : 0)) * 8;
 
@@ -217,15 +872,17 @@ public final class BocSerialization {
         builder.writeUint(0xb5ee9c72L, 32);
         builder.writeBit(idx);
         builder.writeBit(crc32);
-        builder.writeBit(false);
+        builder.writeBit(cacheBits);
         builder.writeUint(0, 2);
         builder.writeUint(sizeBytes, 3);
         builder.writeUint(offsetBytes, 8);
         builder.writeUint(cellsNum, sizeBytes * 8);
-        builder.writeUint(1, sizeBytes * 8);
-        builder.writeUint(0, sizeBytes * 8);
+        builder.writeUint(roots.size(), sizeBytes * 8);
+        builder.writeUint(absentNum, sizeBytes * 8);
         builder.writeUint(totalCellSize, offsetBytes * 8);
-        builder.writeUint(0, sizeBytes * 8);
+        for (int r : sorted.roots) {
+            builder.writeUint(r, sizeBytes * 8);
+        }
 
         if (idx) {
             for (int i : index) {
@@ -234,44 +891,94 @@ public final class BocSerialization {
         }
 
         for (TopologicalSort.Entry e : all) {
-            writeCellToBuilder(e.cell, e.refs, sizeBytes, builder);
+            if (e.absent) {
+                writeAbsentToBuilder(e.cell, builder);
+            } else {
+                writeCellToBuilder(e.cell, e.refs, sizeBytes, withHashes, builder);
+            }
         }
 
-        if (crc32) {
-            byte[] crc = Crc32c.crc32c(builder.buffer());
-            builder.writeBuffer(crc);
+        if (!crc32) {
+            return builder.buffer();
         }
 
-        return builder.buffer();
+        // Reserve the trailer, then checksum the output in place
+        builder.writeUint(0, 32);
+        byte[] res = builder.buffer();
+        byte[] crc = Crc32c.crc32c(res, 0, res.length - 4);
+        System.arraycopy(crc, 0, res, res.length - 4, 4);
+        return res;
     }
 
-    private static void writeCellToBuilder(Cell cell, int[] refs, int sizeBytes, BitBuilder to) {
+    private static void writeCellToBuilder(Cell cell, int[] refs, int sizeBytes, boolean withHashes, BitBuilder to) {
         int d1 = Descriptor.getRefsDescriptor(cell.refs, cell.mask.value(), cell.type);
         int d2 = Descriptor.getBitsDescriptor(cell.bits);
-        to.writeUint(d1, 8);
+        to.writeUint(withHashes ? d1 | 16 : d1, 8);
         to.writeUint(d2, 8);
+        if (withHashes) {
+            writeHashes(cell, to);
+        }
         to.writeBuffer(PaddedBits.bitsToPaddedBuffer(cell.bits));
         for (int r : refs) {
             to.writeUint(r, sizeBytes * 8);
         }
     }
 
+    /**
+     * Absent cell: refs count 7 and the hashes flag, followed by hashes and depths only
+     */
+    private static void writeAbsentToBuilder(Cell cell, BitBuilder to) {
+        to.writeUint(7 | 16 | cell.mask.value() << 5, 8);
+        to.writeUint(0, 8);
+        writeHashes(cell, to);
+    }
+
+    // hashes then depths of every significant level, ascending
+    private static void writeHashes(Cell cell, BitBuilder to) {
+        for (int level = 0; level <= cell.mask.level(); level++) {
+            if (cell.mask.isSignificant(level)) {
+                to.writeBuffer(cell.hash(level));
+            }
+        }
+        for (int level = 0; level <= cell.mask.level(); level++) {
+            if (cell.mask.isSignificant(level)) {
+                to.writeUint(cell.depth(level), 16);
+            }
+        }
+    }
+
     /* ============================================================ */
     /* ======================= structs ============================ */
     /* ============================================================ */
 
-    private record ReadCellResult(BitString bits, int[] refs, boolean exotic) {}
-
     private static final class TempCell {
         final BitString bits;
         final int[] refs;
         final boolean exotic;
+        final byte[][] hashes; // stored hashes, only when trusted or absent
+        final int[] depths;
         Cell result;
+        boolean pruned; // subtree has an unresolved absent cell, so its level is raised
+
+        final boolean absent; // only hashes, depths and mask are set
+        final int mask;
 
-        TempCell(BitString bits, int[] refs, boolean exotic) {
+        TempCell(BitString bits, int[] refs, boolean exotic, byte[][] hashes, int[] depths) {
+            this(bits, refs, exotic, hashes, depths, false, 0);
+        }
+
+        private TempCell(BitString bits, int[] refs, boolean exotic, byte[][] hashes, int[] depths, boolean absent, int mask) {
             this.bits = bits;
             this.refs = refs;
             this.exotic = exotic;
+            this.hashes = hashes;
+            this.depths = depths;
+            this.absent = absent;
+            this.mask = mask;
+        }
+
+        static TempCell absent(int mask, byte[][] hashes, int[] depths) {
+            return new TempCell(BitString.EMPTY, new int[0], false, hashes, depths, true, mask);
         }
     }
 
@@ -293,10 +1000,4 @@ public final class BocSerialization {
             this.root = root;
         }
     }
-
-    private static byte[] slice(byte[] src, int from, int to) {
-        byte[] r = new byte[to - from];
-        System.arraycopy(src, from, r, 0, r.length);
-        return r;
-    }
 }
@@ -0,0 +1,445 @@
+package dev.quark.ton.core.boc.cell.serialization;
+
+import dev.quark.ton.core.utils.Crc32c;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+
+/**
+ * Structural check of an untrusted BOC without building cells.
+ *
+ * One scan over the records checks the header and limits, the offset index,
+ * descriptors and padding, forward-only refs, the shape of exotic cells,
+ * level masks and CRC32C. Nothing is hashed, and the only allocation is one
+ * {@code int} per cell to track its depth and level mask, so hostile input is
+ * rejected early and cheaply.
+ * A BOC that passes may still fail to deserialize, e.g. on a merkle hash
+ * mismatch.
+ */
+public final class BocValidator {
+
+    /**
+     * Limits for the validated BOC. The defaults suit external messages.
+     */
+    public static final class Limits {
+        /** Size of the whole BOC in bytes */
+        public long maxBytes = 1 << 24;
+        public int maxCells = 1 << 16;
+        public int maxRoots = 1 << 10;
+        /** Longest chain of refs; a single cell has depth 0 */
+        public int maxDepth = 1024;
+        /** Data bits of all cells together */
+        public long maxBits = Long.MAX_VALUE;
+    }
+
+    private final Limits limits;
+
+    public BocValidator() {
+        this(new Limits());
+    }
+
+    public BocValidator(Limits limits) {
+        if (limits.maxBytes < 0 || limits.maxCells < 0 || limits.maxRoots < 0
+                || limits.maxDepth < 0 || limits.maxBits < 0) {
+            throw new IllegalArgumentException("Limits must be >= 0");
+        }
+        this.limits = limits;
+    }
+
+    /* ============================================================ */
+    /* ======================= validation ========================= */
+    /* ============================================================ */
+
+    /**
+     * @throws IllegalStateException describing the first problem found
+     */
+    public void validate(byte[] src) {
+        validate(MemorySegment.ofArray(src));
+    }
+
+    /**
+     * Validate the remaining bytes of {@code src}; its position is not changed
+     */
+    public void validate(ByteBuffer src) {
+        validate(MemorySegment.ofBuffer(src.slice()));
+    }
+
+    public void validate(MemorySegment src) {
+        new Scan(src).run();
+    }
+
+    public boolean isValid(byte[] src) {
+        try {
+            validate(src);
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    /* ============================================================ */
+    /* ======================= scan =============================== */
+    /* ============================================================ */
+
+    private final class Scan {
+
+        private final MemorySegment src;
+        private final long length;
+
+        Scan(MemorySegment src) {
+            this.src = src;
+            this.length = src.byteSize();
+        }
+
+        void run() {
+            if (length > limits.maxBytes) {
+                throw invalid("size " + length + " exceeds " + limits.maxBytes + " bytes");
+            }
+
+            // Header
+            long pos = 0;
+            need(pos, 6);
+            long magic = readUint(pos, 4);
+            pos += 4;
+
+            boolean hasIdx;
+            boolean hasCrc32c;
+            boolean hasCacheBits;
+            int size;
+            if (magic == 0x68ff65f3L || magic == 0xacc3a728L) {
+                hasIdx = true;
+                hasCrc32c = magic == 0xacc3a728L;
+                hasCacheBits = false;
+                size = readByte(pos++);
+            } else if (magic == 0xb5ee9c72L) {
+                int flags = readByte(pos++);
+                hasIdx = (flags & 0x80) != 0;
+                hasCrc32c = (flags & 0x40) != 0;
+                hasCacheBits = (flags & 0x20) != 0;
+                if ((flags & 0x18) != 0) {
+                    throw invalid("reserved flags are set");
+                }
+                if (hasCacheBits && !hasIdx) {
+                    throw invalid("cache bits without index");
+                }
+                size = flags & 0x07;
+            } else {
+                throw invalid("magic " + Long.toHexString(magic));
+            }
+
+            int offBytes = readByte(pos++);
+            if (size < 1 || size > 4) {
+                throw invalid("ref size " + size);
+            }
+            if (offBytes < 1 || offBytes > 8) {
+                throw invalid("offset size " + offBytes);
+            }
+
+            need(pos, 3L * size + offBytes);
+            long cells = readUint(pos, size);
+            pos += size;
+            long roots = readUint(pos, size);
+            pos += size;
+            long absent = readUint(pos, size);
+            pos += size;
+            long totalCellSize = readUint(pos, offBytes);
+            pos += offBytes;
+
+            if (cells > limits.maxCells) {
+                throw invalid(cells + " cells exceed " + limits.maxCells);
+            }
+            if (cells > Integer.MAX_VALUE >> 3) {
+                throw invalid("too many cells: " + cells);
+            }
+            if (roots < 1 || roots > cells) {
+                throw invalid(roots + " roots for " + cells + " cells");
+            }
+            if (roots > limits.maxRoots) {
+                throw invalid(roots + " roots exceed " + limits.maxRoots);
+            }
+            if (absent > cells - roots) {
+                throw invalid(absent + " absent cells for " + cells + " cells");
+            }
+
+            if (magic == 0xb5ee9c72L) {
+                need(pos, roots * size);
+                for (int i = 0; i < roots; i++) {
+                    long r = readUint(pos, size);
+                    if (r >= cells) {
+                        throw invalid("root " + r + " is out of bounds");
+                    }
+                    pos += size;
+                }
+            } else if (roots != 1) {
+                throw invalid(roots + " roots in a single-root format");
+            }
+
+            long indexStart = pos;
+            if (hasIdx) {
+                pos += cells * offBytes;
+            }
+            long dataStart = pos;
+            long dataEnd = dataStart + totalCellSize;
+            if (totalCellSize < 0 || dataEnd < dataStart || dataEnd + (hasCrc32c ? 4 : 0) != length) {
+                throw invalid("size " + length + " does not match the header");
+            }
+
+            // Records; a depth is below the cell count, so it fits next to the level mask
+            int n = (int) cells;
+            int[] info = new int[n]; // depth << 3 | level mask
+            long bits = 0;
+            long at = 0;
+            long absentCount = 0;
+            for (int i = 0; i < n; i++) {
+                long start = dataStart + at;
+                if (start + 2 > dataEnd) {
+                    throw invalid("cell " + i + " is truncated");
+                }
+                int d1 = readByte(start);
+                int d2 = readByte(start + 1);
+                int refs = d1 & 7;
+                if (refs == 7) {
+                    // Absent cell: hashes and depths only
+                    if ((d1 & 16) == 0 || d2 != 0) {
+                        throw invalid("absent cell " + i + " must have hashes only");
+                    }
+                    refs = 0;
+                    absentCount++;
+                } else if (refs > 4) {
+                    throw invalid("cell " + i + " has " + refs + " refs");
+                }
+                long data = start + 2;
+                if ((d1 & 16) != 0) {
+                    data += (long) BocRecords.hashesCount(d1 >> 5) * (32 + 2);
+                }
+                int dataBytes = (d2 + 1) / 2;
+                long end = data + dataBytes + (long) refs * size;
+                if (end > dataEnd) {
+                    throw invalid("cell " + i + " is truncated");
+                }
+
+                int bitsLength = dataBytes * 8;
+                if ((d2 & 1) != 0) {
+                    int last = readByte(data + dataBytes - 1);
+                    if (last == 0) {
+                        throw invalid("cell " + i + " has no padding bit");
+                    }
+                    bitsLength -= Integer.numberOfTrailingZeros(last) + 1;
+                }
+                bits += bitsLength;
+                if (bits > limits.maxBits) {
+                    throw invalid("data bits exceed " + limits.maxBits);
+                }
+
+                int mask = d1 >> 5;
+                if ((d1 & 8) != 0) {
+                    if (bitsLength < 8) {
+                        throw new IllegalStateException("Exotic cell must have a type, got " + bitsLength + " bits");
+                    }
+                    int type = readByte(data);
+                    int pruned = checkExotic(type, bitsLength, refs, bitsLength >= 16 ? readByte(data + 1) : 0);
+                    // Old config proofs store 280-bit pruned branches with an empty mask
+                    boolean legacy = type == 1 && bitsLength == 280;
+                    if ((type == 1 && !legacy || type == 2) && mask != pruned) {
+                        throw invalid("cell " + i + " has level mask " + mask + ", expected " + pruned);
+                    }
+                }
+                info[i] |= mask;
+
+                for (int r = 0; r < refs; r++) {
+                    long child = readUint(data + dataBytes + (long) r * size, size);
+                    if (child <= i || child >= cells) {
+                        throw invalid("cell " + i + " refers to " + child);
+                    }
+                    int d = (info[i] >>> 3) + 1;
+                    if (d > limits.maxDepth) {
+                        throw invalid("depth exceeds " + limits.maxDepth);
+                    }
+                    if (d > info[(int) child] >>> 3) {
+                        info[(int) child] = d << 3;
+                    }
+                }
+
+                at = end - dataStart;
+                if (hasIdx) {
+                    long entry = readUint(indexStart + (long) i * offBytes, offBytes);
+                    if ((hasCacheBits ? entry >>> 1 : entry) != at) {
+                        throw invalid("index entry " + i + " does not match cell end " + at);
+                    }
+                }
+            }
+            if (at != totalCellSize) {
+                throw invalid("cells take " + at + " of " + totalCellSize + " bytes");
+            }
+            if (absentCount != absent) {
+                throw invalid(absentCount + " absent cells, header says " + absent);
+            }
+
+            checkLevelMasks(dataStart, size, n, info);
+
+            if (hasCrc32c) {
+                checkCrc32c(dataEnd);
+            }
+        }
+
+        /**
+         * Second walk over the records, now that every mask is known: an
+         * ordinary cell has the OR of its children's level masks, a merkle
+         * cell that OR shifted down by one level
+         */
+        private void checkLevelMasks(long dataStart, int size, int n, int[] info) {
+            long at = 0;
+            for (int i = 0; i < n; i++) {
+                long start = dataStart + at;
+                int d1 = readByte(start);
+                int d2 = readByte(start + 1);
+                int refs = d1 & 7;
+                long data = start + 2;
+                if ((d1 & 16) != 0) {
+                    data += (long) BocRecords.hashesCount(d1 >> 5) * (32 + 2);
+                }
+                int dataBytes = (d2 + 1) / 2;
+
+                if (refs != 7) {
+                    boolean exotic = (d1 & 8) != 0;
+                    int type = exotic ? readByte(data) : 0;
+                    if (!exotic || type == 3 || type == 4) {
+                        int children = 0;
+                        for (int r = 0; r < refs; r++) {
+                            children |= info[(int) readUint(data + dataBytes + (long) r * size, size)] & 7;
+                        }
+                        int expected = exotic ? children >> 1 : children;
+                        if ((d1 >> 5) != expected) {
+                            throw invalid("cell " + i + " has level mask " + (d1 >> 5) + ", expected " + expected);
+                        }
+                    }
+                } else {
+                    refs = 0;
+                }
+                at = data + dataBytes + (long) refs * size - dataStart;
+            }
+        }
+
+        private void checkCrc32c(long end) {
+            Crc32c.Digest crc = new Crc32c.Digest();
+            byte[] chunk = new byte[(int) Math.min(64 * 1024, end)];
+            for (long pos = 0; pos < end; ) {
+                int n = (int) Math.min(chunk.length, end - pos);
+                MemorySegment.copy(src, ValueLayout.JAVA_BYTE, pos, chunk, 0, n);
+                crc.update(chunk, 0, n);
+                pos += n;
+            }
+            if (crc.value() != Integer.reverseBytes((int) readUint(end, 4))) {
+                throw new IllegalStateException("Invalid CRC32C");
+            }
+        }
+
+        private void need(long pos, long bytes) {
+            if (pos + bytes > length) {
+                throw invalid("truncated header");
+            }
+        }
+
+        private int readByte(long pos) {
+            return src.get(ValueLayout.JAVA_BYTE, pos) & 0xFF;
+        }
+
+        private long readUint(long pos, int bytes) {
+            long res = 0;
+            for (int i = 0; i < bytes; i++) {
+                res = (res << 8) | readByte(pos + i);
+            }
+            return res;
+        }
+    }
+
+    private static IllegalStateException invalid(String reason) {
+        return new IllegalStateException("Invalid BOC file: " + reason);
+    }
+
+    /* ============================================================ */
+    /* ======================= exotic shapes ====================== */
+    /* ============================================================ */
+
+    /**
+     * Check the layout of an exotic cell as {@code ResolveExotic} does,
+     * short of comparing merkle hashes
+     *
+     * @param mask second data byte, the level mask of a pruned branch
+     * @return level mask of a pruned branch, 0 otherwise
+     */
+    static int checkExotic(int type, int bitsLength, int refsCount, int mask) {
+
+        if (type == 1) {
+
+            if (refsCount != 0) {
+                throw new IllegalStateException(
+                        "Pruned Branch cell can't has refs, got \"" + refsCount + "\""
+                );
+            }
+
+            // Special case for config proof
+            if (bitsLength == 280) {
+                return 1;
+            }
+
+            int level = 32 - Integer.numberOfLeadingZeros(mask);
+            if (level < 1 || level > 3) {
+                throw new IllegalStateException(
+                        "Pruned Branch cell level must be >= 1 and <= 3, got \"" + level + "/" + mask + "\""
+                );
+            }
+            int size = 8 + 8 + (Integer.bitCount(mask & ((1 << (level - 1)) - 1)) + 1) * (256 + 16);
+            if (bitsLength != size) {
+                throw new IllegalStateException(
+                        "Pruned branch cell must have exactly " + size + " bits, got \"" + bitsLength + "\""
+                );
+            }
+            if (8 + 8 + level * (256 + 16) > bitsLength) {
+                throw new IllegalStateException("Pruned branch cell is too short for level " + level);
+            }
+            return mask;
+
+        } else if (type == 2) {
+
+            if (bitsLength != 8 + 256) {
+                throw new IllegalStateException(
+                        "Library cell must have exactly (8 + 256) bits, got \"" + bitsLength + "\""
+                );
+            }
+            return 0;
+
+        } else if (type == 3) {
+
+            if (bitsLength != 8 + 256 + 16) {
+                throw new IllegalStateException(
+                        "Merkle Proof cell must have exactly (8 + 256 + 16) bits, got \"" + bitsLength + "\""
+                );
+            }
+            if (refsCount != 1) {
+                throw new IllegalStateException(
+                        "Merkle Proof cell must have exactly 1 ref, got \"" + refsCount + "\""
+                );
+            }
+            return 0;
+
+        } else if (type == 4) {
+
+            if (bitsLength != 8 + 2 * (256 + 16)) {
+                throw new IllegalStateException(
+                        "Merkle Update cell must have exactly (8 + (2 * (256 + 16))) bits, got \"" + bitsLength + "\""
+                );
+            }
+            if (refsCount != 2) {
+                throw new IllegalStateException(
+                        "Merkle Update cell must have exactly 2 refs, got \"" + refsCount + "\""
+                );
+            }
+            return 0;
+
+        } else {
+            throw new IllegalStateException("Invalid exotic cell type: " + type);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package dev.quark.ton.core.boc.cell.serialization;
+
+import dev.quark.ton.core.boc.Cell;
+
+/**
+ * Cells built so far by one materialization, by cell index.
+ *
+ * Open addressing over parallel arrays, sized by the subtree being built and
+ * not by the whole BOC, so materializing a small subtree of a huge BOC stays
+ * cheap. Not thread-safe; meant to live for a single walk.
+ */
+final class BuiltCells {
+
+    private int[] keys = new int[16];   // cell index + 1, 0 is a free slot
+    private Cell[] values = new Cell[16];
+    private int size;
+
+    Cell get(int index) {
+        int mask = keys.length - 1;
+        for (int slot = spread(index) & mask; ; slot = (slot + 1) & mask) {
+            int k = keys[slot];
+            if (k == 0) {
+                return null;
+            }
+            if (k == index + 1) {
+                return values[slot];
+            }
+        }
+    }
+
+    void put(int index, Cell cell) {
+        if (2 * (size + 1) > keys.length) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int slot = spread(index) & mask;
+        while (keys[slot] != 0 && keys[slot] != index + 1) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == 0) {
+            keys[slot] = index + 1;
+            size++;
+        }
+        values[slot] = cell;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Cell[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new Cell[oldKeys.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i] - 1, oldValues[i]);
+            }
+        }
+    }
+
+    private static int spread(int index) {
+        int h = index * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,632 @@
+package dev.quark.ton.core.boc.cell.serialization;
+
+import dev.quark.ton.core.boc.BitString;
+import dev.quark.ton.core.boc.Cell;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Whole BOC decoded into a single off-heap segment, cells addressed by index.
+ *
+ * Every cell gets a fixed 32-byte record (data offset, hash slot, bit length,
+ * refs and level mask), followed by the data bytes of all cells and the hashes
+ * and depths of every significant level, all computed once while loading.
+ * Cells are read through int indexes or the {@link CellRef} and {@link Slice}
+ * views, so walking a graph allocates no per-cell objects on the heap.
+ * Memory is released by {@link #close()}; views must not be used afterwards.
+ */
+public final class CellArena implements AutoCloseable {
+
+    private static final ValueLayout.OfLong LONG_BE =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfShort SHORT_BE =
+            ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /* ===== record layout ===== */
+    private static final int RECORD = 32;
+    private static final int DATA = 0;   // long: offset of data bytes in the segment
+    private static final int SLOT = 8;   // int: first hash slot
+    private static final int BITS = 12;  // short: data length in bits
+    private static final int D1 = 14;    // byte: refs count | exotic flag | absent flag
+    private static final int MASK = 15;  // byte: level mask
+    private static final int REFS = 16;  // 4 * int: child indexes
+
+    private final Arena arena;
+    private final MemorySegment segment;
+    private final int cells;
+    private final int[] root;
+    private final long hashesStart;
+    private final long depthsStart;
+
+    private CellArena(BocRecords boc) {
+        boc.verifyCrc32c();
+        RawCellHasher hasher = new RawCellHasher(boc);
+
+        long dataSize = 0;
+        for (int i = 0; i < boc.cells; i++) {
+            dataSize += boc.dataBytes(i);
+        }
+
+        // Table, data (with slack for word reads), hashes, depths
+        long dataStart = (long) boc.cells * RECORD;
+        this.hashesStart = dataStart + dataSize + 8;
+        this.depthsStart = hashesStart + (long) hasher.slots() * 32;
+        long total = depthsStart + (long) hasher.slots() * 2;
+
+        this.arena = Arena.ofShared();
+        try {
+            this.segment = arena.allocate(total, 8);
+            hasher.hashAll(
+                    segment.asSlice(hashesStart, (long) hasher.slots() * 32),
+                    segment.asSlice(depthsStart, (long) hasher.slots() * 2)
+            );
+
+            long data = dataStart;
+            for (int i = 0; i < boc.cells; i++) {
+                long rec = (long) i * RECORD;
+                int d1 = boc.d1(i);
+                int flags = boc.isAbsent(i) ? 16 : d1 & 15;
+                int bytes = boc.dataBytes(i);
+                segment.set(ValueLayout.JAVA_LONG_UNALIGNED, rec + DATA, data);
+                segment.set(ValueLayout.JAVA_INT_UNALIGNED, rec + SLOT, hasher.slot(i, 0));
+                segment.set(ValueLayout.JAVA_SHORT_UNALIGNED, rec + BITS, (short) boc.bitsLength(i));
+                segment.set(ValueLayout.JAVA_BYTE, rec + D1, (byte) flags);
+                segment.set(ValueLayout.JAVA_BYTE, rec + MASK, (byte) hasher.mask(i));
+                for (int r = 0; r < boc.refsCount(i); r++) {
+                    segment.set(ValueLayout.JAVA_INT_UNALIGNED, rec + REFS + 4L * r, boc.ref(i, r));
+                }
+                MemorySegment.copy(boc.segment, boc.dataOffset(i), segment, data, bytes);
+                data += bytes;
+            }
+        } catch (RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+
+        this.cells = boc.cells;
+        this.root = boc.root;
+    }
+
+    /* ============================================================ */
+    /* ======================= factories ========================== */
+    /* ============================================================ */
+
+    public static CellArena load(byte[] boc) {
+        return load(MemorySegment.ofArray(boc));
+    }
+
+    /**
+     * Decode a BOC held in {@code boc}; the source is not referenced afterwards
+     */
+    public static CellArena load(MemorySegment boc) {
+        return new CellArena(BocRecords.parse(boc));
+    }
+
+    /**
+     * Decode a BOC file. The file is mapped only while loading.
+     */
+    public static CellArena open(Path path) throws IOException {
+        try (Arena mapping = Arena.ofConfined();
+             FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            return load(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size(), mapping));
+        }
+    }
+
+    /* ============================================================ */
+    /* ======================= properties ========================= */
+    /* ============================================================ */
+
+    public int cellsCount() {
+        return cells;
+    }
+
+    public int rootsCount() {
+        return root.length;
+    }
+
+    /**
+     * Index of the {@code i}-th root
+     */
+    public int rootIndex(int i) {
+        return root[i];
+    }
+
+    public CellRef root() {
+        return root(0);
+    }
+
+    public CellRef root(int i) {
+        return new CellRef(root[i]);
+    }
+
+    public List<CellRef> roots() {
+        List<CellRef> res = new ArrayList<>(root.length);
+        for (int r : root) {
+            res.add(new CellRef(r));
+        }
+        return res;
+    }
+
+    public CellRef cell(int index) {
+        checkIndex(index);
+        return new CellRef(index);
+    }
+
+    /**
+     * Off-heap bytes held by this arena
+     */
+    public long byteSize() {
+        return segment.byteSize();
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    /* ============================================================ */
+    /* ======================= cells by index ===================== */
+    /* ============================================================ */
+
+    public int bitsLength(int cell) {
+        return segment.get(ValueLayout.JAVA_SHORT_UNALIGNED, record(cell) + BITS);
+    }
+
+    public int refsCount(int cell) {
+        return segment.get(ValueLayout.JAVA_BYTE, record(cell) + D1) & 7;
+    }
+
+    public boolean isExotic(int cell) {
+        return (segment.get(ValueLayout.JAVA_BYTE, record(cell) + D1) & 8) != 0;
+    }
+
+    /**
+     * Cell left out of a partial BOC: it has hashes and depths, but no bits or refs
+     */
+    public boolean isAbsent(int cell) {
+        return (segment.get(ValueLayout.JAVA_BYTE, record(cell) + D1) & 16) != 0;
+    }
+
+    public int levelMask(int cell) {
+        return segment.get(ValueLayout.JAVA_BYTE, record(cell) + MASK);
+    }
+
+    /**
+     * Index of the {@code i}-th child of {@code cell}
+     */
+    public int ref(int cell, int i) {
+        if (i < 0 || i >= refsCount(cell)) {
+            throw new IllegalArgumentException("Ref index " + i + " is out of bounds");
+        }
+        return segment.get(ValueLayout.JAVA_INT_UNALIGNED, record(cell) + REFS + 4L * i);
+    }
+
+    public byte[] hash(int cell) {
+        return hash(cell, 3);
+    }
+
+    public byte[] hash(int cell, int level) {
+        byte[] res = new byte[32];
+        copyHash(cell, level, res, 0);
+        return res;
+    }
+
+    /**
+     * Copy the hash of {@code cell} at {@code level} into {@code dst} without allocating
+     */
+    public void copyHash(int cell, int level, byte[] dst, int dstOffset) {
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, hashesStart + (long) slot(cell, level) * 32, dst, dstOffset, 32);
+    }
+
+    public int depth(int cell) {
+        return depth(cell, 3);
+    }
+
+    public int depth(int cell, int level) {
+        return segment.get(SHORT_BE, depthsStart + (long) slot(cell, level) * 2) & 0xFFFF;
+    }
+
+    /**
+     * Data bits of {@code cell}, copied to the heap
+     */
+    public BitString bits(int cell) {
+        int length = bitsLength(cell);
+        if (length == 0) {
+            return BitString.EMPTY;
+        }
+        byte[] data = new byte[(length + 7) / 8];
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, dataOffset(cell), data, 0, data.length);
+        return new BitString(data, 0, length);
+    }
+
+    public Slice beginParse(int cell) {
+        checkIndex(cell);
+        return new Slice(cell);
+    }
+
+    /**
+     * Materialize {@code cell} with its whole subtree on the heap, reusing the
+     * hashes of the arena. Cells shared between subtrees are built once per
+     * call, absent cells become pruned branches.
+     */
+    public Cell toCell(int cell) {
+        checkIndex(cell);
+        BuiltCells built = new BuiltCells();
+
+        // Children first, iteratively, so long chains do not exhaust the stack
+        int[] pending = new int[16];
+        int top = 0;
+        pending[top++] = cell;
+        while (top > 0) {
+            int c = pending[top - 1];
+            if (built.get(c) != null) {
+                top--;
+                continue;
+            }
+            boolean ready = true;
+            for (int i = 0; i < refsCount(c); i++) {
+                int r = ref(c, i);
+                if (built.get(r) == null) {
+                    if (top == pending.length) {
+                        pending = Arrays.copyOf(pending, top * 2);
+                    }
+                    pending[top++] = r;
+                    ready = false;
+                }
+            }
+            if (ready) {
+                top--;
+                built.put(c, build(c, built));
+            }
+        }
+        return built.get(cell);
+    }
+
+    /**
+     * Heap cell of {@code cell}; its children are already in {@code built}
+     */
+    private Cell build(int cell, BuiltCells built) {
+        int refs = refsCount(cell);
+        List<Cell> children = new ArrayList<>(refs);
+        boolean trusted = true;
+        for (int i = 0; i < refs; i++) {
+            int r = ref(cell, i);
+            Cell child = built.get(r);
+            // A pruned placeholder raises the level, so hashes above it are recomputed
+            trusted &= child.mask.value() == levelMask(r);
+            children.add(child);
+        }
+
+        int count = Integer.bitCount(levelMask(cell)) + 1;
+        int first = segment.get(ValueLayout.JAVA_INT_UNALIGNED, record(cell) + SLOT);
+        byte[][] hashes = new byte[count][];
+        int[] depths = new int[count];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = new byte[32];
+            MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, hashesStart + (long) (first + i) * 32, hashes[i], 0, 32);
+            depths[i] = segment.get(SHORT_BE, depthsStart + (long) (first + i) * 2) & 0xFFFF;
+        }
+        if (isAbsent(cell)) {
+            return BocSerialization.resolveAbsent(levelMask(cell), hashes, depths, null);
+        }
+        Cell.Options o = new Cell.Options();
+        o.bits = bits(cell);
+        o.refs = children;
+        o.exotic = isExotic(cell);
+        if (trusted) {
+            o.hashes = hashes;
+            o.depths = depths;
+        }
+        return new Cell(o);
+    }
+
+    /* ============================================================ */
+    /* ======================= internals ========================== */
+    /* ============================================================ */
+
+    private long record(int cell) {
+        checkIndex(cell);
+        return (long) cell * RECORD;
+    }
+
+    private long dataOffset(int cell) {
+        return segment.get(ValueLayout.JAVA_LONG_UNALIGNED, record(cell) + DATA);
+    }
+
+    private int slot(int cell, int level) {
+        int mask = levelMask(cell);
+        int first = segment.get(ValueLayout.JAVA_INT_UNALIGNED, record(cell) + SLOT);
+        return first + Integer.bitCount(mask & ((1 << Math.min(level, 3)) - 1));
+    }
+
+    /**
+     * Read {@code bits} (0..64) bits at bit {@code offset} of the data starting at {@code data}
+     */
+    private long readBits(long data, int offset, int bits) {
+        if (bits == 0) {
+            return 0;
+        }
+        long at = data + (offset >>> 3);
+        int shift = offset & 7;
+        long w = segment.get(LONG_BE, at) << shift;
+        if (shift + bits <= 64) {
+            return w >>> (64 - bits);
+        }
+        int extra = shift + bits - 64;
+        int next = segment.get(ValueLayout.JAVA_BYTE, at + 8) & 0xFF;
+        return (w >>> (64 - bits)) | (next >>> (8 - extra));
+    }
+
+    private void checkIndex(int cell) {
+        if (cell < 0 || cell >= cells) {
+            throw new IllegalArgumentException("Cell index " + cell + " is out of bounds");
+        }
+    }
+
+    /* ============================================================ */
+    /* ======================= views ============================== */
+    /* ============================================================ */
+
+    /**
+     * Cell of the arena; a thin handle over its index
+     */
+    public final class CellRef {
+
+        private final int index;
+
+        private CellRef(int index) {
+            this.index = index;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        public int bitsLength() {
+            return CellArena.this.bitsLength(index);
+        }
+
+        public BitString bits() {
+            return CellArena.this.bits(index);
+        }
+
+        public int refsCount() {
+            return CellArena.this.refsCount(index);
+        }
+
+        public CellRef ref(int i) {
+            return new CellRef(CellArena.this.ref(index, i));
+        }
+
+        public boolean isExotic() {
+            return CellArena.this.isExotic(index);
+        }
+
+        public boolean isAbsent() {
+            return CellArena.this.isAbsent(index);
+        }
+
+        public int levelMask() {
+            return CellArena.this.levelMask(index);
+        }
+
+        public byte[] hash() {
+            return CellArena.this.hash(index);
+        }
+
+        public byte[] hash(int level) {
+            return CellArena.this.hash(index, level);
+        }
+
+        public int depth() {
+            return CellArena.this.depth(index);
+        }
+
+        public int depth(int level) {
+            return CellArena.this.depth(index, level);
+        }
+
+        public Slice beginParse() {
+            return new Slice(index);
+        }
+
+        public Cell toCell() {
+            return CellArena.this.toCell(index);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CellRef r && r.arena() == CellArena.this && r.index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+
+        @Override
+        public String toString() {
+            return "CellRef{" + index + "}";
+        }
+
+        private CellArena arena() {
+            return CellArena.this;
+        }
+    }
+
+    /**
+     * Reader over the bits and refs of one arena cell
+     */
+    public final class Slice {
+
+        private final int cell;
+        private final long data;
+        private final int length;
+        private final int refs;
+        private int offset;
+        private int refsOffset;
+
+        private Slice(int cell) {
+            this.cell = cell;
+            this.data = dataOffset(cell);
+            this.length = bitsLength(cell);
+            this.refs = refsCount(cell);
+        }
+
+        public int remainingBits() {
+            return length - offset;
+        }
+
+        public int offsetBits() {
+            return offset;
+        }
+
+        public int remainingRefs() {
+            return refs - refsOffset;
+        }
+
+        public Slice skip(int bits) {
+            checkRange(bits);
+            offset += bits;
+            return this;
+        }
+
+        /* ==================== bits ==================== */
+
+        public boolean loadBit() {
+            boolean r = preloadBit();
+            offset++;
+            return r;
+        }
+
+        public boolean preloadBit() {
+            checkRange(1);
+            return readBits(data, offset, 1) != 0;
+        }
+
+        public long loadUint(int bits) {
+            long r = preloadUint(bits);
+            offset += bits;
+            return r;
+        }
+
+        public long preloadUint(int bits) {
+            checkWidth(bits);
+            checkRange(bits);
+            long r = readBits(data, offset, bits);
+            if (bits == 64 && r < 0) {
+                throw new ArithmeticException("BigInteger out of long range");
+            }
+            return r;
+        }
+
+        public long loadInt(int bits) {
+            long r = preloadInt(bits);
+            offset += bits;
+            return r;
+        }
+
+        public long preloadInt(int bits) {
+            checkWidth(bits);
+            checkRange(bits);
+            if (bits == 0) {
+                return 0;
+            }
+            return (readBits(data, offset, bits) << (64 - bits)) >> (64 - bits);
+        }
+
+        public BitString loadBits(int bits) {
+            BitString r = preloadBits(bits);
+            offset += bits;
+            return r;
+        }
+
+        public BitString preloadBits(int bits) {
+            checkRange(bits);
+            if (bits == 0) {
+                return BitString.EMPTY;
+            }
+            byte[] res = new byte[(bits + 7) / 8];
+            int at = 0;
+            for (int i = 0; i < res.length; i++) {
+                int n = Math.min(8, bits - at);
+                res[i] = (byte) (readBits(data, offset + at, n) << (8 - n));
+                at += n;
+            }
+            return new BitString(res, 0, bits);
+        }
+
+        public byte[] loadBuffer(int bytes) {
+            byte[] r = preloadBuffer(bytes);
+            offset += bytes * 8;
+            return r;
+        }
+
+        public byte[] preloadBuffer(int bytes) {
+            checkRange(bytes * 8);
+            byte[] res = new byte[bytes];
+            if ((offset & 7) == 0) {
+                MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, data + (offset >>> 3), res, 0, bytes);
+            } else {
+                for (int i = 0; i < bytes; i++) {
+                    res[i] = (byte) readBits(data, offset + i * 8, 8);
+                }
+            }
+            return res;
+        }
+
+        /* ==================== refs ==================== */
+
+        /**
+         * Index of the next child, without allocating a view
+         */
+        public int loadRefIndex() {
+            int r = preloadRefIndex();
+            refsOffset++;
+            return r;
+        }
+
+        public int preloadRefIndex() {
+            if (refsOffset >= refs) {
+                throw new IllegalStateException("No more references");
+            }
+            return ref(cell, refsOffset);
+        }
+
+        public CellRef loadRef() {
+            return new CellRef(loadRefIndex());
+        }
+
+        public CellRef preloadRef() {
+            return new CellRef(preloadRefIndex());
+        }
+
+        public void endParse() {
+            if (remainingBits() > 0 || remainingRefs() > 0) {
+                throw new IllegalStateException("Slice is not empty");
+            }
+        }
+
+        private void checkWidth(int bits) {
+            if (bits < 0 || bits > 64) {
+                throw new IllegalArgumentException("Invalid number of bits");
+            }
+        }
+
+        private void checkRange(int bits) {
+            if (bits < 0 || offset + bits > length) {
+                throw new IllegalArgumentException("Index " + (offset + bits) + " > " + length + " is out of bounds");
+            }
+        }
+    }
+}
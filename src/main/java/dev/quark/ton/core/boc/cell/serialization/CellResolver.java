@@ -0,0 +1,16 @@
+package dev.quark.ton.core.boc.cell.serialization;
+
+import dev.quark.ton.core.boc.Cell;
+
+/**
+ * Source of cells left out of a partial BOC, e.g. a store of cells the
+ * receiver already has. Absent cells are referenced by representation hash.
+ */
+@FunctionalInterface
+public interface CellResolver {
+
+    /**
+     * Cell whose {@code hash()} is {@code hash}, or null if it is not known
+     */
+    Cell resolve(byte[] hash);
+}
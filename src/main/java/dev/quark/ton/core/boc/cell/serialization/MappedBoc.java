@@ -0,0 +1,461 @@
+package dev.quark.ton.core.boc.cell.serialization;
+
+import dev.quark.ton.core.boc.BitString;
+import dev.quark.ton.core.boc.Cell;
+import dev.quark.ton.core.utils.Crc32c;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only BOC over a memory segment (typically a mapped file) that decodes
+ * cells lazily.
+ *
+ * Cells are located through the offset index when the BOC has one; otherwise
+ * offsets are collected by a single scan over the cell records on first access.
+ * A {@link Handle} decodes its own record only, children are decoded when first
+ * dereferenced, so walking one path touches only the cells on that path.
+ */
+public final class MappedBoc implements AutoCloseable {
+
+    private final MemorySegment segment;
+    private final Arena arena; // null when segment is owned by the caller
+
+    private final boolean hasIdx;
+    private final boolean hasCrc32c;
+    private final boolean hasCacheBits;
+    private final int size;
+    private final int offBytes;
+    private final int cells;
+    private final int[] root;
+    private final long indexStart;
+    private final long dataStart;
+    private final long totalCellSize;
+
+    private volatile long[] scannedOffsets; // used only without index
+
+    private MappedBoc(MemorySegment segment, Arena arena) {
+        this.segment = segment;
+        this.arena = arena;
+
+        long pos = 0;
+        long magic = readUint(pos, 4);
+        pos += 4;
+
+        if (magic == 0x68ff65f3L || magic == 0xacc3a728L) {
+            hasIdx = true;
+            hasCrc32c = magic == 0xacc3a728L;
+            hasCacheBits = false;
+            size = readByte(pos++);
+        } else if (magic == 0xb5ee9c72L) {
+            int flags = readByte(pos++);
+            hasIdx = (flags & 0x80) != 0;
+            hasCrc32c = (flags & 0x40) != 0;
+            hasCacheBits = (flags & 0x20) != 0;
+            size = flags & 0x07;
+        } else {
+            throw new IllegalStateException("Invalid magic");
+        }
+
+        offBytes = readByte(pos++);
+        if (size < 1 || size > 4 || offBytes < 1 || offBytes > 8) {
+            throw new IllegalStateException("Invalid BOC header");
+        }
+
+        cells = readCount(pos, size);
+        pos += size;
+        int roots = readCount(pos, size);
+        pos += size;
+        pos += size; // absent
+        totalCellSize = readUint(pos, offBytes);
+        pos += offBytes;
+
+        // Every record takes at least 2 bytes: bound the cell count by the
+        // data size before anything is sized by it
+        if (totalCellSize < 0 || cells > totalCellSize / 2 || totalCellSize > segment.byteSize()) {
+            throw new IllegalStateException("Invalid BOC header");
+        }
+
+        if (magic == 0xb5ee9c72L) {
+            if (pos + (long) roots * size > segment.byteSize()) {
+                throw new IllegalStateException("Invalid BOC file");
+            }
+            root = new int[roots];
+            for (int i = 0; i < roots; i++) {
+                root[i] = readCount(pos, size);
+                pos += size;
+            }
+        } else {
+            root = new int[]{0};
+        }
+
+        indexStart = pos;
+        if (hasIdx) {
+            pos += (long) cells * offBytes;
+        }
+        dataStart = pos;
+
+        if (dataStart + totalCellSize + (hasCrc32c ? 4 : 0) > segment.byteSize()) {
+            throw new IllegalStateException("Invalid BOC file");
+        }
+        for (int r : root) {
+            checkIndex(r);
+        }
+    }
+
+    /* ============================================================ */
+    /* ======================= factories ========================== */
+    /* ============================================================ */
+
+    /**
+     * Map a BOC file read-only. The mapping is released by {@link #close()}.
+     */
+    public static MappedBoc open(Path path) throws IOException {
+        Arena arena = Arena.ofShared();
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            MemorySegment segment = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size(), arena);
+            return new MappedBoc(segment, arena);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Wrap a segment owned by the caller; {@link #close()} does not release it.
+     */
+    public static MappedBoc of(MemorySegment segment) {
+        return new MappedBoc(segment, null);
+    }
+
+    /* ============================================================ */
+    /* ======================= properties ========================= */
+    /* ============================================================ */
+
+    public int cellsCount() {
+        return cells;
+    }
+
+    public int rootsCount() {
+        return root.length;
+    }
+
+    public boolean hasIndex() {
+        return hasIdx;
+    }
+
+    public Handle root() {
+        return root(0);
+    }
+
+    public Handle root(int i) {
+        return new Handle(root[i]);
+    }
+
+    public List<Handle> roots() {
+        List<Handle> res = new ArrayList<>(root.length);
+        for (int r : root) {
+            res.add(new Handle(r));
+        }
+        return res;
+    }
+
+    /**
+     * Check CRC32C of the whole file. This touches every page of the mapping.
+     *
+     * @throws IllegalStateException if the checksum does not match
+     */
+    public void verifyCrc32c() {
+        if (!hasCrc32c) {
+            return;
+        }
+        long end = dataStart + totalCellSize;
+        // Buffers of shared-arena segments cannot be checksummed directly,
+        // so stream through a small heap chunk
+        Crc32c.Digest crc = new Crc32c.Digest();
+        byte[] chunk = new byte[64 * 1024];
+        for (long pos = 0; pos < end; ) {
+            int n = (int) Math.min(chunk.length, end - pos);
+            MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, pos, chunk, 0, n);
+            crc.update(chunk, 0, n);
+            pos += n;
+        }
+        byte[] stored = new byte[4];
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, end, stored, 0, 4);
+        if (!java.util.Arrays.equals(crc.toBytes(), stored)) {
+            throw new IllegalStateException("Invalid CRC32C");
+        }
+    }
+
+    @Override
+    public void close() {
+        if (arena != null) {
+            arena.close();
+        }
+    }
+
+    /* ============================================================ */
+    /* ======================= handle ============================= */
+    /* ============================================================ */
+
+    /**
+     * Lazily decoded cell of a mapped BOC
+     */
+    public final class Handle {
+
+        private final int index;
+        private final long start; // absolute offset of the record
+        private final int d1;
+        private final int d2;
+        private final Handle[] refs;
+        private BitString bits;
+
+        private Handle(int index) {
+            this.index = index;
+            this.start = dataStart + cellOffset(index);
+            if (start + 2 > dataStart + totalCellSize) {
+                throw new IllegalStateException("Invalid BOC file");
+            }
+            this.d1 = readByte(start);
+            this.d2 = readByte(start + 1);
+            if ((d1 & 7) == 7) {
+                if ((d1 & 16) == 0 || d2 != 0) {
+                    throw new IllegalStateException("Invalid BOC file");
+                }
+            } else if ((d1 & 7) > 4) {
+                throw new IllegalStateException("Invalid BOC file");
+            }
+            this.refs = new Handle[isAbsent() ? 0 : d1 & 7];
+        }
+
+        /**
+         * Index of the cell in the BOC
+         */
+        public int index() {
+            return index;
+        }
+
+        public boolean isExotic() {
+            return (d1 & 8) != 0;
+        }
+
+        public int refsCount() {
+            return refs.length;
+        }
+
+        /**
+         * Cell left out of a partial BOC; only its hashes are stored
+         */
+        public boolean isAbsent() {
+            return (d1 & 7) == 7;
+        }
+
+        /**
+         * Level mask as stored in the descriptor
+         */
+        public int levelMask() {
+            return d1 >> 5;
+        }
+
+        /**
+         * Data bits of this cell, copied out of the mapping on first access
+         */
+        public BitString bits() {
+            BitString r = bits;
+            if (r == null) {
+                r = decodeBits();
+                bits = r;
+            }
+            return r;
+        }
+
+        /**
+         * Child handle; the child record is decoded on first dereference
+         */
+        public Handle ref(int i) {
+            if (i < 0 || i >= refs.length) {
+                throw new IllegalArgumentException("Ref index " + i + " is out of bounds");
+            }
+            Handle r = refs[i];
+            if (r == null) {
+                long pos = dataOffset() + (d2 + 1) / 2 + (long) i * size;
+                if (pos + size > dataStart + totalCellSize) {
+                    throw new IllegalStateException("Invalid BOC file");
+                }
+                int child = readCount(pos, size);
+                if (child <= index) {
+                    throw new IllegalStateException("Invalid BOC file");
+                }
+                checkIndex(child);
+                r = new Handle(child);
+                refs[i] = r;
+            }
+            return r;
+        }
+
+        /**
+         * Materialize this cell with its whole subtree.
+         * Cells shared between subtrees are decoded once per call, absent cells
+         * become pruned branches. Nothing is kept once the cell is returned.
+         */
+        public Cell toCell() {
+            BuiltCells built = new BuiltCells();
+
+            // Children first, iteratively, so long chains do not exhaust the stack
+            ArrayDeque<Handle> pending = new ArrayDeque<>();
+            pending.push(this);
+            while (!pending.isEmpty()) {
+                Handle h = pending.peek();
+                if (built.get(h.index) != null) {
+                    pending.pop();
+                    continue;
+                }
+                boolean ready = true;
+                for (int i = 0; i < h.refs.length; i++) {
+                    Handle r = h.ref(i);
+                    if (built.get(r.index) == null) {
+                        pending.push(r);
+                        ready = false;
+                    }
+                }
+                if (ready) {
+                    pending.pop();
+                    built.put(h.index, h.build(built));
+                }
+            }
+            return built.get(index);
+        }
+
+        /**
+         * Cell of this record; its children are already in {@code built}
+         */
+        private Cell build(BuiltCells built) {
+            if (isAbsent()) {
+                int count = hashesCount(levelMask());
+                byte[][] hashes = new byte[count][32];
+                int[] depths = new int[count];
+                for (int i = 0; i < count; i++) {
+                    MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, start + 2 + 32L * i, hashes[i], 0, 32);
+                    depths[i] = (int) readUint(start + 2 + 32L * count + 2L * i, 2);
+                }
+                return BocSerialization.resolveAbsent(levelMask() & 7, hashes, depths, null);
+            }
+            List<Cell> children = new ArrayList<>(refs.length);
+            for (int i = 0; i < refs.length; i++) {
+                children.add(built.get(ref(i).index));
+            }
+            Cell.Options o = new Cell.Options();
+            o.bits = bits();
+            o.refs = children;
+            o.exotic = isExotic();
+            return new Cell(o);
+        }
+
+        private long dataOffset() {
+            long pos = start + 2;
+            if ((d1 & 16) != 0) {
+                pos += (long) hashesCount(d1 >> 5) * (32 + 2);
+            }
+            return pos;
+        }
+
+        private BitString decodeBits() {
+            int dataByteSize = (d2 + 1) / 2;
+            if (dataByteSize == 0) {
+                return BitString.EMPTY;
+            }
+            long pos = dataOffset();
+            if (pos + dataByteSize + (long) refs.length * size > dataStart + totalCellSize) {
+                throw new IllegalStateException("Invalid BOC file");
+            }
+            byte[] data = new byte[dataByteSize];
+            MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, pos, data, 0, dataByteSize);
+            int length = dataByteSize * 8;
+            if ((d2 % 2) != 0) {
+                int last = data[dataByteSize - 1] & 0xFF;
+                if (last == 0) {
+                    throw new IllegalStateException("Invalid BOC file");
+                }
+                length -= Integer.numberOfTrailingZeros(last) + 1;
+            }
+            return new BitString(data, 0, length);
+        }
+    }
+
+    /* ============================================================ */
+    /* ======================= offsets ============================ */
+    /* ============================================================ */
+
+    private long cellOffset(int i) {
+        if (hasIdx) {
+            if (i == 0) {
+                return 0;
+            }
+            long end = readUint(indexStart + (long) (i - 1) * offBytes, offBytes);
+            return hasCacheBits ? end >>> 1 : end;
+        }
+        return scannedOffsets()[i];
+    }
+
+    private long[] scannedOffsets() {
+        long[] res = scannedOffsets;
+        if (res == null) {
+            res = new long[cells];
+            long pos = 0;
+            for (int i = 0; i < cells; i++) {
+                if (pos + 2 > totalCellSize) {
+                    throw new IllegalStateException("Invalid BOC file");
+                }
+                res[i] = pos;
+                int d1 = readByte(dataStart + pos);
+                int d2 = readByte(dataStart + pos + 1);
+                pos += 2 + ((d1 & 16) != 0 ? hashesCount(d1 >> 5) * (32 + 2) : 0)
+                        + (d2 + 1) / 2 + ((d1 & 7) == 7 ? 0 : (long) (d1 & 7) * size);
+            }
+            scannedOffsets = res;
+        }
+        return res;
+    }
+
+    private static int hashesCount(int levelMask) {
+        return Integer.bitCount(levelMask & 7) + 1;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= cells) {
+            throw new IllegalStateException("Invalid BOC file");
+        }
+    }
+
+    /* ============================================================ */
+    /* ======================= raw reads ========================== */
+    /* ============================================================ */
+
+    private int readByte(long pos) {
+        return segment.get(ValueLayout.JAVA_BYTE, pos) & 0xFF;
+    }
+
+    private long readUint(long pos, int bytes) {
+        long res = 0;
+        for (int i = 0; i < bytes; i++) {
+            res = (res << 8) | readByte(pos + i);
+        }
+        return res;
+    }
+
+    private int readCount(long pos, int bytes) {
+        long v = readUint(pos, bytes);
+        if (v > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Invalid BOC header");
+        }
+        return (int) v;
+    }
+}
@@ -0,0 +1,267 @@
+package dev.quark.ton.core.boc.cell.serialization;
+
+import dev.quark.ton.core.crypto.Sha256;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.security.DigestException;
+import java.security.MessageDigest;
+
+/**
+ * Hashes and depths of every cell of a BOC, computed from the raw records
+ * without building {@code Cell} objects.
+ *
+ * Follows {@code WonderCalculator}: a cell keeps one hash per significant
+ * level ({@code popcount(mask) + 1} slots), pruned branches take the lower
+ * ones from their data, and merkle cells hash their children one level up.
+ * Records are visited from the end, so children are always ready before their
+ * parents. Hashes and depths are written to caller-provided segments, which
+ * lets them live on the heap or in an arena alike.
+ */
+final class RawCellHasher {
+
+    private static final ValueLayout.OfShort DEPTH =
+            ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(java.nio.ByteOrder.BIG_ENDIAN);
+
+    private final BocRecords boc;
+    private final byte[] mask;
+    private final int[] slot; // first hash slot of each cell
+    private final int slots;
+
+    private MemorySegment hashes;
+    private MemorySegment depths;
+
+    // d1 + d2 + 128 data bytes + 4 refs * (2 depth bytes + 32 hash bytes)
+    private final byte[] scratch = new byte[2 + 128 + 4 * (2 + 32)];
+    private final int[] children = new int[4];
+
+    /**
+     * Resolve level masks and lay out hash slots; exotic cells are validated
+     * the same way as when building cells
+     */
+    RawCellHasher(BocRecords boc) {
+        this.boc = boc;
+        this.mask = new byte[boc.cells];
+        this.slot = new int[boc.cells];
+
+        int next = 0;
+        for (int i = boc.cells - 1; i >= 0; i--) {
+            int m = resolveMask(i);
+            mask[i] = (byte) m;
+            slot[i] = next;
+            next += Integer.bitCount(m) + 1;
+        }
+        this.slots = next;
+    }
+
+    /* ============================================================ */
+    /* ======================= layout ============================= */
+    /* ============================================================ */
+
+    /**
+     * Number of hash slots, i.e. the size of the tables in hashes and depths
+     */
+    int slots() {
+        return slots;
+    }
+
+    int mask(int i) {
+        return mask[i];
+    }
+
+    /**
+     * Slot holding the hash of cell {@code i} at {@code level}
+     */
+    int slot(int i, int level) {
+        return slot[i] + Integer.bitCount(mask[i] & ((1 << Math.min(level, 3)) - 1));
+    }
+
+    /* ============================================================ */
+    /* ======================= hashing ============================ */
+    /* ============================================================ */
+
+    /**
+     * Hash every cell into {@code hashes} ({@code slots() * 32} bytes) and
+     * {@code depths} ({@code slots() * 2} bytes, big-endian)
+     */
+    void hashAll(MemorySegment hashes, MemorySegment depths) {
+        if (hashes.byteSize() < (long) slots * 32 || depths.byteSize() < (long) slots * 2) {
+            throw new IllegalArgumentException("Hash tables are too small for " + slots + " slots");
+        }
+        this.hashes = hashes;
+        this.depths = depths;
+        MessageDigest md = Sha256.digest();
+        for (int i = boc.cells - 1; i >= 0; i--) {
+            hashCell(i, md);
+        }
+    }
+
+    private void hashCell(int i, MessageDigest md) {
+        int d1 = boc.d1(i);
+        int d2 = boc.d2(i);
+        int refsCount = d1 & 7;
+
+        if (refsCount == 7) {
+            // Absent cell carries its own hashes and depths
+            int count = Integer.bitCount(mask[i]) + 1;
+            long stored = boc.hashesOffset(i);
+            MemorySegment.copy(boc.segment, stored, hashes, (long) slot[i] * 32, 32L * count);
+            MemorySegment.copy(boc.segment, stored + 32L * count, depths, (long) slot[i] * 2, 2L * count);
+            return;
+        }
+
+        boolean exotic = (d1 & 8) != 0;
+        int m = mask[i];
+        int level = 32 - Integer.numberOfLeadingZeros(m);
+
+        long data = boc.dataOffset(i);
+        int dataBytes = (d2 + 1) / 2;
+        int type = exotic ? boc.readByte(data) : 0;
+        for (int r = 0; r < refsCount; r++) {
+            children[r] = boc.ref(i, r);
+        }
+
+        if (type == 1) {
+
+            // Lower hashes are stored in the pruned branch itself
+            int bitsLength = boc.bitsLength(i);
+            int stored = bitsLength == 280 ? 1 : 2;
+            int count = Integer.bitCount(m);
+            for (int j = 0; j < count; j++) {
+                MemorySegment.copy(boc.segment, data + stored + 32L * j, hashes, (long) (slot[i] + j) * 32, 32);
+                MemorySegment.copy(boc.segment, data + stored + 32L * level + 2L * j, depths, (long) (slot[i] + j) * 2, 2);
+            }
+            writeHash(i, count, 8 + m * 32, d2, data, dataBytes, 0, 0, 0, md);
+            return;
+        }
+
+        int childOffset = type == 3 || type == 4 ? 1 : 0;
+        for (int levelI = 0, hashI = 0; levelI <= level; levelI++) {
+            if (levelI != 0 && ((m >> (levelI - 1)) & 1) == 0) {
+                continue;
+            }
+            int childLevel = levelI + childOffset;
+
+            int depth = 0;
+            for (int r = 0; r < refsCount; r++) {
+                depth = Math.max(depth, depth(children[r], childLevel));
+            }
+            if (refsCount > 0) {
+                depth++;
+            }
+
+            int descriptor = refsCount + (exotic ? 8 : 0) + (m & ((1 << levelI) - 1)) * 32;
+            if (hashI == 0) {
+                writeHash(i, hashI, descriptor, d2, data, dataBytes, childLevel, refsCount, depth, md);
+            } else {
+                writeHash(i, hashI, descriptor, d2, -1, 32, childLevel, refsCount, depth, md);
+            }
+            hashI++;
+        }
+
+        if (type == 3) {
+            checkProof(i, data + 1, data + 33, children[0], "Merkle Proof");
+        } else if (type == 4) {
+            checkProof(i, data + 1, data + 65, children[0], "Merkle Update");
+            checkProof(i, data + 33, data + 67, children[1], "Merkle Update");
+        }
+    }
+
+    /**
+     * Hash the representation of cell {@code i} into slot {@code hashI}.
+     * Data comes from the record at {@code data}, or is the previous slot when {@code data < 0}.
+     */
+    private void writeHash(
+            int i,
+            int hashI,
+            int d1,
+            int d2,
+            long data,
+            int dataBytes,
+            int childLevel,
+            int refsCount,
+            int depth,
+            MessageDigest md
+    ) {
+        int cursor = 0;
+        scratch[cursor++] = (byte) d1;
+        scratch[cursor++] = (byte) d2;
+        if (data >= 0) {
+            MemorySegment.copy(boc.segment, ValueLayout.JAVA_BYTE, data, scratch, cursor, dataBytes);
+        } else {
+            MemorySegment.copy(hashes, ValueLayout.JAVA_BYTE, (long) (slot[i] + hashI - 1) * 32, scratch, cursor, 32);
+        }
+        cursor += dataBytes;
+        for (int r = 0; r < refsCount; r++) {
+            int childDepth = depth(children[r], childLevel);
+            scratch[cursor++] = (byte) (childDepth >> 8);
+            scratch[cursor++] = (byte) childDepth;
+        }
+        for (int r = 0; r < refsCount; r++) {
+            MemorySegment.copy(hashes, ValueLayout.JAVA_BYTE, (long) slot(children[r], childLevel) * 32, scratch, cursor, 32);
+            cursor += 32;
+        }
+
+        md.update(scratch, 0, cursor);
+        try {
+            md.digest(scratch, 0, 32);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+        MemorySegment.copy(scratch, 0, hashes, ValueLayout.JAVA_BYTE, (long) (slot[i] + hashI) * 32, 32);
+        depths.set(DEPTH, (long) (slot[i] + hashI) * 2, (short) depth);
+    }
+
+    private int depth(int i, int level) {
+        return depths.get(DEPTH, (long) slot(i, level) * 2) & 0xFFFF;
+    }
+
+    private void checkProof(int i, long hashAt, long depthAt, int child, String kind) {
+        int depth = (boc.readByte(depthAt) << 8) | boc.readByte(depthAt + 1);
+        if (depth != depth(child, 0)) {
+            throw new IllegalStateException(
+                    kind + " cell ref depth must be exactly \"" + depth + "\", got \"" + depth(child, 0) + "\""
+            );
+        }
+        long expected = (long) slot(child, 0) * 32;
+        if (MemorySegment.mismatch(boc.segment, hashAt, hashAt + 32, hashes, expected, expected + 32) != -1) {
+            throw new IllegalStateException(kind + " cell ref hash mismatch in cell " + i);
+        }
+    }
+
+    /* ============================================================ */
+    /* ======================= level masks ======================== */
+    /* ============================================================ */
+
+    private int resolveMask(int i) {
+        int d1 = boc.d1(i);
+        int refsCount = d1 & 7;
+
+        if (refsCount == 7) {
+            return (d1 >> 5) & 7;
+        }
+
+        if ((d1 & 8) == 0) {
+            int m = 0;
+            for (int r = 0; r < refsCount; r++) {
+                m |= mask[boc.ref(i, r)];
+            }
+            return m;
+        }
+
+        int bitsLength = boc.bitsLength(i);
+        if (bitsLength < 8) {
+            throw new IllegalStateException("Exotic cell must have a type, got " + bitsLength + " bits");
+        }
+        long data = boc.dataOffset(i);
+        int type = boc.readByte(data);
+        int m = BocValidator.checkExotic(type, bitsLength, refsCount, bitsLength >= 16 ? boc.readByte(data + 1) : 0);
+
+        if (type == 3) {
+            return mask[boc.ref(i, 0)] >> 1;
+        } else if (type == 4) {
+            return (mask[boc.ref(i, 0)] | mask[boc.ref(i, 1)]) >> 1;
+        }
+        return m;
+    }
+}
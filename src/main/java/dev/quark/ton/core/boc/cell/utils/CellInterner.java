@@ -0,0 +1,128 @@
+package dev.quark.ton.core.boc.cell.utils;
+
+import dev.quark.ton.core.boc.Cell;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hash-consing cache that maps every distinct cell (by representation hash)
+ * to one canonical instance.
+ *
+ * Entries are weakly referenced, so a canonical cell is dropped once nothing
+ * else uses it, and the table is bounded: the least recently used entries are
+ * evicted when it grows beyond {@code maxSize}. Interning bottom-up (children
+ * first) makes identical subtrees share a single object graph.
+ */
+public final class CellInterner {
+
+    public static final int DEFAULT_MAX_SIZE = 1 << 16;
+
+    private static final CellInterner GLOBAL = new CellInterner(DEFAULT_MAX_SIZE);
+
+    private final int maxSize;
+    private final ReferenceQueue<Cell> queue = new ReferenceQueue<>();
+    private final LinkedHashMap<Key, Ref> table;
+
+    public CellInterner(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Max size must be > 0, got " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.table = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Ref> eldest) {
+                return size() > CellInterner.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Process-wide interner with {@link #DEFAULT_MAX_SIZE} entries
+     */
+    public static CellInterner global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Canonical instance equal to {@code cell}; {@code cell} itself becomes
+     * canonical if no equal cell is cached.
+     */
+    public Cell intern(Cell cell) {
+        Key key = new Key(cell.hash());
+        synchronized (table) {
+            expunge();
+            Ref ref = table.get(key);
+            if (ref != null) {
+                Cell existing = ref.get();
+                if (existing != null) {
+                    return existing;
+                }
+            }
+            table.put(key, new Ref(key, cell, queue));
+            return cell;
+        }
+    }
+
+    /**
+     * Number of cached entries, including ones already collected but not yet expunged
+     */
+    public int size() {
+        synchronized (table) {
+            expunge();
+            return table.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (table) {
+            table.clear();
+            while (queue.poll() != null) {
+                // drain
+            }
+        }
+    }
+
+    private void expunge() {
+        for (Object r; (r = queue.poll()) != null; ) {
+            Ref ref = (Ref) r;
+            table.remove(ref.key, ref);
+        }
+    }
+
+    /* ============================================================ */
+    /* ======================= internals ========================== */
+    /* ============================================================ */
+
+    private static final class Key {
+        private final byte[] hash;
+        private final int h;
+
+        Key(byte[] hash) {
+            this.hash = hash;
+            this.h = Arrays.hashCode(hash);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && Arrays.equals(hash, k.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return h;
+        }
+    }
+
+    private static final class Ref extends WeakReference<Cell> {
+        private final Key key;
+
+        Ref(Key key, Cell cell, ReferenceQueue<Cell> queue) {
+            super(cell, queue);
+            this.key = key;
+        }
+    }
+}
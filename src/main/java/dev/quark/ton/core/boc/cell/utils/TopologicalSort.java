@@ -3,6 +3,7 @@ package dev.quark.ton.core.boc.cell.utils;
 import dev.quark.ton.core.boc.Cell;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * 1:1 port of ton-core/src/boc/cell/utils/topologicalSort.ts
@@ -14,124 +15,216 @@ public final class TopologicalSort {
     public static final class Entry {
         public final Cell cell;
         public final int[] refs;
+        /** Left out of the BOC: stored by hash, refs are not followed */
+        public final boolean absent;
 
         public Entry(Cell cell, int[] refs) {
+            this(cell, refs, false);
+        }
+
+        public Entry(Cell cell, int[] refs, boolean absent) {
             this.cell = cell;
             this.refs = refs;
+            this.absent = absent;
         }
     }
 
-    public static List<Entry> sort(Cell src) {
+    /**
+     * Sorted cells of a multi-root BOC together with the indexes of its roots.
+     */
+    public static final class Sorted {
+        public final List<Entry> cells;
+        public final int[] roots;
 
-        // pending traversal
-        List<Cell> pending = new ArrayList<>();
-        pending.add(src);
+        public Sorted(List<Entry> cells, int[] roots) {
+            this.cells = cells;
+            this.roots = roots;
+        }
+    }
 
-        // IMPORTANT: preserve insertion order like JS Map/Set
-        Map<String, Node> allCells = new LinkedHashMap<>();
-        Set<String> notPermCells = new LinkedHashSet<>();
-        List<String> sorted = new ArrayList<>();
+    public static List<Entry> sort(Cell src) {
+        return sortRoots(List.of(src)).cells;
+    }
 
-        // Collect all reachable cells
-        while (!pending.isEmpty()) {
-            List<Cell> cells = new ArrayList<>(pending);
-            pending.clear();
+    /**
+     * Sort cells reachable from several roots; cells shared between roots are
+     * emitted once. For a single root the order is the same as {@link #sort(Cell)}.
+     *
+     * Cells are numbered in breadth-first discovery order (deduplicated by
+     * hash), then ordered by an iterative depth-first search that visits refs
+     * in reverse and starts from the lowest unvisited number, exactly like
+     * ton-core.
+     */
+    public static Sorted sortRoots(List<Cell> roots) {
+        return sortRoots(roots, null);
+    }
 
-            for (Cell cell : cells) {
-                String hash = bytesToHex(cell.hash());
-                if (allCells.containsKey(hash)) {
-                    continue;
-                }
+    /**
+     * Same as {@link #sortRoots(List)}, but cells matching {@code absent} are
+     * kept as leaves: their refs are not followed. Roots cannot be absent.
+     */
+    public static Sorted sortRoots(List<Cell> roots, Predicate<Cell> absent) {
 
-                notPermCells.add(hash);
+        Table table = new Table();
 
-                List<String> refs = new ArrayList<>();
-                for (Cell r : cell.refs) {
-                    refs.add(bytesToHex(r.hash()));
-                    pending.add(r);
+        // Collect all reachable cells (FIFO, ids in order of discovery)
+        int[] rootIds = new int[roots.size()];
+        for (int i = 0; i < rootIds.length; i++) {
+            rootIds[i] = table.add(roots.get(i));
+        }
+        boolean[] isAbsent = absent != null ? new boolean[16] : null;
+        for (int id = 0; id < table.size; id++) {
+            if (absent != null) {
+                if (id == isAbsent.length) {
+                    isAbsent = Arrays.copyOf(isAbsent, isAbsent.length * 2);
                 }
-
-                allCells.put(hash, new Node(cell, refs));
+                if (absent.test(table.cells[id])) {
+                    for (int r : rootIds) {
+                        if (r == id) {
+                            throw new IllegalArgumentException("Root cells cannot be absent");
+                        }
+                    }
+                    isAbsent[id] = true;
+                    table.refs[id] = new int[0];
+                    continue;
+                }
+            }
+            List<Cell> refs = table.cells[id].refs;
+            int[] refIds = new int[refs.size()];
+            for (int j = 0; j < refIds.length; j++) {
+                refIds[j] = table.add(refs.get(j));
             }
+            table.refs[id] = refIds;
         }
 
-        // DFS with temporary marks
-        Set<String> tempMark = new HashSet<>();
+        int n = table.size;
+        int[][] refs = table.refs;
 
-        class Visitor {
-            void visit(String hash) {
-                if (!notPermCells.contains(hash)) {
-                    return;
-                }
-                if (tempMark.contains(hash)) {
-                    throw new IllegalStateException("Not a DAG");
-                }
+        // Iterative DFS with temporary marks
+        byte[] state = new byte[n]; // 0 - new, 1 - on stack, 2 - done
+        int[] sorted = new int[n];
+        int sortedCount = 0;
+        int[] stack = new int[n];
+        int[] next = new int[n]; // next ref position to visit, counts down
 
-                tempMark.add(hash);
-
-                List<String> refs = allCells.get(hash).refs;
-                // TS: for (ci = refs.length-1; ci>=0; ci--)
-                for (int ci = refs.size() - 1; ci >= 0; ci--) {
-                    visit(refs.get(ci));
+        for (int start = 0; start < n; start++) {
+            if (state[start] != 0) {
+                continue;
+            }
+            int sp = 0;
+            stack[sp++] = start;
+            state[start] = 1;
+            next[start] = refs[start].length - 1;
+
+            while (sp > 0) {
+                int id = stack[sp - 1];
+                if (next[id] >= 0) {
+                    int child = refs[id][next[id]--];
+                    if (state[child] == 2) {
+                        continue;
+                    }
+                    if (state[child] == 1) {
+                        throw new IllegalStateException("Not a DAG");
+                    }
+                    state[child] = 1;
+                    next[child] = refs[child].length - 1;
+                    stack[sp++] = child;
+                } else {
+                    sp--;
+                    state[id] = 2;
+                    sorted[sortedCount++] = id;
                 }
-
-                // TS: sorted.push(hash)
-                sorted.add(hash);
-
-                tempMark.remove(hash);
-                notPermCells.remove(hash);
             }
         }
 
-        Visitor visitor = new Visitor();
-
-        // TS: while (notPermCells.size > 0) { id = Array.from(notPermCells)[0]; visit(id); }
-        while (!notPermCells.isEmpty()) {
-            String id = notPermCells.iterator().next(); // insertion-order because LinkedHashSet
-            visitor.visit(id);
+        // Index of a cell is its position from the end of the DFS output
+        int[] index = new int[n];
+        for (int i = 0; i < n; i++) {
+            index[sorted[n - i - 1]] = i;
         }
 
-        // TS: indexes.set(sorted[sorted.length - i - 1], i)
-        Map<String, Integer> indexes = new HashMap<>();
-        for (int i = 0; i < sorted.size(); i++) {
-            indexes.put(sorted.get(sorted.size() - i - 1), i);
+        List<Entry> result = new ArrayList<>(n);
+        for (int i = n - 1; i >= 0; i--) {
+            int id = sorted[i];
+            int[] r = refs[id];
+            int[] refIdx = new int[r.length];
+            for (int j = 0; j < r.length; j++) {
+                refIdx[j] = index[r[j]];
+            }
+            result.add(new Entry(table.cells[id], refIdx, isAbsent != null && isAbsent[id]));
         }
 
-        // TS: for i=sorted.length-1..0 result.push(...)
-        List<Entry> result = new ArrayList<>();
-        for (int i = sorted.size() - 1; i >= 0; i--) {
-            String key = sorted.get(i);
-            Node node = allCells.get(key);
-
-            int[] refIdx = new int[node.refs.size()];
-            for (int j = 0; j < node.refs.size(); j++) {
-                refIdx[j] = indexes.get(node.refs.get(j));
-            }
-            result.add(new Entry(node.cell, refIdx));
+        int[] rootIdx = new int[rootIds.length];
+        for (int i = 0; i < rootIdx.length; i++) {
+            rootIdx[i] = index[rootIds[i]];
         }
 
-        return result;
+        return new Sorted(result, rootIdx);
     }
 
-    private static final class Node {
-        final Cell cell;
-        final List<String> refs;
+    /**
+     * Open-addressing table from cell hash to dense id. Lookups compare by
+     * identity first and fall back to hash bytes, so equal cells built
+     * separately share one id.
+     */
+    private static final class Table {
+        Cell[] cells = new Cell[16];
+        byte[][] hashes = new byte[16][];
+        int[][] refs = new int[16][];
+        int size;
+
+        private int[] slots = new int[32]; // id + 1, 0 is empty
+        private int mask = 31;
+
+        /**
+         * Id of the cell, assigning the next one if the cell is new
+         */
+        int add(Cell cell) {
+            byte[] hash = cell.hash();
+            int slot = spread(hash) & mask;
+            while (true) {
+                int v = slots[slot];
+                if (v == 0) {
+                    break;
+                }
+                int id = v - 1;
+                if (cells[id] == cell || Arrays.equals(hashes[id], hash)) {
+                    return id;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            int id = size++;
+            if (id == cells.length) {
+                int cap = cells.length * 2;
+                cells = Arrays.copyOf(cells, cap);
+                hashes = Arrays.copyOf(hashes, cap);
+                refs = Arrays.copyOf(refs, cap);
+            }
+            cells[id] = cell;
+            hashes[id] = hash;
+            slots[slot] = id + 1;
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+            return id;
+        }
 
-        Node(Cell cell, List<String> refs) {
-            this.cell = cell;
-            this.refs = refs;
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            mask = slots.length - 1;
+            for (int id = 0; id < size; id++) {
+                int slot = spread(hashes[id]) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = id + 1;
+            }
         }
-    }
 
-    private static String bytesToHex(byte[] data) {
-        char[] out = new char[data.length * 2];
-        final char[] hex = "0123456789abcdef".toCharArray();
-        int k = 0;
-        for (byte b : data) {
-            int v = b & 0xFF;
-            out[k++] = hex[v >>> 4];
-            out[k++] = hex[v & 0x0F];
+        private static int spread(byte[] hash) {
+            // representation hash is uniformly distributed already
+            return (hash[0] & 0xFF) | (hash[1] & 0xFF) << 8 | (hash[2] & 0xFF) << 16 | (hash[3] & 0xFF) << 24;
         }
-        return new String(out);
     }
 }
@@ -0,0 +1,111 @@
+package dev.quark.ton.core.boc.cell.wonder;
+
+import dev.quark.ton.core.boc.BitString;
+import dev.quark.ton.core.boc.Cell;
+import dev.quark.ton.core.boc.CellType;
+import dev.quark.ton.core.boc.cell.descriptor.Descriptor;
+import dev.quark.ton.core.boc.utils.BitOps;
+import dev.quark.ton.core.crypto.Sha256;
+
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * Computes {@code sha256(getRepr(...))} without building the representation.
+ *
+ * Descriptors, padded data and child depths go through a per-thread scratch
+ * buffer, child hashes are fed to the digest directly, so a hash allocates
+ * nothing but its 32-byte result.
+ */
+public final class CellHasher {
+
+    // d1 + d2 + 128 data bytes + 4 refs * 2 depth bytes
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[2 + 128 + 4 * 2]);
+
+    private CellHasher() {}
+
+    /**
+     * Same as {@code Sha256.sha256Sync(Descriptor.getRepr(originalBits, bits, refs, level, levelMask, type))}
+     */
+    public static byte[] hash(
+            BitString originalBits,
+            BitString bits,
+            List<Cell> refs,
+            int level,
+            int levelMask,
+            CellType type
+    ) {
+        return hash(originalBits, bits, null, refs, level, levelMask, type);
+    }
+
+    /**
+     * Hash of a higher level, whose data is the 32-byte hash of the level below
+     */
+    public static byte[] hash(
+            BitString originalBits,
+            byte[] lowerHash,
+            List<Cell> refs,
+            int level,
+            int levelMask,
+            CellType type
+    ) {
+        return hash(originalBits, null, lowerHash, refs, level, levelMask, type);
+    }
+
+    private static byte[] hash(
+            BitString originalBits,
+            BitString bits,
+            byte[] lowerHash,
+            List<Cell> refs,
+            int level,
+            int levelMask,
+            CellType type
+    ) {
+        int childLevel = type == CellType.MerkleProof || type == CellType.MerkleUpdate ? level + 1 : level;
+
+        // Children may hash lazily; do it before the shared state is in use
+        for (Cell c : refs) {
+            c.hash(childLevel);
+        }
+
+        byte[] scratch = SCRATCH.get();
+        int bitsLen = bits != null ? (bits.length() + 7) >> 3 : lowerHash.length;
+        if (2 + bitsLen + 2 * refs.size() > scratch.length) {
+            throw new IllegalStateException("Invalid cell: " + bitsLen * 8 + " bits, " + refs.size() + " refs");
+        }
+
+        int cursor = 0;
+
+        // Write descriptors
+        scratch[cursor++] = (byte) Descriptor.getRefsDescriptor(refs, levelMask, type);
+        scratch[cursor++] = (byte) Descriptor.getBitsDescriptor(originalBits);
+
+        // Write bits, padded with 1 and zeros to a byte boundary; a hash is whole bytes
+        if (bits != null) {
+            bits.copyTo(scratch, cursor * 8);
+            int pad = bitsLen * 8 - bits.length();
+            if (pad > 0) {
+                BitOps.writeLong(scratch, cursor * 8 + bits.length(), 1L << (pad - 1), pad);
+            }
+        } else {
+            System.arraycopy(lowerHash, 0, scratch, cursor, bitsLen);
+        }
+        cursor += bitsLen;
+
+        // Write refs depths
+        for (Cell c : refs) {
+            int childDepth = c.depth(childLevel);
+            scratch[cursor++] = (byte) (childDepth / 256);
+            scratch[cursor++] = (byte) (childDepth % 256);
+        }
+
+        MessageDigest md = Sha256.digest();
+        md.update(scratch, 0, cursor);
+
+        // Write refs hashes
+        for (Cell c : refs) {
+            md.update(c.hash(childLevel));
+        }
+        return md.digest();
+    }
+}
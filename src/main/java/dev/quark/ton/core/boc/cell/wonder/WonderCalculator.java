@@ -4,14 +4,11 @@ import dev.quark.ton.core.boc.BitString;
 import dev.quark.ton.core.boc.Cell;
 import dev.quark.ton.core.boc.CellType;
 import dev.quark.ton.core.boc.cell.LevelMask;
-import dev.quark.ton.core.boc.cell.descriptor.Descriptor;
 import dev.quark.ton.core.boc.cell.exotic.ExoticPruned;
 import dev.quark.ton.core.boc.cell.exotic.ExoticLibrary;
 import dev.quark.ton.core.boc.cell.exotic.ExoticMerkleProof;
 import dev.quark.ton.core.boc.cell.exotic.ExoticMerkleUpdate;
-import dev.quark.ton.core.crypto.Sha256;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -43,14 +40,11 @@ public final class WonderCalculator {
     /* ======================= main logic ========================= */
     /* ============================================================ */
 
-    public static Result calculate(CellType type, BitString bits, List<Cell> refs) {
-
-        //
-        // Resolve level mask
-        //
-
-        LevelMask levelMask;
-        ExoticPruned pruned = null;
+    /**
+     * Level mask of a cell without computing its hashes.
+     * Exotic cells are validated the same way as in {@link #calculate}.
+     */
+    public static LevelMask resolveMask(CellType type, BitString bits, List<Cell> refs) {
 
         if (type == CellType.Ordinary) {
 
@@ -58,40 +52,70 @@ public final class WonderCalculator {
             for (Cell r : refs) {
                 mask |= r.mask.value();
             }
-            levelMask = new LevelMask(mask);
+            return LevelMask.of(mask);
 
         } else if (type == CellType.PrunedBranch) {
 
-            pruned = ExoticPruned.parse(bits, refs);
-            levelMask = new LevelMask(pruned.mask);
+            return LevelMask.of(ExoticPruned.parse(bits, refs).mask);
 
         } else if (type == CellType.MerkleProof) {
 
             ExoticMerkleProof.parse(bits, refs);
-            levelMask = new LevelMask(refs.get(0).mask.value() >> 1);
+            return LevelMask.of(refs.get(0).mask.value() >> 1);
 
         } else if (type == CellType.MerkleUpdate) {
 
             ExoticMerkleUpdate.parse(bits, refs);
-            levelMask = new LevelMask(
+            return LevelMask.of(
                     (refs.get(0).mask.value() | refs.get(1).mask.value()) >> 1
             );
 
         } else if (type == CellType.Library) {
 
             ExoticLibrary.parse(bits, refs);
-            levelMask = new LevelMask();
+            return LevelMask.of(0);
 
         } else {
             throw new IllegalStateException("Unsupported exotic type");
         }
+    }
+
+    /**
+     * Level 0 hash of a cell with an empty level mask, the only hash such a
+     * cell has. Same as {@code calculate(type, bits, refs).hashes[0]} without
+     * the {@link Result}; its depth is {@code depth(type, refs, 0)}.
+     */
+    public static byte[] hash0(CellType type, BitString bits, List<Cell> refs) {
+        return CellHasher.hash(bits, bits, refs, 0, 0, type);
+    }
+
+    /**
+     * Depth of a cell at {@code level}: one more than its deepest child
+     */
+    public static int depth(CellType type, List<Cell> refs, int level) {
+        int childLevel = type == CellType.MerkleProof || type == CellType.MerkleUpdate ? level + 1 : level;
+        int depth = 0;
+        for (Cell c : refs) {
+            depth = Math.max(depth, c.depth(childLevel));
+        }
+        return refs.isEmpty() ? 0 : depth + 1;
+    }
+
+    public static Result calculate(CellType type, BitString bits, List<Cell> refs) {
+
+        //
+        // Resolve level mask
+        //
+
+        ExoticPruned pruned = type == CellType.PrunedBranch ? ExoticPruned.parse(bits, refs) : null;
+        LevelMask levelMask = pruned != null ? LevelMask.of(pruned.mask) : resolveMask(type, bits, refs);
 
         //
-        // Calculate hashes and depths
+        // Calculate hashes and depths, by hash index, into the result arrays
         //
 
-        List<Integer> depths = new ArrayList<>();
-        List<byte[]> hashes = new ArrayList<>();
+        byte[][] hashes = new byte[4][];
+        int[] depths = new int[4];
 
         int hashCount = type == CellType.PrunedBranch ? 1 : levelMask.hashCount();
         int totalHashCount = levelMask.hashCount();
@@ -108,96 +132,47 @@ public final class WonderCalculator {
                 continue;
             }
 
+            int destI = hashI - hashIOffset;
+            int appliedMask = levelMask.apply(levelI).value();
+            depths[destI] = depth(type, refs, levelI);
+
             //
-            // Bits
+            // Hash of the bits, or of the previous hash on higher levels
             //
 
-            BitString currentBits;
             if (hashI == hashIOffset) {
                 if (!(levelI == 0 || type == CellType.PrunedBranch)) {
                     throw new IllegalStateException("Invalid");
                 }
-                currentBits = bits;
+                hashes[destI] = CellHasher.hash(bits, bits, refs, levelI, appliedMask, type);
             } else {
                 if (!(levelI != 0 && type != CellType.PrunedBranch)) {
                     throw new IllegalStateException("Invalid: " + levelI + ", " + type);
                 }
-                currentBits = new BitString(hashes.get(hashI - hashIOffset - 1), 0, 256);
-            }
-
-            //
-            // Depth
-            //
-
-            int currentDepth = 0;
-            for (Cell c : refs) {
-                int childDepth;
-                if (type == CellType.MerkleProof || type == CellType.MerkleUpdate) {
-                    childDepth = c.depth(levelI + 1);
-                } else {
-                    childDepth = c.depth(levelI);
-                }
-                currentDepth = Math.max(currentDepth, childDepth);
-            }
-            if (!refs.isEmpty()) {
-                currentDepth++;
-            }
-
-            //
-            // Hash
-            //
-
-            int appliedMask = levelMask.apply(levelI).value();
-            byte[] repr = Descriptor.getRepr(bits, currentBits, refs, levelI, appliedMask, type);
-            byte[] hash = Sha256.sha256Sync(repr);
-
-            //
-            // Persist
-            //
-
-            int destI = hashI - hashIOffset;
-            if (depths.size() <= destI) {
-                depths.add(currentDepth);
-                hashes.add(hash);
-            } else {
-                depths.set(destI, currentDepth);
-                hashes.set(destI, hash);
+                hashes[destI] = CellHasher.hash(bits, hashes[destI - 1], refs, levelI, appliedMask, type);
             }
 
             hashI++;
         }
 
         //
-        // Resolve all levels
+        // Resolve all levels in place: level i reads hash index <= i, so
+        // going down never overwrites a slot that is still to be read
         //
 
-        byte[][] resolvedHashes = new byte[4][];
-        int[] resolvedDepths = new int[4];
-
-        if (pruned != null) {
-            for (int i = 0; i < 4; i++) {
-                int hashIndex = levelMask.apply(i).hashIndex();
-                int thisHashIndex = levelMask.hashIndex();
-                if (hashIndex != thisHashIndex) {
-                    resolvedHashes[i] = pruned.pruned[hashIndex].hash;
-                    resolvedDepths[i] = pruned.pruned[hashIndex].depth;
-                } else {
-                    resolvedHashes[i] = hashes.get(0);
-                    resolvedDepths[i] = depths.get(0);
-                }
-            }
-        } else {
-            for (int i = 0; i < 4; i++) {
-                int idx = levelMask.apply(i).hashIndex();
-                resolvedHashes[i] = hashes.get(idx);
-                resolvedDepths[i] = depths.get(idx);
+        int thisHashIndex = levelMask.hashIndex();
+        for (int i = 3; i >= 0; i--) {
+            int hashIndex = levelMask.apply(i).hashIndex();
+            if (pruned != null && hashIndex != thisHashIndex) {
+                hashes[i] = pruned.pruned[hashIndex].hash;
+                depths[i] = pruned.pruned[hashIndex].depth;
+            } else {
+                int idx = pruned != null ? 0 : hashIndex;
+                hashes[i] = hashes[idx];
+                depths[i] = depths[idx];
             }
         }
 
-        //
-        // Result
-        //
-
-        return new Result(levelMask, resolvedHashes, resolvedDepths);
+        return new Result(levelMask, hashes, depths);
     }
 }
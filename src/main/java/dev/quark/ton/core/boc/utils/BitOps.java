@@ -0,0 +1,167 @@
+package dev.quark.ton.core.boc.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Bulk bit primitives over big-endian bit arrays (bit 0 is the MSB of byte 0).
+ *
+ * Everything works on up to 64 bits at a time: a run of bits at any offset is
+ * read into a {@code long}, shifted into place and written back, so copying a
+ * full 1023-bit cell payload takes about sixteen word operations.
+ * Bounds are not checked here, callers validate offsets and lengths.
+ */
+public final class BitOps {
+
+    private static final VarHandle LONG_BE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private BitOps() {}
+
+    /* ============================================================ */
+    /* ======================= words ============================== */
+    /* ============================================================ */
+
+    /**
+     * Read {@code bits} (0..64) bits starting at bit {@code offset} as an
+     * unsigned value right-aligned in the result
+     */
+    public static long readLong(byte[] data, int offset, int bits) {
+        if (bits == 0) {
+            return 0;
+        }
+        int i = offset >>> 3;
+        int shift = offset & 7;
+
+        // Whole word available
+        if (shift + bits <= 64 && i + 8 <= data.length) {
+            long w = (long) LONG_BE.get(data, i);
+            return (w << shift) >>> (64 - bits);
+        }
+
+        int have = 8 - shift;
+        long acc = data[i++] & (0xFF >>> shift);
+        if (have >= bits) {
+            return acc >>> (have - bits);
+        }
+        while (bits - have >= 8) {
+            acc = (acc << 8) | (data[i++] & 0xFF);
+            have += 8;
+        }
+        int rest = bits - have;
+        if (rest > 0) {
+            acc = (acc << rest) | ((data[i] & 0xFF) >>> (8 - rest));
+        }
+        return acc;
+    }
+
+    /**
+     * Write the low {@code bits} (0..64) bits of {@code value} at bit
+     * {@code offset}, keeping surrounding bits intact
+     */
+    public static void writeLong(byte[] data, int offset, long value, int bits) {
+        if (bits == 0) {
+            return;
+        }
+        int i = offset >>> 3;
+        int shift = offset & 7;
+
+        // Aligned whole word
+        if (shift == 0 && bits == 64 && i + 8 <= data.length) {
+            LONG_BE.set(data, i, value);
+            return;
+        }
+
+        int room = 8 - shift;
+        if (bits <= room) {
+            int m = ((1 << bits) - 1) << (room - bits);
+            data[i] = (byte) ((data[i] & ~m) | (((int) value << (room - bits)) & m));
+            return;
+        }
+
+        int m = (1 << room) - 1;
+        int left = bits - room;
+        data[i] = (byte) ((data[i] & ~m) | ((int) (value >>> left) & m));
+        i++;
+        while (left >= 8) {
+            left -= 8;
+            data[i++] = (byte) (value >>> left);
+        }
+        if (left > 0) {
+            int mm = (0xFF << (8 - left)) & 0xFF;
+            data[i] = (byte) ((data[i] & ~mm) | (((int) value << (8 - left)) & mm));
+        }
+    }
+
+    /* ============================================================ */
+    /* ======================= bulk =============================== */
+    /* ============================================================ */
+
+    /**
+     * Copy {@code length} bits from {@code src} at {@code srcOffset} into
+     * {@code dst} at {@code dstOffset}. Bits of {@code dst} outside the
+     * target range are kept.
+     */
+    public static void copy(byte[] src, int srcOffset, byte[] dst, int dstOffset, int length) {
+        if (((srcOffset | dstOffset) & 7) == 0) {
+            int bytes = length >>> 3;
+            System.arraycopy(src, srcOffset >>> 3, dst, dstOffset >>> 3, bytes);
+            int tail = length & 7;
+            if (tail != 0) {
+                int at = bytes << 3;
+                writeLong(dst, dstOffset + at, readLong(src, srcOffset + at, tail), tail);
+            }
+            return;
+        }
+        while (length >= 64) {
+            writeLong(dst, dstOffset, readLong(src, srcOffset, 64), 64);
+            srcOffset += 64;
+            dstOffset += 64;
+            length -= 64;
+        }
+        writeLong(dst, dstOffset, readLong(src, srcOffset, length), length);
+    }
+
+    /**
+     * Set {@code length} bits at {@code offset} to {@code value}
+     */
+    public static void fill(byte[] data, int offset, int length, boolean value) {
+        long word = value ? -1L : 0L;
+        while (length >= 64) {
+            writeLong(data, offset, word, 64);
+            offset += 64;
+            length -= 64;
+        }
+        writeLong(data, offset, word, length);
+    }
+
+    /**
+     * Compare two bit ranges of the same length
+     */
+    public static boolean equals(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        while (length >= 64) {
+            if (readLong(a, aOffset, 64) != readLong(b, bOffset, 64)) {
+                return false;
+            }
+            aOffset += 64;
+            bOffset += 64;
+            length -= 64;
+        }
+        return readLong(a, aOffset, length) == readLong(b, bOffset, length);
+    }
+
+    /**
+     * Hash of a bit range that depends only on its length and bit values,
+     * consistent with {@link #equals(byte[], int, byte[], int, int)}
+     */
+    public static int hash(byte[] data, int offset, int length) {
+        int h = 31 + length;
+        while (length >= 64) {
+            h = 31 * h + Long.hashCode(readLong(data, offset, 64));
+            offset += 64;
+            length -= 64;
+        }
+        return 31 * h + Long.hashCode(readLong(data, offset, length));
+    }
+}
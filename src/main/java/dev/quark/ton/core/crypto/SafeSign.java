@@ -7,7 +7,6 @@ import org.bouncycastle.crypto.signers.Ed25519Signer;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.Objects;
 
 /**
@@ -86,14 +85,14 @@ public final class SafeSign {
         }
 
         byte[] cellHash = cell.hash(); // ожидаем 32 bytes как в ton-core
-        byte[] data = new byte[2 + seedData.length + cellHash.length];
 
-        data[0] = (byte) 0xFF;
-        data[1] = (byte) 0xFF;
-        System.arraycopy(seedData, 0, data, 2, seedData.length);
-        System.arraycopy(cellHash, 0, data, 2 + seedData.length, cellHash.length);
-
-        return sha256(data);
+        // sha256(0xffff || seed || hash), streamed into the per-thread digest
+        MessageDigest md = Sha256.digest();
+        md.update((byte) 0xFF);
+        md.update((byte) 0xFF);
+        md.update(seedData);
+        md.update(cellHash);
+        return md.digest();
     }
 
     /**
@@ -111,14 +110,4 @@ public final class SafeSign {
         }
         throw new IllegalArgumentException("Invalid secretKey length: " + secretKey.length + " (expected 32 or 64)");
     }
-
-    private static byte[] sha256(byte[] data) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            return md.digest(data);
-        } catch (NoSuchAlgorithmException e) {
-            // SHA-256 обязателен в любой нормальной JVM
-            throw new IllegalStateException("SHA-256 not available", e);
-        }
-    }
 }
@@ -6,8 +6,28 @@ import java.security.NoSuchAlgorithmException;
 
 public final class Sha256 {
 
+    /** One digest per thread, reused across calls */
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Should never happen on a standard JDK
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
     private Sha256() {}
 
+    /**
+     * Reset SHA-256 digest owned by the calling thread. Feed it and finish with
+     * {@code digest()} before calling any other method of this class.
+     */
+    public static MessageDigest digest() {
+        MessageDigest md = DIGEST.get();
+        md.reset();
+        return md;
+    }
+
     /** Equivalent to sha256_sync(Buffer | string) in ton-crypto. */
     public static byte[] sha256Sync(byte[] source) {
         if (source == null) {
@@ -25,12 +45,6 @@ public final class Sha256 {
     }
 
     private static byte[] sha256(byte[] bytes) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            return md.digest(bytes);
-        } catch (NoSuchAlgorithmException e) {
-            // Should never happen on a standard JDK
-            throw new IllegalStateException("SHA-256 not available", e);
-        }
+        return digest().digest(bytes);
     }
 }
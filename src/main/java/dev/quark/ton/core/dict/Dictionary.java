@@ -5,7 +5,6 @@ import dev.quark.ton.core.boc.BitString;
 import dev.quark.ton.core.boc.Builder;
 import dev.quark.ton.core.boc.Cell;
 import dev.quark.ton.core.boc.Slice;
-import dev.quark.ton.core.dict.utils.InternalKeySerializer;
 
 import java.math.BigInteger;
 import java.util.*;
@@ -16,6 +15,10 @@ import java.util.*;
  * TS:
  *  - DictionaryKeyTypes = Address | number | bigint | Buffer | BitString
  *  - internal Map<string,V> key = serializeInternalKey(key)
+ *
+ * Java keeps entries in a {@link DictionaryStore} keyed by the keys themselves
+ * (primitive longs for numbers), with the same key equality as the internal
+ * strings and the same insertion order.
  */
 public final class Dictionary<K, V> implements Iterable<Map.Entry<K, V>> {
 
@@ -126,11 +129,11 @@ public final class Dictionary<K, V> implements Iterable<Map.Entry<K, V>> {
     // ===== TS: empty/load/loadDirect =====
 
     public static <K, V> Dictionary<K, V> empty(DictionaryKey<K> key, DictionaryValue<V> value) {
-        return new Dictionary<>(new LinkedHashMap<>(), key, value);
+        return new Dictionary<>(key, value);
     }
 
     public static <K, V> Dictionary<K, V> empty() {
-        return new Dictionary<>(new LinkedHashMap<>(), null, null);
+        return new Dictionary<>(null, null);
     }
 
     public static <K, V> Dictionary<K, V> load(DictionaryKey<K> key, DictionaryValue<V> value, Object sc /* Slice|Cell */) {
@@ -172,85 +175,241 @@ public final class Dictionary<K, V> implements Iterable<Map.Entry<K, V>> {
         Map<BigInteger, V> values = ParseDict.parseDict(slice, key.bits(), value::parse);
 
         // TS: prepare.set(serializeInternalKey(key.parse(k)), v);
-        Map<String, V> prepare = new LinkedHashMap<>();
+        Dictionary<K, V> res = new Dictionary<>(key, value);
         for (Map.Entry<BigInteger, V> e : values.entrySet()) {
-            K kk = key.parse(e.getKey());
-            prepare.put(InternalKeySerializer.serializeInternalKey(kk), e.getValue());
+            res.set(key.parse(e.getKey()), e.getValue());
         }
-
-        return new Dictionary<>(prepare, key, value);
+        return res;
     }
 
     // ===== instance fields =====
 
     private final DictionaryKey<K> _key;          // nullable like TS
     private final DictionaryValue<V> _value;      // nullable like TS
-    private final Map<String, V> _map;
+    private DictionaryStore<V> _store;            // created for the first key
+    private KeyIndex<K> _index;                   // sorted keys for navigation, built lazily
 
-    private Dictionary(Map<String, V> values, DictionaryKey<K> key, DictionaryValue<V> value) {
+    private Dictionary(DictionaryKey<K> key, DictionaryValue<V> value) {
         this._key = key;
         this._value = value;
-        this._map = values;
     }
 
     public int size() {
-        return _map.size();
+        return _store == null ? 0 : _store.size();
     }
 
     public V get(K key) {
-        return _map.get(InternalKeySerializer.serializeInternalKey(key));
+        DictionaryStore.checkKey(key);
+        return _store == null ? null : _store.get(key);
     }
 
     public boolean has(K key) {
-        return _map.containsKey(InternalKeySerializer.serializeInternalKey(key));
+        DictionaryStore.checkKey(key);
+        return _store != null && _store.has(key);
     }
 
     public Dictionary<K, V> set(K key, V value) {
-        _map.put(InternalKeySerializer.serializeInternalKey(key), value);
+        DictionaryStore.checkKey(key);
+        if (_store == null) {
+            _store = DictionaryStore.create(key);
+        } else if (!_store.accepts(key)) {
+            // Keys of mixed types
+            _store = DictionaryStore.ValueKeys.copyOf(_store);
+        }
+        _store.put(key, value);
         return this;
     }
 
     public boolean delete(K key) {
-        String k = InternalKeySerializer.serializeInternalKey(key);
-        boolean existed = _map.containsKey(k);
-        _map.remove(k);
-        return existed;
+        DictionaryStore.checkKey(key);
+        return _store != null && _store.remove(key);
     }
 
     public void clear() {
-        _map.clear();
+        if (_store != null) {
+            _store.clear();
+        }
     }
 
     @Override
     public Iterator<Map.Entry<K, V>> iterator() {
-        final Iterator<Map.Entry<String, V>> it = _map.entrySet().iterator();
+        final DictionaryStore<V> store = _store;
+        if (store == null) {
+            return Collections.emptyIterator();
+        }
         return new Iterator<>() {
-            @Override public boolean hasNext() { return it.hasNext(); }
+            private final int expectedModCount = store.modCount;
+            private int entry = store.next(0);
+
+            @Override public boolean hasNext() { return entry >= 0; }
             @Override public Map.Entry<K, V> next() {
-                Map.Entry<String, V> e = it.next();
+                if (entry < 0) {
+                    throw new NoSuchElementException();
+                }
+                if (store.modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
                 @SuppressWarnings("unchecked")
-                K key = (K) InternalKeySerializer.deserializeInternalKey(e.getKey());
-                return new AbstractMap.SimpleImmutableEntry<>(key, e.getValue());
+                K key = (K) store.keyAt(entry);
+                Map.Entry<K, V> res = new AbstractMap.SimpleImmutableEntry<>(key, store.valueAt(entry));
+                entry = store.next(entry + 1);
+                return res;
             }
         };
     }
 
     public List<K> keys() {
-        List<K> res = new ArrayList<>(_map.size());
-        for (String k : _map.keySet()) {
-            @SuppressWarnings("unchecked")
-            K key = (K) InternalKeySerializer.deserializeInternalKey(k);
-            res.add(key);
+        List<K> res = new ArrayList<>(size());
+        for (Map.Entry<K, V> e : this) {
+            res.add(e.getKey());
         }
         return res;
     }
 
     public List<V> values() {
-        return new ArrayList<>(_map.values());
+        List<V> res = new ArrayList<>(size());
+        for (Map.Entry<K, V> e : this) {
+            res.add(e.getValue());
+        }
+        return res;
+    }
+
+    // ===== ordered navigation =====
+    //
+    // In key bit order, as DictionaryView. Entries have no order of their
+    // own, so the first call sorts the serialized keys once; the index is
+    // rebuilt after keys are added or removed (setting a value keeps it).
+
+    public Map.Entry<K, V> first() {
+        return nearest(null, true, true);
+    }
+
+    public Map.Entry<K, V> last() {
+        return nearest(null, false, true);
+    }
+
+    public Map.Entry<K, V> ceiling(K key) {
+        return nearest(orderKey().serialize(key), true, true);
+    }
+
+    public Map.Entry<K, V> floor(K key) {
+        return nearest(orderKey().serialize(key), false, true);
+    }
+
+    public Map.Entry<K, V> next(K key) {
+        return nearest(orderKey().serialize(key), true, false);
+    }
+
+    public Map.Entry<K, V> prev(K key) {
+        return nearest(orderKey().serialize(key), false, false);
+    }
+
+    /**
+     * Entries with keys in {@code [from, to)}, in key order
+     */
+    public Dictionary<K, V> subMap(K from, K to) {
+        BigInteger lo = orderKey().serialize(from);
+        BigInteger hi = orderKey().serialize(to);
+        if (lo.compareTo(hi) > 0) {
+            throw new IllegalArgumentException("from > to");
+        }
+        return range(lo, hi);
+    }
+
+    /**
+     * Entries with keys starting with {@code prefix}, in key order
+     */
+    public Dictionary<K, V> prefixScan(BitString prefix) {
+        BigInteger[] bounds = DictionaryView.prefixBounds(prefix, orderKey().bits());
+        return range(bounds[0], bounds[1]);
+    }
+
+    private DictionaryKey<K> orderKey() {
+        if (_key == null) throw new IllegalStateException("Key serializer is not defined");
+        return _key;
+    }
+
+    /**
+     * Serialized keys in ascending order, with the keys they came from
+     */
+    private static final class KeyIndex<K> {
+        final DictionaryStore<?> store;
+        final int modCount;
+        final BigInteger[] bits;
+        final List<K> keys;
+
+        KeyIndex(DictionaryStore<?> store, BigInteger[] bits, List<K> keys) {
+            this.store = store;
+            this.modCount = store == null ? 0 : store.modCount;
+            this.bits = bits;
+            this.keys = keys;
+        }
+
+        /**
+         * Position of the first key {@code >= bound}
+         */
+        int lowerBound(BigInteger bound) {
+            int i = Arrays.binarySearch(bits, bound);
+            return i >= 0 ? i : -(i + 1);
+        }
+    }
+
+    private KeyIndex<K> index() {
+        KeyIndex<K> index = _index;
+        if (index != null && index.store == _store && (_store == null || index.modCount == _store.modCount)) {
+            return index;
+        }
+        DictionaryKey<K> key = orderKey();
+        List<Map.Entry<BigInteger, K>> sorted = new ArrayList<>(size());
+        for (Map.Entry<K, V> e : this) {
+            sorted.add(new AbstractMap.SimpleImmutableEntry<>(key.serialize(e.getKey()), e.getKey()));
+        }
+        sorted.sort(Map.Entry.comparingByKey());
+        BigInteger[] bits = new BigInteger[sorted.size()];
+        List<K> keys = new ArrayList<>(sorted.size());
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = sorted.get(i).getKey();
+            keys.add(sorted.get(i).getValue());
+        }
+        index = new KeyIndex<>(_store, bits, keys);
+        _index = index;
+        return index;
+    }
+
+    private Map.Entry<K, V> nearest(BigInteger bound, boolean up, boolean inclusive) {
+        KeyIndex<K> index = index();
+        int n = index.bits.length;
+        int i;
+        if (bound == null) {
+            i = up ? 0 : n - 1;
+        } else {
+            i = index.lowerBound(bound);
+            boolean exact = i < n && index.bits[i].equals(bound);
+            if (up) {
+                i += exact && !inclusive ? 1 : 0;
+            } else {
+                i -= exact && inclusive ? 0 : 1;
+            }
+        }
+        if (i < 0 || i >= n) {
+            return null;
+        }
+        K k = index.keys.get(i);
+        return new AbstractMap.SimpleImmutableEntry<>(k, get(k));
+    }
+
+    private Dictionary<K, V> range(BigInteger lo, BigInteger hi) {
+        KeyIndex<K> index = index();
+        Dictionary<K, V> res = new Dictionary<>(_key, _value);
+        for (int i = index.lowerBound(lo), to = index.lowerBound(hi); i < to; i++) {
+            K k = index.keys.get(i);
+            res.set(k, get(k));
+        }
+        return res;
     }
 
     public void store(Builder builder, DictionaryKey<K> key, DictionaryValue<V> value) {
-        if (_map.size() == 0) {
+        if (size() == 0) {
             builder.storeBit(false);
             return;
         }
@@ -266,13 +425,7 @@ public final class Dictionary<K, V> implements Iterable<Map.Entry<K, V>> {
         if (resolvedValue == null) throw new IllegalStateException("Value serializer is not defined");
 
         // Prepare map: prepared.set(resolvedKey.serialize(deserializeInternalKey(k)), v);
-        Map<BigInteger, V> prepared = new LinkedHashMap<>();
-        for (Map.Entry<String, V> e : _map.entrySet()) {
-            Object dk = InternalKeySerializer.deserializeInternalKey(e.getKey());
-            @SuppressWarnings("unchecked")
-            K typed = (K) dk;
-            prepared.put(resolvedKey.serialize(typed), e.getValue());
-        }
+        Map<BigInteger, V> prepared = prepare(resolvedKey);
 
         // Store
         builder.storeBit(true);
@@ -286,7 +439,7 @@ public final class Dictionary<K, V> implements Iterable<Map.Entry<K, V>> {
     }
 
     public void storeDirect(Builder builder, DictionaryKey<K> key, DictionaryValue<V> value) {
-        if (_map.size() == 0) {
+        if (size() == 0) {
             throw new IllegalStateException("Cannot store empty dictionary directly");
         }
 
@@ -301,18 +454,20 @@ public final class Dictionary<K, V> implements Iterable<Map.Entry<K, V>> {
         if (resolvedValue == null) throw new IllegalStateException("Value serializer is not defined");
 
         // Prepare map
-        Map<BigInteger, V> prepared = new LinkedHashMap<>();
-        for (Map.Entry<String, V> e : _map.entrySet()) {
-            Object dk = InternalKeySerializer.deserializeInternalKey(e.getKey());
-            @SuppressWarnings("unchecked")
-            K typed = (K) dk;
-            prepared.put(resolvedKey.serialize(typed), e.getValue());
-        }
+        Map<BigInteger, V> prepared = prepare(resolvedKey);
 
         // Store direct
         SerializeDict.serializeDict(prepared, resolvedKey.bits(), resolvedValue::serialize, builder);
     }
 
+    private Map<BigInteger, V> prepare(DictionaryKey<K> key) {
+        Map<BigInteger, V> prepared = new LinkedHashMap<>();
+        for (Map.Entry<K, V> e : this) {
+            prepared.put(key.serialize(e.getKey()), e.getValue());
+        }
+        return prepared;
+    }
+
     public Cell generateMerkleProof(K key) {
         if (_key == null) throw new IllegalStateException("Key serializer is not defined");
         if (_value == null) throw new IllegalStateException("Value serializer is not defined");
@@ -0,0 +1,378 @@
+package dev.quark.ton.core.dict;
+
+import dev.quark.ton.core.address.Address;
+import dev.quark.ton.core.boc.BitString;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Insertion-ordered hash table behind {@link Dictionary}, keyed by the
+ * dictionary keys themselves instead of their internal string form.
+ *
+ * Entries are kept in dense arrays in insertion order and located through an
+ * open-addressing table of entry indexes. Deleted entries leave holes that are
+ * squeezed out when the arrays fill up. {@link LongKeys} holds Uint/Int keys
+ * as primitive longs; {@link ValueKeys} holds any key type and compares
+ * bigints, addresses, buffers and bit strings by value.
+ */
+abstract class DictionaryStore<V> {
+
+    // JS Number.MAX_SAFE_INTEGER = 2^53 - 1, as in InternalKeySerializer
+    private static final long MAX_SAFE_INTEGER = 9007199254740991L;
+
+    private static final Object DELETED = new Object();
+
+    private int[] table = new int[8];   // entry index + 1, 0 is a free slot
+    private int[] hashes = new int[4];
+    private Object[] values = new Object[4];
+    private int count;                  // used entries, holes included
+    private int size;
+    int modCount;
+
+    /* ============================================================ */
+    /* ======================= keys =============================== */
+    /* ============================================================ */
+
+    /**
+     * Store suited to {@code key}, the first key of a dictionary
+     */
+    static <V> DictionaryStore<V> create(Object key) {
+        return isLong(key) ? new LongKeys<>() : new ValueKeys<>();
+    }
+
+    /**
+     * @throws IllegalArgumentException for keys that {@code InternalKeySerializer} rejects
+     */
+    static void checkKey(Object key) {
+        if (isLong(key)) {
+            long v = ((Number) key).longValue();
+            if (v > MAX_SAFE_INTEGER || v < -MAX_SAFE_INTEGER) {
+                throw new IllegalArgumentException("Invalid key type: not a safe integer: " + v);
+            }
+        } else if (!(key instanceof BigInteger || key instanceof Address
+                || key instanceof byte[] || key instanceof BitString)) {
+            throw new IllegalArgumentException("Invalid key type");
+        }
+    }
+
+    static boolean isLong(Object key) {
+        return key instanceof Long || key instanceof Integer;
+    }
+
+    abstract boolean accepts(Object key);
+
+    abstract int hashOf(Object key);
+
+    abstract boolean matches(int entry, Object key);
+
+    abstract Object keyAt(int entry);
+
+    abstract void setKey(int entry, Object key);
+
+    abstract void moveKey(int from, int to);
+
+    abstract void resizeKeys(int capacity);
+
+    /* ============================================================ */
+    /* ======================= operations ========================= */
+    /* ============================================================ */
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(Object key) {
+        int e = find(key);
+        return e < 0 ? null : (V) values[e];
+    }
+
+    boolean has(Object key) {
+        return find(key) >= 0;
+    }
+
+    void put(Object key, V value) {
+        int h = spread(hashOf(key));
+        int slot = slot(key, h);
+        if (table[slot] != 0) {
+            values[table[slot] - 1] = value;
+            return;
+        }
+        if (count == values.length) {
+            makeRoom();
+            slot = slot(key, h);
+        }
+        int e = count++;
+        setKey(e, key);
+        hashes[e] = h;
+        values[e] = value;
+        table[slot] = e + 1;
+        size++;
+        modCount++;
+    }
+
+    boolean remove(Object key) {
+        if (!accepts(key)) {
+            return false;
+        }
+        int slot = slot(key, spread(hashOf(key)));
+        if (table[slot] == 0) {
+            return false;
+        }
+        int e = table[slot] - 1;
+        values[e] = DELETED;
+        setKey(e, null);
+        size--;
+        modCount++;
+        deleteSlot(slot);
+        return true;
+    }
+
+    void clear() {
+        for (int e = 0; e < count; e++) {
+            setKey(e, null);
+        }
+        table = new int[8];
+        hashes = new int[4];
+        values = new Object[4];
+        resizeKeys(4);
+        count = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * First live entry at or after {@code from} in insertion order, -1 if none
+     */
+    int next(int from) {
+        for (int e = from; e < count; e++) {
+            if (values[e] != DELETED) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    V valueAt(int entry) {
+        return (V) values[entry];
+    }
+
+    /* ============================================================ */
+    /* ======================= table ============================== */
+    /* ============================================================ */
+
+    private int find(Object key) {
+        if (!accepts(key)) {
+            return -1;
+        }
+        int e = table[slot(key, spread(hashOf(key)))];
+        return e - 1;
+    }
+
+    /**
+     * Slot holding {@code key}, or the free slot ending its probe sequence
+     */
+    private int slot(Object key, int h) {
+        int mask = table.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int e = table[i] - 1;
+            if (e < 0 || (hashes[e] == h && matches(e, key))) {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * Backward-shift deletion keeps probe sequences unbroken without tombstones
+     */
+    private void deleteSlot(int slot) {
+        int mask = table.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask; table[i] != 0; i = (i + 1) & mask) {
+            int home = hashes[table[i] - 1] & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                table[hole] = table[i];
+                hole = i;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    private void makeRoom() {
+        if (size <= count - (count >> 2)) {
+            // A quarter or more are holes: compact in place, keeping the order
+            int to = 0;
+            for (int from = 0; from < count; from++) {
+                if (values[from] == DELETED) {
+                    continue;
+                }
+                if (from != to) {
+                    moveKey(from, to);
+                    hashes[to] = hashes[from];
+                    values[to] = values[from];
+                }
+                to++;
+            }
+            Arrays.fill(values, to, count, null);
+            for (int e = to; e < count; e++) {
+                setKey(e, null);
+            }
+            count = to;
+        } else {
+            int capacity = values.length * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            values = Arrays.copyOf(values, capacity);
+            resizeKeys(capacity);
+            table = new int[capacity * 2];
+        }
+
+        Arrays.fill(table, 0);
+        int mask = table.length - 1;
+        for (int e = 0; e < count; e++) {
+            if (values[e] == DELETED) {
+                continue;
+            }
+            int i = hashes[e] & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = e + 1;
+        }
+    }
+
+    private static int spread(int h) {
+        // murmur3 finalizer: linear probing needs well mixed low bits
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    /* ============================================================ */
+    /* ======================= backends =========================== */
+    /* ============================================================ */
+
+    /**
+     * Uint/Int keys as primitive longs
+     */
+    static final class LongKeys<V> extends DictionaryStore<V> {
+
+        private long[] keys = new long[4];
+
+        @Override
+        boolean accepts(Object key) {
+            return isLong(key);
+        }
+
+        @Override
+        int hashOf(Object key) {
+            return Long.hashCode(((Number) key).longValue());
+        }
+
+        @Override
+        boolean matches(int entry, Object key) {
+            return keys[entry] == ((Number) key).longValue();
+        }
+
+        @Override
+        Object keyAt(int entry) {
+            return keys[entry];
+        }
+
+        @Override
+        void setKey(int entry, Object key) {
+            keys[entry] = key == null ? 0 : ((Number) key).longValue();
+        }
+
+        @Override
+        void moveKey(int from, int to) {
+            keys[to] = keys[from];
+        }
+
+        @Override
+        void resizeKeys(int capacity) {
+            keys = Arrays.copyOf(keys, capacity);
+        }
+    }
+
+    /**
+     * Keys of any type, compared by value: numbers as longs, bigints by
+     * magnitude, addresses by workchain and hash, buffers and bit strings by
+     * their bits. Keys of different types never match, like their internal
+     * string forms.
+     */
+    static final class ValueKeys<V> extends DictionaryStore<V> {
+
+        private Object[] keys = new Object[4];
+
+        /**
+         * Copy of {@code src} in its insertion order
+         */
+        static <V> ValueKeys<V> copyOf(DictionaryStore<V> src) {
+            ValueKeys<V> res = new ValueKeys<>();
+            for (int e = src.next(0); e >= 0; e = src.next(e + 1)) {
+                res.put(src.keyAt(e), src.valueAt(e));
+            }
+            return res;
+        }
+
+        @Override
+        boolean accepts(Object key) {
+            return true;
+        }
+
+        @Override
+        int hashOf(Object key) {
+            if (isLong(key)) {
+                return Long.hashCode(((Number) key).longValue());
+            } else if (key instanceof Address a) {
+                return 31 * a.workChain + Arrays.hashCode(a.hash);
+            } else if (key instanceof byte[] b) {
+                return Arrays.hashCode(b);
+            }
+            return key.hashCode();
+        }
+
+        @Override
+        boolean matches(int entry, Object key) {
+            Object k = keys[entry];
+            if (isLong(key)) {
+                return k instanceof Long l && l == ((Number) key).longValue();
+            } else if (key instanceof Address a) {
+                return k instanceof Address ka && ka.equals(a);
+            } else if (key instanceof byte[] b) {
+                return k instanceof byte[] kb && Arrays.equals(kb, b);
+            }
+            return key.getClass() == k.getClass() && key.equals(k);
+        }
+
+        @Override
+        Object keyAt(int entry) {
+            Object k = keys[entry];
+            return k instanceof byte[] b ? b.clone() : k;
+        }
+
+        @Override
+        void setKey(int entry, Object key) {
+            if (key instanceof Integer i) {
+                key = i.longValue();
+            } else if (key instanceof byte[] b) {
+                key = b.clone();
+            }
+            keys[entry] = key;
+        }
+
+        @Override
+        void moveKey(int from, int to) {
+            keys[to] = keys[from];
+        }
+
+        @Override
+        void resizeKeys(int capacity) {
+            keys = Arrays.copyOf(keys, capacity);
+        }
+    }
+}
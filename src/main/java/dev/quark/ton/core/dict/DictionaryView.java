@@ -0,0 +1,367 @@
+package dev.quark.ton.core.dict;
+
+import dev.quark.ton.core.boc.BitString;
+import dev.quark.ton.core.boc.Cell;
+import dev.quark.ton.core.boc.Slice;
+
+import java.math.BigInteger;
+import java.util.AbstractMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-only dictionary over a HashmapE cell trie, without parsing it.
+ *
+ * {@link #get} follows the labels of the trie along the key in O(key bits)
+ * and decodes only the leaf it ends at, so one entry of a large dictionary
+ * (accounts of a shard state, config params) is read without touching the
+ * rest. Like {@link Dictionary#load}, pruned subtrees read as missing.
+ * A view made by {@link #withCache} also keeps the recently decoded values.
+ *
+ * Navigation ({@link #first}, {@link #ceiling}, {@link #subMap}, ...) goes in
+ * key bit order, as the unsigned {@code DICTU} ops of TVM, and skips every
+ * subtree whose label puts it out of range, so a page of entries costs
+ * O(page + key bits). Signed {@code Int} keys are stored in two's complement,
+ * so in this order negative keys come after the non-negative ones.
+ */
+public final class DictionaryView<K, V> {
+
+    private final Dictionary.DictionaryKey<K> key;
+    private final Dictionary.DictionaryValue<V> value;
+    private final Cell root; // null when empty
+    private final Map<BigInteger, V> cache; // LRU of decoded values, null when off
+
+    private DictionaryView(Dictionary.DictionaryKey<K> key, Dictionary.DictionaryValue<V> value, Cell root, int cacheSize) {
+        this.key = key;
+        this.value = value;
+        this.root = root;
+        this.cache = cacheSize <= 0 ? null : new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<BigInteger, V> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /* ============================================================ */
+    /* ======================= load =============================== */
+    /* ============================================================ */
+
+    /**
+     * View of a {@code HashmapE}: maybe-ref to the root, as {@link Dictionary#load}
+     */
+    public static <K, V> DictionaryView<K, V> load(Dictionary.DictionaryKey<K> key, Dictionary.DictionaryValue<V> value, Object sc /* Slice|Cell */) {
+        final Slice slice;
+        if (sc instanceof Cell c) {
+            if (c.isExotic()) {
+                return new DictionaryView<>(key, value, null, 0);
+            }
+            slice = c.beginParse();
+        } else if (sc instanceof Slice s) {
+            slice = s;
+        } else {
+            throw new IllegalArgumentException("sc must be Slice or Cell");
+        }
+
+        Cell cell = slice.loadMaybeRef();
+        if (cell != null && !cell.isExotic()) {
+            return new DictionaryView<>(key, value, cell, 0);
+        }
+        return new DictionaryView<>(key, value, null, 0);
+    }
+
+    /**
+     * View of a {@code Hashmap} root cell, as {@link Dictionary#loadDirect}
+     */
+    public static <K, V> DictionaryView<K, V> loadDirect(Dictionary.DictionaryKey<K> key, Dictionary.DictionaryValue<V> value, Cell root /* nullable */) {
+        return new DictionaryView<>(key, value, root, 0);
+    }
+
+    /**
+     * Same view keeping up to {@code size} recently decoded values
+     */
+    public DictionaryView<K, V> withCache(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Cache size must be >= 0");
+        }
+        return new DictionaryView<>(key, value, root, size);
+    }
+
+    /* ============================================================ */
+    /* ======================= lookups ============================ */
+    /* ============================================================ */
+
+    public Cell root() {
+        return root;
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public V get(K k) {
+        BigInteger bits = key.serialize(k);
+        if (cache != null) {
+            synchronized (cache) {
+                V v = cache.get(bits);
+                if (v != null) {
+                    return v;
+                }
+            }
+        }
+
+        Slice leaf = find(bits);
+        if (leaf == null) {
+            return null;
+        }
+        V v = value.parse(leaf);
+        if (cache != null && v != null) {
+            synchronized (cache) {
+                cache.put(bits, v);
+            }
+        }
+        return v;
+    }
+
+    public boolean has(K k) {
+        return find(key.serialize(k)) != null;
+    }
+
+    /**
+     * Parse the whole trie
+     */
+    public Dictionary<K, V> toDictionary() {
+        return Dictionary.loadDirect(key, value, root);
+    }
+
+    /* ============================================================ */
+    /* ======================= navigation ========================= */
+    /* ============================================================ */
+
+    /**
+     * Entry with the least key, null if empty
+     */
+    public Map.Entry<K, V> first() {
+        return nearest(null, true, true);
+    }
+
+    /**
+     * Entry with the greatest key, null if empty
+     */
+    public Map.Entry<K, V> last() {
+        return nearest(null, false, true);
+    }
+
+    /**
+     * Entry with the least key {@code >= k}, null if none
+     */
+    public Map.Entry<K, V> ceiling(K k) {
+        return nearest(key.serialize(k), true, true);
+    }
+
+    /**
+     * Entry with the greatest key {@code <= k}, null if none
+     */
+    public Map.Entry<K, V> floor(K k) {
+        return nearest(key.serialize(k), false, true);
+    }
+
+    /**
+     * Entry with the least key {@code > k}, null if none
+     */
+    public Map.Entry<K, V> next(K k) {
+        return nearest(key.serialize(k), true, false);
+    }
+
+    /**
+     * Entry with the greatest key {@code < k}, null if none
+     */
+    public Map.Entry<K, V> prev(K k) {
+        return nearest(key.serialize(k), false, false);
+    }
+
+    /**
+     * Entries with keys in {@code [from, to)}, in key order
+     */
+    public Dictionary<K, V> subMap(K from, K to) {
+        BigInteger lo = key.serialize(from);
+        BigInteger hi = key.serialize(to);
+        if (lo.compareTo(hi) > 0) {
+            throw new IllegalArgumentException("from > to");
+        }
+        return range(lo, hi);
+    }
+
+    /**
+     * Entries with keys starting with {@code prefix}, in key order
+     */
+    public Dictionary<K, V> prefixScan(BitString prefix) {
+        BigInteger[] bounds = prefixBounds(prefix, key.bits());
+        return range(bounds[0], bounds[1]);
+    }
+
+    /**
+     * Keys starting with {@code prefix} as a range {@code [lo, hi)}
+     */
+    static BigInteger[] prefixBounds(BitString prefix, int keyLength) {
+        int rest = keyLength - prefix.length();
+        if (rest < 0) {
+            throw new IllegalArgumentException("Prefix of " + prefix.length() + " bits is longer than the key");
+        }
+        BigInteger p = BigInteger.ZERO;
+        for (int i = 0; i < prefix.length(); i++) {
+            p = prefix.at(i) ? p.shiftLeft(1).setBit(0) : p.shiftLeft(1);
+        }
+        return new BigInteger[]{p.shiftLeft(rest), p.add(BigInteger.ONE).shiftLeft(rest)};
+    }
+
+    private Map.Entry<K, V> nearest(BigInteger bound, boolean up, boolean inclusive) {
+        return root == null ? null : nearest(root, key.bits(), BigInteger.ZERO, bound, up, inclusive);
+    }
+
+    /**
+     * Entry nearest to {@code bound} in the direction {@code up} under a node
+     * with {@code n} key bits left below {@code prefix}
+     *
+     * @param bound null for the extreme entry
+     */
+    private Map.Entry<K, V> nearest(Cell cell, int n, BigInteger prefix, BigInteger bound, boolean up, boolean inclusive) {
+        if (cell.isExotic()) {
+            return null;
+        }
+        Slice s = cell.beginParse();
+        HashmapLabel label = HashmapLabel.read(s, n);
+        n -= label.length();
+        prefix = prefix.shiftLeft(label.length()).or(label.loadUint(s));
+
+        if (bound != null) {
+            int c = prefix.compareTo(bound.shiftRight(n));
+            if (c != 0) {
+                // The whole subtree is on one side of the bound
+                if ((c > 0) != up) {
+                    return null;
+                }
+                bound = null;
+            }
+        }
+        if (n == 0) {
+            if (bound != null && !inclusive) {
+                return null;
+            }
+            return new AbstractMap.SimpleImmutableEntry<>(key.parse(prefix), value.parse(s));
+        }
+
+        // Fork: the near side first, the far side only if the near one has nothing
+        Cell left = s.loadRef();
+        Cell right = s.loadRef();
+        BigInteger base = prefix.shiftLeft(1);
+        Map.Entry<K, V> res = up
+                ? nearest(left, n - 1, base, bound, true, inclusive)
+                : nearest(right, n - 1, base.setBit(0), bound, false, inclusive);
+        if (res != null) {
+            return res;
+        }
+        return up
+                ? nearest(right, n - 1, base.setBit(0), bound, true, inclusive)
+                : nearest(left, n - 1, base, bound, false, inclusive);
+    }
+
+    private Dictionary<K, V> range(BigInteger lo, BigInteger hi) {
+        Dictionary<K, V> res = Dictionary.empty(key, value);
+        if (root != null) {
+            collect(root, key.bits(), BigInteger.ZERO, lo, hi, res);
+        }
+        return res;
+    }
+
+    /**
+     * Add the entries with keys in {@code [lo, hi)} under a node, in key order
+     */
+    private void collect(Cell cell, int n, BigInteger prefix, BigInteger lo, BigInteger hi, Dictionary<K, V> to) {
+        if (cell.isExotic()) {
+            return;
+        }
+        Slice s = cell.beginParse();
+        HashmapLabel label = HashmapLabel.read(s, n);
+        n -= label.length();
+        prefix = prefix.shiftLeft(label.length()).or(label.loadUint(s));
+
+        // Keys of the subtree are [prefix << n, (prefix + 1) << n)
+        if (prefix.shiftLeft(n).compareTo(hi) >= 0 || prefix.add(BigInteger.ONE).shiftLeft(n).compareTo(lo) <= 0) {
+            return;
+        }
+        if (n == 0) {
+            to.set(key.parse(prefix), value.parse(s));
+            return;
+        }
+        Cell left = s.loadRef();
+        Cell right = s.loadRef();
+        BigInteger base = prefix.shiftLeft(1);
+        collect(left, n - 1, base, lo, hi, to);
+        collect(right, n - 1, base.setBit(0), lo, hi, to);
+    }
+
+    /**
+     * Walk the labels along {@code k}
+     *
+     * @return slice of the leaf positioned at its value, null if there is no such key
+     */
+    private Slice find(BigInteger k) {
+        if (root == null) {
+            return null;
+        }
+        int keyLength = key.bits();
+        int n = keyLength;   // key bits left below this node
+        int pos = 0;         // key bits consumed
+        Cell cell = root;
+
+        while (true) {
+            if (cell.isExotic()) {
+                return null;
+            }
+            Slice s = cell.beginParse();
+
+            // Label
+            HashmapLabel label = HashmapLabel.read(s, n);
+            int length = label.length();
+            if (!label.isSame()) {
+                if (!matches(s, k, keyLength, pos, length)) {
+                    return null;
+                }
+            } else {
+                boolean bit = label.same() == 1;
+                for (int i = 0; i < length; i++) {
+                    if (keyBit(k, keyLength, pos + i) != bit) {
+                        return null;
+                    }
+                }
+            }
+            pos += length;
+            n -= length;
+
+            if (n == 0) {
+                return s;
+            }
+
+            // Fork
+            Cell left = s.loadRef();
+            Cell right = s.loadRef();
+            cell = keyBit(k, keyLength, pos) ? right : left;
+            pos++;
+            n--;
+        }
+    }
+
+    private static boolean matches(Slice s, BigInteger k, int keyLength, int pos, int length) {
+        for (int i = 0; i < length; i++) {
+            if (s.loadBit() != keyBit(k, keyLength, pos + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean keyBit(BigInteger k, int keyLength, int i) {
+        return k.testBit(keyLength - 1 - i);
+    }
+}
@@ -0,0 +1,70 @@
+package dev.quark.ton.core.dict;
+
+import dev.quark.ton.core.boc.BitString;
+import dev.quark.ton.core.boc.Slice;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * {@code HashmapLabel} of a dictionary node, the reading side of
+ * {@link SerializeDict#writeLabel}.
+ *
+ * {@link #read} consumes the header only. The bits of a short or long label
+ * are left in the slice for {@link #loadUint}, {@link #loadBits} or a caller
+ * matching them bit by bit; a same label has none.
+ *
+ * @param length label length in bits
+ * @param same   repeated bit of a same label, -1 for short and long labels
+ */
+record HashmapLabel(int length, int same) {
+
+    /**
+     * Read the label header of a node with {@code n} key bits left
+     */
+    static HashmapLabel read(Slice s, int n) {
+        if (!s.loadBit()) {
+            // Short label: unary length, then bits
+            int length = 0;
+            while (s.loadBit()) {
+                length++;
+            }
+            return new HashmapLabel(length, -1);
+        }
+        if (!s.loadBit()) {
+            // Long label: length, then bits
+            return new HashmapLabel((int) s.loadUint(SerializeDict.ceilLog2(n + 1)), -1);
+        }
+        // Same label: one bit repeated
+        int bit = s.loadBit() ? 1 : 0;
+        return new HashmapLabel((int) s.loadUint(SerializeDict.ceilLog2(n + 1)), bit);
+    }
+
+    boolean isSame() {
+        return same >= 0;
+    }
+
+    /**
+     * Label bits as an unsigned number, taken from {@code s} unless the label is a same label
+     */
+    BigInteger loadUint(Slice s) {
+        if (!isSame()) {
+            return s.loadUintBig(length);
+        }
+        return same == 1 ? BigInteger.ONE.shiftLeft(length).subtract(BigInteger.ONE) : BigInteger.ZERO;
+    }
+
+    /**
+     * Label bits, taken from {@code s} unless the label is a same label
+     */
+    BitString loadBits(Slice s) {
+        if (!isSame()) {
+            return s.loadBits(length);
+        }
+        byte[] data = new byte[(length + 7) >> 3];
+        if (same == 1) {
+            Arrays.fill(data, (byte) 0xFF);
+        }
+        return new BitString(data, 0, length);
+    }
+}
@@ -0,0 +1,384 @@
+package dev.quark.ton.core.dict;
+
+import dev.quark.ton.core.boc.BitBuilder;
+import dev.quark.ton.core.boc.BitString;
+import dev.quark.ton.core.boc.Builder;
+import dev.quark.ton.core.boc.Cell;
+import dev.quark.ton.core.boc.Slice;
+
+import java.util.Map;
+
+import static dev.quark.ton.core.boc.Builder.beginCell;
+
+/**
+ * Immutable dictionary kept as its serialized Patricia trie.
+ *
+ * Every node of the trie is its own cell, so {@link #set} and {@link #delete}
+ * rebuild (and hash) only the cells on the path from the root to the key and
+ * share all other subtrees with the previous version; {@link #store} then
+ * writes the root as is. The trie is the same cell {@link SerializeDict}
+ * builds from the same entries.
+ *
+ * Augmented dictionaries ({@code HashmapAug}) take an {@link Augmentation}:
+ * every rebuilt fork then stores the extra combined from its children. Leaf
+ * extras come first in the leaf data and are part of the value, as in
+ * {@code ShardAccounts}. Pruned subtrees read as missing and cannot be
+ * changed; an augmented fork also cannot be rebuilt over a pruned child.
+ */
+public final class PersistentDictionary<K, V> {
+
+    /**
+     * Extra of an augmented dictionary: how it is stored, and how a fork
+     * combines the extras of its children
+     */
+    public interface Augmentation<E> extends Dictionary.DictionaryValue<E> {
+
+        E combine(E left, E right);
+
+        /**
+         * Extra of an empty dictionary, stored by {@code ahme_empty}
+         */
+        E empty();
+    }
+
+    private final Dictionary.DictionaryKey<K> key;
+    private final Dictionary.DictionaryValue<V> value;
+    private final Augmentation<?> extra; // null for plain dictionaries
+    private final DictionaryView<K, V> view;
+
+    private PersistentDictionary(Dictionary.DictionaryKey<K> key, Dictionary.DictionaryValue<V> value, Augmentation<?> extra, Cell root) {
+        this.key = key;
+        this.value = value;
+        this.extra = extra;
+        this.view = DictionaryView.loadDirect(key, value, root);
+    }
+
+    /* ============================================================ */
+    /* ======================= factories ========================== */
+    /* ============================================================ */
+
+    public static <K, V> PersistentDictionary<K, V> empty(Dictionary.DictionaryKey<K> key, Dictionary.DictionaryValue<V> value) {
+        return new PersistentDictionary<>(key, value, null, null);
+    }
+
+    public static <K, V> PersistentDictionary<K, V> empty(Dictionary.DictionaryKey<K> key, Dictionary.DictionaryValue<V> value, Augmentation<?> extra) {
+        return new PersistentDictionary<>(key, value, extra, null);
+    }
+
+    /**
+     * Dictionary of a {@code HashmapE}: maybe-ref to the root, as {@link Dictionary#load}
+     */
+    public static <K, V> PersistentDictionary<K, V> load(Dictionary.DictionaryKey<K> key, Dictionary.DictionaryValue<V> value, Object sc /* Slice|Cell */) {
+        return new PersistentDictionary<>(key, value, null, DictionaryView.load(key, value, sc).root());
+    }
+
+    /**
+     * Dictionary of a {@code HashmapAugE}; the root extra after the root ref is not read
+     */
+    public static <K, V> PersistentDictionary<K, V> load(Dictionary.DictionaryKey<K> key, Dictionary.DictionaryValue<V> value, Augmentation<?> extra, Object sc /* Slice|Cell */) {
+        return new PersistentDictionary<>(key, value, extra, DictionaryView.load(key, value, sc).root());
+    }
+
+    /**
+     * Dictionary of a {@code Hashmap} root cell, as {@link Dictionary#loadDirect}
+     */
+    public static <K, V> PersistentDictionary<K, V> loadDirect(Dictionary.DictionaryKey<K> key, Dictionary.DictionaryValue<V> value, Cell root /* nullable */) {
+        return new PersistentDictionary<>(key, value, null, root);
+    }
+
+    /**
+     * Dictionary of a {@code HashmapAug} root cell
+     */
+    public static <K, V> PersistentDictionary<K, V> loadDirect(Dictionary.DictionaryKey<K> key, Dictionary.DictionaryValue<V> value, Augmentation<?> extra, Cell root /* nullable */) {
+        return new PersistentDictionary<>(key, value, extra, root);
+    }
+
+    public static <K, V> PersistentDictionary<K, V> of(Dictionary<K, V> src, Dictionary.DictionaryKey<K> key, Dictionary.DictionaryValue<V> value) {
+        if (src.size() == 0) {
+            return empty(key, value);
+        }
+        return new PersistentDictionary<>(key, value, null, beginCell().storeDictDirect(src, key, value).endCell());
+    }
+
+    /**
+     * Augmented dictionary of the entries of {@code src}, inserted one by one
+     */
+    public static <K, V> PersistentDictionary<K, V> of(Dictionary<K, V> src, Dictionary.DictionaryKey<K> key, Dictionary.DictionaryValue<V> value, Augmentation<?> extra) {
+        PersistentDictionary<K, V> res = empty(key, value, extra);
+        for (Map.Entry<K, V> e : src) {
+            res = res.set(e.getKey(), e.getValue());
+        }
+        return res;
+    }
+
+    /* ============================================================ */
+    /* ======================= reads ============================== */
+    /* ============================================================ */
+
+    /**
+     * Root cell of the trie, null when empty
+     */
+    public Cell root() {
+        return view.root();
+    }
+
+    public boolean isEmpty() {
+        return view.isEmpty();
+    }
+
+    public V get(K k) {
+        return view.get(k);
+    }
+
+    public boolean has(K k) {
+        return view.has(k);
+    }
+
+    public Dictionary<K, V> toDictionary() {
+        return view.toDictionary();
+    }
+
+    /* ============================================================ */
+    /* ======================= navigation ========================= */
+    /* ============================================================ */
+
+    // In key bit order on the trie, see DictionaryView
+
+    public Map.Entry<K, V> first() {
+        return view.first();
+    }
+
+    public Map.Entry<K, V> last() {
+        return view.last();
+    }
+
+    public Map.Entry<K, V> ceiling(K k) {
+        return view.ceiling(k);
+    }
+
+    public Map.Entry<K, V> floor(K k) {
+        return view.floor(k);
+    }
+
+    public Map.Entry<K, V> next(K k) {
+        return view.next(k);
+    }
+
+    public Map.Entry<K, V> prev(K k) {
+        return view.prev(k);
+    }
+
+    public Dictionary<K, V> subMap(K from, K to) {
+        return view.subMap(from, to);
+    }
+
+    public Dictionary<K, V> prefixScan(BitString prefix) {
+        return view.prefixScan(prefix);
+    }
+
+    /**
+     * Store as {@code HashmapE}, or as {@code HashmapAugE} with the root extra
+     */
+    public void store(Builder builder) {
+        if (isEmpty()) {
+            builder.storeBit(false);
+            if (extra != null) {
+                storeEmptyExtra(extra, builder);
+            }
+        } else {
+            builder.storeBit(true);
+            builder.storeRef(root());
+            if (extra != null) {
+                copyExtra(extra, root(), key.bits(), builder);
+            }
+        }
+    }
+
+    public void storeDirect(Builder builder) {
+        if (isEmpty()) {
+            throw new IllegalStateException("Cannot store empty dictionary directly");
+        }
+        builder.storeSlice(root().beginParse());
+    }
+
+    /* ============================================================ */
+    /* ======================= updates ============================ */
+    /* ============================================================ */
+
+    /**
+     * Dictionary with {@code k} set to {@code v}; this one is not changed
+     */
+    public PersistentDictionary<K, V> set(K k, V v) {
+        BitString bits = keyBits(k);
+        Cell root = isEmpty()
+                ? leaf(bits, key.bits(), v)
+                : insert(root(), bits, 0, key.bits(), v);
+        return new PersistentDictionary<>(key, value, extra, root);
+    }
+
+    /**
+     * Dictionary without {@code k}; this one if there is no such key
+     */
+    public PersistentDictionary<K, V> delete(K k) {
+        if (isEmpty()) {
+            return this;
+        }
+        Cell root = remove(root(), keyBits(k), 0, key.bits());
+        return root == root() ? this : new PersistentDictionary<>(key, value, extra, root);
+    }
+
+    /**
+     * Node for {@code key[pos, pos + n)} set to {@code v} under {@code node}
+     */
+    private Cell insert(Cell node, BitString k, int pos, int n, V v) {
+        Slice s = parse(node);
+        BitString label = readLabel(s, n);
+        int len = label.length();
+        int p = commonPrefix(label, k, pos);
+
+        if (p == len) {
+            if (len == n) {
+                // Same key: new leaf
+                return leaf(k.substring(pos, n), n, v);
+            }
+            Cell left = s.loadRef();
+            Cell right = s.loadRef();
+            boolean bit = k.at(pos + len);
+            Cell child = insert(bit ? right : left, k, pos + len + 1, n - len - 1, v);
+            return fork(label, n, bit ? left : child, bit ? child : right);
+        }
+
+        // Split the edge after the common prefix; the old node keeps its content
+        Builder rest = beginCell();
+        SerializeDict.writeLabel(label.substring(p + 1, len - p - 1), n - p - 1, rest);
+        rest.storeSlice(s);
+        Cell old = rest.endCell();
+        Cell fresh = leaf(k.substring(pos + p + 1, n - p - 1), n - p - 1, v);
+        boolean bit = k.at(pos + p);
+        return fork(label.substring(0, p), n, bit ? old : fresh, bit ? fresh : old);
+    }
+
+    /**
+     * Node without {@code key[pos, pos + n)}: the same node if it has no such
+     * key, null if nothing is left
+     */
+    private Cell remove(Cell node, BitString k, int pos, int n) {
+        if (node.isExotic()) {
+            return node;
+        }
+        Slice s = node.beginParse();
+        BitString label = readLabel(s, n);
+        int len = label.length();
+        if (commonPrefix(label, k, pos) < len) {
+            return node;
+        }
+        if (len == n) {
+            return null;
+        }
+
+        Cell left = s.loadRef();
+        Cell right = s.loadRef();
+        boolean bit = k.at(pos + len);
+        Cell child = bit ? right : left;
+        Cell updated = remove(child, k, pos + len + 1, n - len - 1);
+        if (updated == child) {
+            return node;
+        }
+        if (updated != null) {
+            return fork(label, n, bit ? left : updated, bit ? updated : right);
+        }
+
+        // One child left: merge it into this edge
+        Slice sibling = parse(bit ? left : right);
+        BitString tail = readLabel(sibling, n - len - 1);
+        BitBuilder merged = new BitBuilder(len + 1 + tail.length());
+        merged.writeBits(label);
+        merged.writeBit(!bit);
+        merged.writeBits(tail);
+        Builder b = beginCell();
+        SerializeDict.writeLabel(merged.build(), n, b);
+        b.storeSlice(sibling);
+        return b.endCell();
+    }
+
+    private Cell leaf(BitString label, int n, V v) {
+        Builder b = beginCell();
+        SerializeDict.writeLabel(label, n, b);
+        value.serialize(v, b);
+        return b.endCell();
+    }
+
+    private Cell fork(BitString label, int n, Cell left, Cell right) {
+        Builder b = beginCell();
+        SerializeDict.writeLabel(label, n, b);
+        b.storeRef(left);
+        b.storeRef(right);
+        if (extra != null) {
+            combineExtra(extra, left, right, n - label.length() - 1, b);
+        }
+        return b.endCell();
+    }
+
+    /* ============================================================ */
+    /* ======================= extras ============================= */
+    /* ============================================================ */
+
+    private static <E> void combineExtra(Augmentation<E> extra, Cell left, Cell right, int n, Builder to) {
+        extra.serialize(extra.combine(readExtra(extra, left, n), readExtra(extra, right, n)), to);
+    }
+
+    private static <E> void copyExtra(Augmentation<E> extra, Cell node, int n, Builder to) {
+        extra.serialize(readExtra(extra, node, n), to);
+    }
+
+    private static <E> void storeEmptyExtra(Augmentation<E> extra, Builder to) {
+        extra.serialize(extra.empty(), to);
+    }
+
+    /**
+     * Extra of a node with {@code n} key bits left: the first field after
+     * the label of both leaves and forks
+     */
+    private static <E> E readExtra(Augmentation<E> extra, Cell node, int n) {
+        Slice s = parse(node);
+        HashmapLabel label = HashmapLabel.read(s, n);
+        if (!label.isSame()) {
+            s.skip(label.length());
+        }
+        return extra.parse(s);
+    }
+
+    /* ============================================================ */
+    /* ======================= labels ============================= */
+    /* ============================================================ */
+
+    private BitString keyBits(K k) {
+        BitBuilder b = new BitBuilder(key.bits());
+        b.writeUint(key.serialize(k), key.bits());
+        return b.build();
+    }
+
+    private static Slice parse(Cell node) {
+        if (node.isExotic()) {
+            throw new IllegalStateException("Cannot update a pruned dictionary subtree");
+        }
+        return node.beginParse();
+    }
+
+    private static BitString readLabel(Slice s, int n) {
+        return HashmapLabel.read(s, n).loadBits(s);
+    }
+
+    /**
+     * Common prefix of {@code label} and the key bits from {@code pos}
+     */
+    private static int commonPrefix(BitString label, BitString k, int pos) {
+        int len = label.length();
+        for (int i = 0; i < len; i++) {
+            if (label.at(i) != k.at(pos + i)) {
+                return i;
+            }
+        }
+        return len;
+    }
+}
@@ -1,7 +1,7 @@
 package dev.quark.ton.core.dict;
 
+import dev.quark.ton.core.boc.BitString;
 import dev.quark.ton.core.boc.Builder;
-import dev.quark.ton.core.dict.utils.FindCommonPrefix;
 
 import java.math.BigInteger;
 import java.util.*;
@@ -10,107 +10,99 @@ import java.util.function.BiConsumer;
 import static dev.quark.ton.core.boc.Builder.beginCell;
 
 /**
- * 1:1 port of ton-core/src/dict/serializeDict.ts
+ * Port of ton-core/src/dict/serializeDict.ts
+ *
+ * Instead of binary strings split into new maps at every fork, keys are
+ * sorted once as bit rows and the tree is written over ranges of rows.
+ * Output is bit-for-bit the same as TS.
  */
 public final class SerializeDict {
 
     private SerializeDict() {}
 
     // -------------------------------------------------------------------------
-    // Tree build (Edge/Node)
+    // Sorted keys
     // -------------------------------------------------------------------------
 
-    private static String pad(String src, int size) {
-        String s = src;
-        while (s.length() < size) {
-            s = "0" + s;
+    /**
+     * Keys packed as fixed-width bit rows of one array and sorted by their
+     * bits, so every subtree of the dictionary is a range of rows and its
+     * labels are views over the rows.
+     */
+    private static final class SortedKeys<T> {
+        final byte[] bits;     // row r occupies bits [r * stride * 8, r * stride * 8 + keyLength)
+        final int stride;      // bytes per row
+        final int[] order;     // rows sorted by key bits
+        final Object[] values; // by row
+
+        SortedKeys(Map<BigInteger, T> src, int keyLength) {
+            int n = src.size();
+            this.stride = (keyLength + 7) >> 3;
+            this.bits = new byte[n * stride];
+            this.values = new Object[n];
+            this.order = new int[n];
+
+            int pad = stride * 8 - keyLength;
+            int row = 0;
+            for (Map.Entry<BigInteger, T> e : src.entrySet()) {
+                BigInteger k = e.getKey();
+                if (k.signum() < 0 || k.bitLength() > keyLength) {
+                    throw new IllegalArgumentException("Key " + k + " does not fit in " + keyLength + " bits");
+                }
+                // Big-endian, left-aligned in the row
+                byte[] be = k.shiftLeft(pad).toByteArray();
+                int len = Math.min(be.length, stride);
+                System.arraycopy(be, be.length - len, bits, row * stride + stride - len, len);
+                values[row] = e.getValue();
+                order[row] = row;
+                row++;
+            }
+            sort(order, new int[n], 0, n);
         }
-        return s;
-    }
-
-    private interface Node<T> {}
 
-    private static final class Fork<T> implements Node<T> {
-        final Edge<T> left;
-        final Edge<T> right;
-
-        Fork(Edge<T> left, Edge<T> right) {
-            this.left = left;
-            this.right = right;
+        /** Stable merge sort of {@code a[from, to)} by key bits */
+        private void sort(int[] a, int[] tmp, int from, int to) {
+            if (to - from < 2) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            sort(a, tmp, from, mid);
+            sort(a, tmp, mid, to);
+            if (compare(a[mid - 1], a[mid]) <= 0) {
+                return;
+            }
+            System.arraycopy(a, from, tmp, from, to - from);
+            for (int i = from, l = from, r = mid; i < to; i++) {
+                if (r >= to || (l < mid && compare(tmp[l], tmp[r]) <= 0)) {
+                    a[i] = tmp[l++];
+                } else {
+                    a[i] = tmp[r++];
+                }
+            }
         }
-    }
-
-    private static final class Leaf<T> implements Node<T> {
-        final T value;
 
-        Leaf(T value) {
-            this.value = value;
+        private int compare(int a, int b) {
+            return Arrays.compareUnsigned(bits, a * stride, a * stride + stride, bits, b * stride, b * stride + stride);
         }
-    }
-
-    private static final class Edge<T> {
-        final String label;
-        final Node<T> node;
 
-        Edge(String label, Node<T> node) {
-            this.label = label;
-            this.node = node;
+        boolean bit(int row, int i) {
+            return (bits[row * stride + (i >> 3)] & (0x80 >>> (i & 7))) != 0;
         }
-    }
 
-    private static final class Forked<T> {
-        final Map<String, T> left;
-        final Map<String, T> right;
-        Forked(Map<String, T> left, Map<String, T> right) { this.left = left; this.right = right; }
-    }
-
-    private static <T> Forked<T> forkMap(Map<String, T> src, int prefixLen) {
-        if (src.isEmpty()) throw new IllegalStateException("Internal inconsistency");
-        Map<String, T> left = new LinkedHashMap<>();
-        Map<String, T> right = new LinkedHashMap<>();
-        for (var e : src.entrySet()) {
-            String k = e.getKey();
-            if (k.charAt(prefixLen) == '0') left.put(k, e.getValue());
-            else right.put(k, e.getValue());
+        /** Length of the common prefix of two rows in bits */
+        int commonPrefix(int a, int b) {
+            int m = Arrays.mismatch(bits, a * stride, a * stride + stride, bits, b * stride, b * stride + stride);
+            if (m < 0) {
+                throw new IllegalStateException("Internal inconsistency. Duplicate keys.");
+            }
+            int x = (bits[a * stride + m] ^ bits[b * stride + m]) & 0xFF;
+            return m * 8 + Integer.numberOfLeadingZeros(x) - 24;
         }
-        if (left.isEmpty()) throw new IllegalStateException("Internal inconsistency. Left emtpy.");
-        if (right.isEmpty()) throw new IllegalStateException("Internal inconsistency. Right emtpy.");
-        return new Forked<>(left, right);
-    }
-
-    private static <T> Node<T> buildNode(Map<String, T> src, int prefixLen) {
-        if (src.isEmpty()) throw new IllegalStateException("Internal inconsistency");
-        if (src.size() == 1) return new Leaf<>(src.values().iterator().next());
-        Forked<T> f = forkMap(src, prefixLen);
-        return new Fork<>(
-                buildEdge(f.left, prefixLen + 1),
-                buildEdge(f.right, prefixLen + 1)
-        );
-    }
 
-    private static <T> Edge<T> buildEdge(Map<String, T> src, int prefixLen) {
-        if (src.isEmpty()) throw new IllegalStateException("Internal inconsistency");
-        String label = FindCommonPrefix.findCommonPrefix(new ArrayList<>(src.keySet()), prefixLen);
-        return new Edge<>(label, buildNode(src, label.length() + prefixLen));
-    }
-
-    // root
-    private static <T> Edge<T> buildEdge(Map<String, T> src) {
-        return buildEdge(src, 0);
-    }
-
-    /** TS: export function buildTree(src, keyLength) */
-    public static <T> Edge<T> buildTree(Map<BigInteger, T> src, int keyLength) {
-
-        // Convert map keys: Map<bigint,T> -> Map<string,T> (binary padded)
-        Map<String, T> converted = new LinkedHashMap<>();
-        for (Map.Entry<BigInteger, T> e : src.entrySet()) {
-            String padded = pad(e.getKey().toString(2), keyLength);
-            converted.put(padded, e.getValue());
+        /** Label bits {@code [from, from + length)} of a row, without copying */
+        BitString label(int row, int from, int length) {
+            return new BitString(bits, row * stride * 8 + from, length);
         }
-
-        // Calculate root label
-        return buildEdge(converted);
     }
 
     // -------------------------------------------------------------------------
@@ -130,19 +122,28 @@ public final class SerializeDict {
         to.storeBit(false);
 
         // Value
-        for (int i = 0; i < src.length(); i++) {
-            to.storeBit(src.charAt(i) == '1');
-        }
+        to.storeBits(labelBits(src));
 
         return to;
     }
 
+    /** Pack a label of '0'/'1' chars so it is stored with one bulk copy */
+    private static BitString labelBits(String src) {
+        byte[] data = new byte[(src.length() + 7) >> 3];
+        for (int i = 0; i < src.length(); i++) {
+            if (src.charAt(i) == '1') {
+                data[i >> 3] |= (byte) (0x80 >>> (i & 7));
+            }
+        }
+        return new BitString(data, 0, src.length());
+    }
+
     private static int labelShortLength(String src) {
         // 1 (header) + len (unary ones) + 1 (unary zero) + len (bits)
         return 1 + src.length() + 1 + src.length();
     }
 
-    private static int ceilLog2(int x) {
+    static int ceilLog2(int x) {
         // TS: Math.ceil(Math.log2(x))
         if (x <= 1) return 0;
         int p = 0;
@@ -166,9 +167,7 @@ public final class SerializeDict {
         to.storeUint((long) src.length(), lengthBits);
 
         // Value
-        for (int i = 0; i < src.length(); i++) {
-            to.storeBit(src.charAt(i) == '1');
-        }
+        to.storeBits(labelBits(src));
 
         return to;
     }
@@ -231,51 +230,99 @@ public final class SerializeDict {
         return kind;
     }
 
-    private static void writeLabel(String src, int keyLength, Builder to) {
-        String type = detectLabelType(src, keyLength);
-        if (type.equals("short")) {
-            writeLabelShort(src, to);
+    /**
+     * Write {@code label} with the shortest encoding, as {@link #detectLabelType}
+     * chooses it; {@code keyLength} bits of the key are left at this edge
+     */
+    static void writeLabel(BitString label, int keyLength, Builder to) {
+        int length = label.length();
+        int lenLen = ceilLog2(keyLength + 1);
+        boolean isLong = 1 + 1 + lenLen + length < 1 + length + 1 + length;
+        int kindLength = isLong ? 1 + 1 + lenLen + length : 1 + length + 1 + length;
+
+        if (1 + 1 + 1 + lenLen < kindLength && isSame(label)) {
+            writeLabelSame(length > 0 && label.at(0), length, keyLength, to);
+        } else if (isLong) {
+            to.storeBit(true);
+            to.storeBit(false);
+            to.storeUint((long) length, lenLen);
+            to.storeBits(label);
+        } else {
+            // Header 0, then the length in unary
+            to.storeBit(false);
+            for (int i = 0; i < length; i++) {
+                to.storeBit(true);
+            }
+            to.storeBit(false);
+            to.storeBits(label);
         }
-        if (type.equals("long")) {
-            writeLabelLong(src, keyLength, to);
+    }
+
+    private static boolean isSame(BitString label) {
+        int length = label.length();
+        if (length <= 1) {
+            return true;
         }
-        if (type.equals("same")) {
-            writeLabelSame(src.charAt(0) == '1', src.length(), keyLength, to);
+        boolean first = label.at(0);
+        for (int i = 1; i < length; i++) {
+            if (label.at(i) != first) {
+                return false;
+            }
         }
+        return true;
     }
 
     // -------------------------------------------------------------------------
-    // Edge / Node writing
+    // Edge writing
     // -------------------------------------------------------------------------
 
-    private static <T> void writeNode(Node<T> src, int keyLength, BiConsumer<T, Builder> serializer, Builder to) {
-        if (src instanceof Leaf<T> leaf) {
-            serializer.accept(leaf.value, to);
+    /**
+     * Write the edge over sorted rows {@code [lo, hi)}, which share their
+     * first {@code pos} bits; {@code keyLength} bits of the key are left
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> void writeEdge(SortedKeys<T> keys, int lo, int hi, int pos, int keyLength,
+                                      BiConsumer<T, Builder> serializer, Builder to) {
+        int first = keys.order[lo];
+
+        if (hi - lo == 1) {
+            // Leaf: the label takes the rest of the key
+            writeLabel(keys.label(first, pos, keyLength), keyLength, to);
+            serializer.accept((T) keys.values[first], to);
+            return;
         }
-        if (src instanceof Fork<T> fork) {
-            Builder leftCell = beginCell();
-            Builder rightCell = beginCell();
-
-            // TS: writeEdge(left, keyLength - 1)
-            writeEdge(fork.left, keyLength - 1, serializer, leftCell);
-            writeEdge(fork.right, keyLength - 1, serializer, rightCell);
 
-            to.storeRef(leftCell.endCell());
-            to.storeRef(rightCell.endCell());
+        // Sorted rows: the common prefix of the range is the one of its ends
+        int label = keys.commonPrefix(first, keys.order[hi - 1]) - pos;
+        writeLabel(keys.label(first, pos, label), keyLength, to);
+
+        // Split at the first row with bit 1 after the label
+        int at = pos + label;
+        int l = lo + 1;
+        int r = hi - 1;
+        while (l < r) {
+            int mid = (l + r) >>> 1;
+            if (keys.bit(keys.order[mid], at)) {
+                r = mid;
+            } else {
+                l = mid + 1;
+            }
         }
-    }
-
-    private static <T> void writeEdge(Edge<T> src, int keyLength, BiConsumer<T, Builder> serializer, Builder to) {
-        // label
-        writeLabel(src.label, keyLength, to);
 
-        // node
-        writeNode(src.node, keyLength - src.label.length(), serializer, to);
+        Builder leftCell = beginCell();
+        Builder rightCell = beginCell();
+        writeEdge(keys, lo, l, at + 1, keyLength - label - 1, serializer, leftCell);
+        writeEdge(keys, l, hi, at + 1, keyLength - label - 1, serializer, rightCell);
+        to.storeRef(leftCell.endCell());
+        to.storeRef(rightCell.endCell());
     }
 
     /** TS: export function serializeDict(src,keyLength,serializer,to) */
     public static <T> void serializeDict(Map<BigInteger, T> src, int keyLength, BiConsumer<T, Builder> serializer, Builder to) {
-        Edge<T> tree = buildTree(src, keyLength);
-        writeEdge(tree, keyLength, serializer, to);
+        if (src.isEmpty()) {
+            throw new IllegalStateException("Internal inconsistency");
+        }
+        SortedKeys<T> keys = new SortedKeys<>(src, keyLength);
+        writeEdge(keys, 0, keys.order.length, 0, keyLength, serializer, to);
     }
 }
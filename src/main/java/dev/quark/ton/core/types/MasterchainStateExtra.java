@@ -3,6 +3,7 @@ package dev.quark.ton.core.types;
 import dev.quark.ton.core.boc.Cell;
 import dev.quark.ton.core.boc.Slice;
 import dev.quark.ton.core.dict.Dictionary;
+import dev.quark.ton.core.dict.DictionaryView;
 
 import java.math.BigInteger;
 import java.util.Objects;
@@ -25,19 +26,8 @@ public final class MasterchainStateExtra {
 
     public static MasterchainStateExtra loadMasterchainStateExtra(Slice cs) {
 
-        // magic
-        long magic = cs.loadUint(16);
-        if (magic != 0xcc26L) {
-            throw new IllegalArgumentException("Invalid McStateExtra magic: " + magic);
-        }
-
-        // Skip shard_hashes
-        if (cs.loadBit()) {
-            cs.loadRef();
-        }
-
         // Config
-        BigInteger configAddress = cs.loadUintBig(256);
+        BigInteger configAddress = loadConfigAddress(cs);
 
         Dictionary<Long, Cell> config = Dictionary.load(
                 Dictionary.Keys.Int(32),   // -> Long
@@ -55,4 +45,29 @@ public final class MasterchainStateExtra {
                 globalBalance
         );
     }
+
+    /**
+     * Config params of a McStateExtra as a view: one param is read without
+     * parsing the whole dictionary
+     */
+    public static DictionaryView<Long, Cell> loadConfigView(Slice cs) {
+        loadConfigAddress(cs);
+        return DictionaryView.load(Dictionary.Keys.Int(32), Dictionary.Values.Cell(), cs);
+    }
+
+    private static BigInteger loadConfigAddress(Slice cs) {
+
+        // magic
+        long magic = cs.loadUint(16);
+        if (magic != 0xcc26L) {
+            throw new IllegalArgumentException("Invalid McStateExtra magic: " + magic);
+        }
+
+        // Skip shard_hashes
+        if (cs.loadBit()) {
+            cs.loadRef();
+        }
+
+        return cs.loadUintBig(256);
+    }
 }
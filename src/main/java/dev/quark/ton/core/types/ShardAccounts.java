@@ -3,8 +3,11 @@ package dev.quark.ton.core.types;
 import dev.quark.ton.core.boc.Builder;
 import dev.quark.ton.core.boc.Slice;
 import dev.quark.ton.core.dict.Dictionary;
+import dev.quark.ton.core.dict.DictionaryView;
+import dev.quark.ton.core.dict.PersistentDictionary;
 
 import java.math.BigInteger;
+import java.util.Map;
 import java.util.Objects;
 import java.util.function.Consumer;
 
@@ -44,10 +47,70 @@ public final class ShardAccounts {
                 }
             };
 
+    /**
+     * Extra of a fork: the deepest split depth and the total balance of its accounts
+     */
+    public static final PersistentDictionary.Augmentation<DepthBalanceInfo> DepthBalanceAugmentation =
+            new PersistentDictionary.Augmentation<>() {
+                @Override
+                public DepthBalanceInfo parse(Slice cs) {
+                    return DepthBalanceInfo.loadDepthBalanceInfo(cs);
+                }
+
+                @Override
+                public void serialize(DepthBalanceInfo src, Builder builder) {
+                    builder.store(DepthBalanceInfo.storeDepthBalanceInfo(src));
+                }
+
+                @Override
+                public DepthBalanceInfo combine(DepthBalanceInfo left, DepthBalanceInfo right) {
+                    return new DepthBalanceInfo(
+                            Math.max(left.splitDepth, right.splitDepth),
+                            addCurrencies(left.balance, right.balance)
+                    );
+                }
+
+                @Override
+                public DepthBalanceInfo empty() {
+                    return new DepthBalanceInfo(0, new CurrencyCollection(null, BigInteger.ZERO));
+                }
+            };
+
+    private static CurrencyCollection addCurrencies(CurrencyCollection a, CurrencyCollection b) {
+        BigInteger coins = a.coins().add(b.coins());
+        if (a.other() == null || b.other() == null) {
+            return new CurrencyCollection(a.other() != null ? a.other() : b.other(), coins);
+        }
+        Dictionary<Long, BigInteger> other = Dictionary.empty(Dictionary.Keys.Uint(32), Dictionary.Values.BigVarUint(5));
+        for (Map.Entry<Long, BigInteger> e : a.other()) {
+            other.set(e.getKey(), e.getValue());
+        }
+        for (Map.Entry<Long, BigInteger> e : b.other()) {
+            BigInteger prev = other.get(e.getKey());
+            other.set(e.getKey(), prev == null ? e.getValue() : prev.add(e.getValue()));
+        }
+        return new CurrencyCollection(other, coins);
+    }
+
     public static Dictionary<BigInteger, ShardAccountRef> loadShardAccounts(Slice cs) {
         return Dictionary.load(Dictionary.Keys.BigUint(256), ShardAccountRefValue, cs);
     }
 
+    /**
+     * Accounts as a view: one account is read without parsing the whole dictionary
+     */
+    public static DictionaryView<BigInteger, ShardAccountRef> loadShardAccountsView(Slice cs) {
+        return DictionaryView.load(Dictionary.Keys.BigUint(256), ShardAccountRefValue, cs);
+    }
+
+    /**
+     * Accounts as a persistent dictionary: an update rebuilds only the path
+     * to the account, with fork balances recomputed
+     */
+    public static PersistentDictionary<BigInteger, ShardAccountRef> loadShardAccountsPersistent(Slice cs) {
+        return PersistentDictionary.load(Dictionary.Keys.BigUint(256), ShardAccountRefValue, DepthBalanceAugmentation, cs);
+    }
+
     public static Consumer<Builder> storeShardAccounts(Dictionary<BigInteger, ShardAccountRef> src) {
         Objects.requireNonNull(src, "src");
         return (builder) -> builder.storeDict(src, null, null);
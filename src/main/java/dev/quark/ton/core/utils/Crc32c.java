@@ -1,39 +1,46 @@
 package dev.quark.ton.core.utils;
 
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
 /**
- * Ported 1:1 from ton-core/src/utils/crc32c.ts
+ * Ported from ton-core/src/utils/crc32c.ts
  *
  * NOTE:
- * - No lookup tables
- * - No java.util.zip
- * - Bit-by-bit implementation
+ * - Backed by java.util.zip.CRC32C (hardware accelerated where available)
+ * - Range and ByteBuffer variants checksum in place, without copying
  * - Little-endian output
  */
 public final class Crc32c {
 
-    private static final int POLY = 0x82F63B78;
-
     private Crc32c() {}
 
     public static byte[] crc32c(byte[] source) {
-        int crc = 0 ^ 0xFFFFFFFF;
-
-        for (int n = 0; n < source.length; n++) {
-            crc ^= (source[n] & 0xFF);
-
-            crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLY : (crc >>> 1);
-            crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLY : (crc >>> 1);
-            crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLY : (crc >>> 1);
-            crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLY : (crc >>> 1);
-            crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLY : (crc >>> 1);
-            crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLY : (crc >>> 1);
-            crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLY : (crc >>> 1);
-            crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLY : (crc >>> 1);
-        }
+        return crc32c(source, 0, source.length);
+    }
+
+    /**
+     * Checksum of {@code source[offset, offset + length)}
+     */
+    public static byte[] crc32c(byte[] source, int offset, int length) {
+        Digest d = new Digest();
+        d.update(source, offset, length);
+        return d.toBytes();
+    }
 
-        crc = crc ^ 0xFFFFFFFF;
+    /**
+     * Checksum of the remaining bytes of {@code source}; its position is not changed
+     */
+    public static byte[] crc32c(ByteBuffer source) {
+        Digest d = new Digest();
+        d.update(source.duplicate());
+        return d.toBytes();
+    }
 
-        // Convert to little-endian (writeInt32LE)
+    /**
+     * Convert to little-endian (writeInt32LE)
+     */
+    public static byte[] toBytes(int crc) {
         byte[] res = new byte[4];
         res[0] = (byte) (crc & 0xFF);
         res[1] = (byte) ((crc >>> 8) & 0xFF);
@@ -42,4 +49,38 @@ public final class Crc32c {
 
         return res;
     }
+
+    /**
+     * Incremental checksum: feed consecutive ranges, then read the value.
+     * {@code update(a); update(b)} gives the checksum of {@code a ++ b}.
+     */
+    public static final class Digest {
+
+        private final CRC32C crc = new CRC32C();
+
+        public Digest update(byte[] source, int offset, int length) {
+            crc.update(source, offset, length);
+            return this;
+        }
+
+        /**
+         * Consume the remaining bytes of {@code source}
+         */
+        public Digest update(ByteBuffer source) {
+            crc.update(source);
+            return this;
+        }
+
+        public int value() {
+            return (int) crc.getValue();
+        }
+
+        public byte[] toBytes() {
+            return Crc32c.toBytes(value());
+        }
+
+        public void reset() {
+            crc.reset();
+        }
+    }
 }
@@ -1,11 +1,13 @@
 
 import dev.quark.ton.core.address.Address;
 import dev.quark.ton.core.boc.BitBuilder;
+import dev.quark.ton.core.boc.BitReader;
 import dev.quark.ton.core.boc.BitString;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigInteger;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -248,4 +250,48 @@ class BitBuilderTest {
         assertEquals(0, builder.length());
     }
 
+
+    @Test
+    void shouldWritePrimitivesAtAnyOffset() {
+        Random r = new Random(13);
+        for (int i = 0; i < 1000; i++) {
+            int skip = r.nextInt(40);
+            int bits = 1 + r.nextInt(64);
+            long u = bits == 64 ? r.nextLong() >>> 1 : r.nextLong() >>> (64 - bits);
+            long s = bits == 64 ? r.nextLong() : (r.nextLong() << (64 - bits)) >> (64 - bits);
+
+            BitBuilder fast = new BitBuilder();
+            BitBuilder slow = new BitBuilder();
+            fast.writeUint(0, skip);
+            slow.writeUint(0, skip);
+            fast.writeUint(u, bits);
+            fast.writeInt(s, bits);
+            fast.writeVarUint(u, 4);
+            fast.writeVarInt(s, 4);
+            for (int b = bits - 1; b >= 0; b--) {
+                slow.writeBit(((u >>> b) & 1) != 0);
+            }
+            for (int b = bits - 1; b >= 0; b--) {
+                slow.writeBit(((s >>> b) & 1) != 0);
+            }
+            slow.writeVarUint(BigInteger.valueOf(u), 4);
+            slow.writeVarInt(BigInteger.valueOf(s), 4);
+            assertEquals(slow.build(), fast.build());
+        }
+
+        BitBuilder b = new BitBuilder();
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> b.writeUint(256, 8));
+        assertEquals("value is out of range for 8 bits. Got 256", e.getMessage());
+        e = assertThrows(IllegalArgumentException.class, () -> b.writeUint(8, 3));
+        assertEquals("bitLength is too small for a value 8. Got 3", e.getMessage());
+        e = assertThrows(IllegalArgumentException.class, () -> b.writeInt(-5, 3));
+        assertEquals("value is out of range for 3 bits. Got -5", e.getMessage());
+        b.writeInt(Long.MIN_VALUE, 64);
+        b.writeVarInt(Long.MIN_VALUE, 4);
+        b.writeUint(new BigInteger("123456789012345678901234567890"), 100);
+        BitReader reader = new BitReader(b.build());
+        assertEquals(Long.MIN_VALUE, reader.loadInt(64));
+        assertEquals(BigInteger.valueOf(Long.MIN_VALUE), reader.loadVarIntBig(4));
+        assertEquals(new BigInteger("123456789012345678901234567890"), reader.loadUintBig(100));
+    }
 }
@@ -0,0 +1,67 @@
+import dev.quark.ton.core.boc.BitBuilder;
+import dev.quark.ton.core.boc.BitString;
+import dev.quark.ton.core.boc.utils.BitOps;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BitOpsTest {
+
+    private static boolean bit(byte[] data, int i) {
+        return (data[i >> 3] & (0x80 >>> (i & 7))) != 0;
+    }
+
+    @Test
+    void shouldCopyAtAnyOffsets() {
+        Random rnd = new Random(7);
+        for (int iter = 0; iter < 2000; iter++) {
+            byte[] src = new byte[140];
+            byte[] dst = new byte[140];
+            rnd.nextBytes(src);
+            rnd.nextBytes(dst);
+            byte[] before = dst.clone();
+
+            int len = rnd.nextInt(1024);
+            int so = rnd.nextInt(src.length * 8 - len + 1);
+            int dO = rnd.nextInt(dst.length * 8 - len + 1);
+            BitOps.copy(src, so, dst, dO, len);
+
+            for (int i = 0; i < dst.length * 8; i++) {
+                boolean expected = i >= dO && i < dO + len ? bit(src, so + i - dO) : bit(before, i);
+                assertEquals(expected, bit(dst, i), "bit " + i);
+            }
+            assertTrue(BitOps.equals(src, so, dst, dO, len));
+            assertEquals(BitOps.hash(src, so, len), BitOps.hash(dst, dO, len));
+        }
+    }
+
+    @Test
+    void shouldReadAndWriteWords() {
+        Random rnd = new Random(11);
+        for (int iter = 0; iter < 2000; iter++) {
+            byte[] data = new byte[10];
+            int bits = rnd.nextInt(65);
+            int off = rnd.nextInt(data.length * 8 - bits + 1);
+            long value = bits == 64 ? rnd.nextLong() : rnd.nextLong() & ((1L << bits) - 1);
+
+            BitOps.writeLong(data, off, value, bits);
+            assertEquals(value, BitOps.readLong(data, off, bits));
+        }
+    }
+
+    @Test
+    void shouldCompareByVisibleBitsOnly() {
+        BitString a = new BitString(new byte[]{(byte) 0b1011_0000}, 0, 4);
+        BitString b = new BitString(new byte[]{(byte) 0b0001_0110}, 3, 4);
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+
+        BitBuilder builder = new BitBuilder(16);
+        builder.writeBit(true);
+        builder.writeBits(b);
+        builder.writeBuffer(new byte[]{(byte) 0xF0});
+        assertEquals("DF84_", builder.build().toString());
+    }
+}
@@ -230,4 +230,37 @@ class BitReaderTest {
         assertEquals(expected, addr.toRawString());
     }
 
+
+    @Test
+    void shouldReadPrimitivesAtAnyOffset() {
+        Random r = rng("test-primitives");
+        for (int i = 0; i < 1000; i++) {
+            int skip = r.nextInt(40);
+            int bits = 1 + r.nextInt(64);
+            BigInteger u = new BigInteger(bits, r);
+            BigInteger s = u.testBit(bits - 1) ? u.subtract(BigInteger.ONE.shiftLeft(bits)) : u;
+
+            BitBuilder builder = new BitBuilder();
+            builder.writeUint(0, skip);
+            builder.writeUint(u, bits);
+            builder.writeUint(u, bits);
+            BitReader reader = new BitReader(builder.build());
+            reader.skip(skip);
+
+            if (bits < 64 || u.signum() >= 0 && u.bitLength() < 64) {
+                assertEquals(u.longValueExact(), reader.preloadUint(bits));
+            } else {
+                assertThrows(ArithmeticException.class, () -> reader.preloadUint(bits));
+            }
+            assertEquals(u, reader.loadUintBig(bits));
+            assertEquals(s.longValueExact(), reader.preloadInt(bits));
+            assertEquals(s, reader.loadIntBig(bits));
+            assertEquals(0, reader.remaining());
+        }
+
+        BitReader wide = new BitReader(new BitString(new byte[]{(byte) 0xFF, 1, 2, 3, 4, 5, 6, 7, 8}, 0, 72));
+        assertEquals(new BigInteger("FF0102030405060708", 16), wide.preloadUintBig(72));
+        assertEquals(new BigInteger("FF0102030405060708", 16).subtract(BigInteger.ONE.shiftLeft(72)), wide.preloadIntBig(72));
+        assertThrows(IllegalArgumentException.class, () -> wide.preloadUint(73));
+    }
 }
@@ -190,4 +190,21 @@ class BitStringTest {
             assertEquals(expected, r.toString(), "Mismatch for " + bits);
         }
     }
+
+    @Test
+    void shouldCompactViews() {
+        byte[] data = {(byte) 0xA5, (byte) 0x3C, (byte) 0xFF, (byte) 0x81};
+        BitString whole = new BitString(data, 0, 32);
+        assertSame(whole, whole.compact());
+
+        for (int off = 0; off < 16; off++) {
+            for (int len = 0; off + len <= 32; len++) {
+                BitString view = whole.substring(off, len);
+                BitString compact = view.compact();
+                assertEquals(view, compact);
+                assertEquals(view.toString(), compact.toString());
+                assertSame(compact, compact.compact());
+            }
+        }
+    }
 }
@@ -1,13 +1,20 @@
 import dev.quark.ton.core.boc.Builder;
 import dev.quark.ton.core.boc.Cell;
 import dev.quark.ton.core.boc.cell.serialization.BocSerialization;
+import dev.quark.ton.core.boc.cell.serialization.BocValidator;
+import dev.quark.ton.core.boc.cell.serialization.CellArena;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Assumptions;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -219,6 +226,272 @@ class BocSerializationTest {
         assertArrayEquals(b, BocSerialization.serializeBoc(c2, false, true));
     }
 
+    @Test
+    void shouldDeserializeFromStreamLikeFromBytes() throws Exception {
+        String[] vectors = {
+                "/vectors/serialization/manyCells.txt",
+                "/vectors/serialization/accountProof.txt",
+                "/vectors/serialization/configProof.txt",
+                "/vectors/serialization/accountStateTestPruned.txt"
+        };
+        for (String v : vectors) {
+            byte[] boc = readBase64ResourceOrSkip(v);
+            byte[] expected = BocSerialization.serializeBoc(BocSerialization.deserializeBoc(boc).get(0), true, true);
+
+            // Tiny buffer and one-byte reads to exercise refills mid-record
+            ReadableByteChannel trickle = trickle(expected);
+            Cell c = BocSerialization.deserializeBoc(trickle, 8).get(0);
+            assertArrayEquals(expected, BocSerialization.serializeBoc(c, true, true));
+
+            Cell c2 = Cell.fromBoc(new ByteArrayInputStream(boc)).get(0);
+            assertArrayEquals(expected, BocSerialization.serializeBoc(c2, true, true));
+        }
+    }
+
+    @Test
+    void shouldRejectCorruptedStream() {
+        byte[] boc = b64("te6cckEBAQEABgAACAdbzRVRblCS");
+        byte[] corrupted = boc.clone();
+        corrupted[corrupted.length - 6] ^= 1;
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> BocSerialization.deserializeBoc(new ByteArrayInputStream(corrupted)));
+        assertEquals("Invalid CRC32C", ex.getMessage());
+
+        byte[] truncated = java.util.Arrays.copyOf(boc, boc.length - 1);
+        assertThrows(EOFException.class, () -> BocSerialization.deserializeBoc(new ByteArrayInputStream(truncated)));
+    }
+
+    @Test
+    void shouldTrustStoredHashes() {
+        Cell cell = Builder.beginCell().storeUint(123456789L, 32).endCell();
+
+        Cell.DeserializeOptions trust = new Cell.DeserializeOptions();
+        trust.trustStoredHashes = true;
+
+        Cell c = BocSerialization.deserializeBoc(withStoredHash(cell.hash()), trust).get(0);
+        assertEquals(cell.toString(), c.toString());
+        assertArrayEquals(cell.hash(), c.hash());
+        assertEquals(0, c.depth());
+
+        // Stored values are taken as is...
+        byte[] fake = new byte[32];
+        fake[0] = 1;
+        Cell forged = BocSerialization.deserializeBoc(withStoredHash(fake), trust).get(0);
+        assertArrayEquals(fake, forged.hash());
+
+        // ...unless verification is requested
+        assertThrows(IllegalStateException.class, () -> BocSerialization.verifyHashes(List.of(forged)));
+        trust.verifyStoredHashes = true;
+        assertThrows(IllegalStateException.class, () -> BocSerialization.deserializeBoc(withStoredHash(fake), trust));
+
+        trust.executor = java.util.concurrent.ForkJoinPool.commonPool();
+        assertThrows(IllegalStateException.class, () -> BocSerialization.deserializeBoc(withStoredHash(fake), trust));
+        assertArrayEquals(cell.hash(), BocSerialization.deserializeBoc(withStoredHash(cell.hash()), trust).get(0).hash());
+        assertThrows(java.util.concurrent.CompletionException.class,
+                () -> BocSerialization.verifyHashesAsync(List.of(forged), trust.executor).join());
+
+        // Without the option stored hashes are ignored
+        assertArrayEquals(cell.hash(), BocSerialization.deserializeBoc(withStoredHash(fake)).get(0).hash());
+    }
+
+    @Test
+    void shouldSerializeMultipleRootsWithSharedCells() {
+        Cell shared = Builder.beginCell().storeUint(7, 8).endCell();
+        Cell a = Builder.beginCell().storeUint(1, 8).storeRef(shared).endCell();
+        Cell b = Builder.beginCell().storeUint(2, 8).storeRef(shared).endCell();
+
+        byte[] boc = BocSerialization.serializeBoc(List.of(a, b, shared), false, true, false, false);
+        List<Cell> roots = BocSerialization.deserializeBoc(boc);
+
+        assertEquals(3, roots.size());
+        assertArrayEquals(a.hash(), roots.get(0).hash());
+        assertArrayEquals(b.hash(), roots.get(1).hash());
+        assertArrayEquals(shared.hash(), roots.get(2).hash());
+        // three distinct cells only
+        assertEquals(3, boc[6]);
+        assertSame(roots.get(2), roots.get(0).refs.get(0));
+        assertSame(roots.get(2), roots.get(1).refs.get(0));
+
+        // single root keeps the canonical layout
+        assertArrayEquals(BocSerialization.serializeBoc(a, true, true),
+                BocSerialization.serializeBoc(List.of(a), true, true, false, false));
+    }
+
+    @Test
+    void shouldRoundtripStoredHashesAndCacheBits() throws Exception {
+        String[] vectors = {
+                "/vectors/serialization/accountProof.txt",
+                "/vectors/serialization/configProof.txt",
+                "/vectors/serialization/accountStateTestPruned.txt"
+        };
+        Cell.DeserializeOptions trust = new Cell.DeserializeOptions();
+        trust.trustStoredHashes = true;
+        trust.verifyStoredHashes = true;
+
+        for (String v : vectors) {
+            Cell c = BocSerialization.deserializeBoc(readBase64ResourceOrSkip(v)).get(0);
+            byte[] boc = BocSerialization.serializeBoc(List.of(c), true, true, true, true);
+
+            Cell trusted = BocSerialization.deserializeBoc(boc, trust).get(0);
+            for (int level = 0; level < 4; level++) {
+                assertArrayEquals(c.hash(level), trusted.hash(level));
+                assertEquals(c.depth(level), trusted.depth(level));
+            }
+            assertArrayEquals(c.hash(), BocSerialization.deserializeBoc(boc).get(0).hash());
+            assertArrayEquals(c.hash(), Cell.fromBoc(new ByteArrayInputStream(boc), trust).get(0).hash());
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> BocSerialization.serializeBoc(List.of(Cell.EMPTY), false, true, true, false));
+    }
+
+    @Test
+    void shouldHashInParallelLikeSequentially() throws Exception {
+        // Wide tree so that the leaf level is split across tasks
+        List<Cell> level = new java.util.ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            level.add(new Builder().storeUint(i, 32).endCell());
+        }
+        while (level.size() > 1) {
+            List<Cell> next = new java.util.ArrayList<>();
+            for (int i = 0; i < level.size(); i += 4) {
+                Builder b = new Builder().storeUint(i, 16);
+                for (int j = i; j < Math.min(level.size(), i + 4); j++) {
+                    b.storeRef(level.get(j));
+                }
+                next.add(b.endCell());
+            }
+            level = next;
+        }
+        Cell wide = level.get(0);
+
+        Cell.DeserializeOptions parallel = new Cell.DeserializeOptions();
+        parallel.parallelHashing = true;
+
+        byte[] boc = BocSerialization.serializeBoc(wide, true, true);
+        assertArrayEquals(wide.hash(), BocSerialization.deserializeBoc(boc, parallel).get(0).hash());
+
+        Cell proof = BocSerialization.deserializeBoc(
+                readBase64ResourceOrSkip("/vectors/serialization/accountProof.txt")).get(0);
+        Cell parsed = BocSerialization.deserializeBoc(BocSerialization.serializeBoc(proof, false, false), parallel).get(0);
+        for (int l = 0; l < 4; l++) {
+            assertArrayEquals(proof.hash(l), parsed.hash(l));
+            assertEquals(proof.depth(l), parsed.depth(l));
+        }
+    }
+
+    @Test
+    void shouldCompactCellsOnRequest() throws Exception {
+        byte[] boc = readBase64ResourceOrSkip("/vectors/serialization/accountProof.txt");
+        Cell views = BocSerialization.deserializeBoc(boc).get(0);
+
+        Cell.DeserializeOptions opts = new Cell.DeserializeOptions();
+        opts.compact = true;
+        Cell owned = BocSerialization.deserializeBoc(boc, opts).get(0);
+        assertArrayEquals(views.hash(), owned.hash());
+        assertSame(owned, owned.compact());
+
+        Cell compacted = views.compact();
+        assertNotSame(views, compacted);
+        assertArrayEquals(views.hash(), compacted.hash());
+        assertSame(compacted, compacted.compact());
+
+        java.util.ArrayDeque<Cell> pending = new java.util.ArrayDeque<>(List.of(compacted, owned));
+        while (!pending.isEmpty()) {
+            Cell c = pending.pop();
+            assertSame(c.bits, c.bits.compact());
+            pending.addAll(c.refs);
+        }
+    }
+
+    @Test
+    void shouldComputeRootHashesWithoutCells() throws Exception {
+        String[] vectors = {
+                "/vectors/serialization/accountProof.txt",
+                "/vectors/serialization/configProof.txt",
+                "/vectors/serialization/accountStateTestPruned.txt",
+                "/vectors/serialization/block.txt",
+                "/vectors/serialization/manyCells.txt"
+        };
+        for (String v : vectors) {
+            byte[] boc = readBase64ResourceOrSkip(v);
+            Cell c = BocSerialization.deserializeBoc(boc).get(0);
+            assertArrayEquals(c.hash(), BocSerialization.computeRootHashes(boc).get(0), v);
+
+            // Stored hashes and cache bits do not change the result
+            byte[] withHashes = BocSerialization.serializeBoc(List.of(c), true, true, true, true);
+            assertArrayEquals(c.hash(), BocSerialization.computeRootHashes(withHashes).get(0), v);
+        }
+
+        Cell shared = Builder.beginCell().storeUint(7, 8).endCell();
+        Cell a = Builder.beginCell().storeUint(1, 8).storeRef(shared).endCell();
+        Cell b = Builder.beginCell().storeUint(2, 8).storeRef(shared).storeRef(shared).endCell();
+        byte[] boc = BocSerialization.serializeBoc(List.of(a, b), false, true, false, false);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(boc.length + 3);
+        direct.put(new byte[3]).put(boc).position(3);
+        List<byte[]> roots = BocSerialization.computeRootHashes(direct);
+        assertEquals(2, roots.size());
+        assertArrayEquals(a.hash(), roots.get(0));
+        assertArrayEquals(b.hash(), roots.get(1));
+        assertEquals(3, direct.position());
+
+        boc[boc.length - 5] ^= 1;
+        assertThrows(IllegalStateException.class, () -> BocSerialization.computeRootHashes(boc));
+    }
+
+    @Test
+    void shouldRejectHostileHeadersWhenHashingRoots() {
+        // 25 bytes claiming 2^31 - 1 cells
+        assertThrows(IllegalStateException.class, () -> BocSerialization.computeRootHashes(hostileBoc(false, 1, 0x7fffffffL, 2, 2)));
+        // Index of 100 cells does not fit
+        assertThrows(IllegalStateException.class, () -> BocSerialization.computeRootHashes(hostileBoc(true, 8, 100, 200, 200)));
+        // Data size beyond the buffer
+        assertThrows(IllegalStateException.class, () -> BocSerialization.computeRootHashes(hostileBoc(false, 8, 1_000_000, 1L << 40, 2)));
+    }
+
+    @Test
+    void shouldRoundtripPartialBocWithAbsentCells() throws Exception {
+        Cell old = Cell.fromBoc(readBase64ResourceOrSkip("/vectors/serialization/accountState.txt")).get(0);
+        Cell root = Builder.beginCell().storeUint(1, 8).storeRef(old).endCell();
+
+        Cell.SerializeOptions so = new Cell.SerializeOptions();
+        so.absent = c -> c == old;
+        byte[] partial = root.toBoc(so);
+        assertTrue(partial.length < root.toBoc().length);
+        assertEquals(1, partial[8]); // absent count: magic(4) flags(1) off(1) cells roots absent
+        new BocValidator().validate(partial);
+        assertArrayEquals(root.hash(), BocSerialization.computeRootHashes(partial).get(0));
+
+        // Without a resolver the absent cell becomes a pruned branch
+        Cell pruned = Cell.fromBoc(partial).get(0);
+        assertArrayEquals(root.hash(), pruned.hash(0));
+        assertTrue(pruned.refs.get(0).isExotic());
+        byte[] withHashes = BocSerialization.serializeBoc(List.of(root), true, true, true, true, so.absent);
+        assertArrayEquals(root.hash(), Cell.fromBoc(withHashes).get(0).hash(0));
+        try (CellArena arena = CellArena.load(partial)) {
+            assertTrue(arena.root().ref(0).isAbsent());
+            assertArrayEquals(root.hash(), arena.root().hash());
+            assertArrayEquals(root.hash(), arena.root().toCell().hash(0));
+        }
+
+        // With a resolver the original subtree is restored
+        Map<String, Cell> known = Map.of(base64(old.hash()), old);
+        Cell.DeserializeOptions o = new Cell.DeserializeOptions();
+        o.resolver = hash -> known.get(base64(hash));
+        Cell restored = Cell.fromBoc(partial, o).get(0);
+        assertSame(old, restored.refs.get(0));
+        assertArrayEquals(root.hash(), Cell.fromBoc(new ByteArrayInputStream(partial), o).get(0).hash());
+
+        Cell other = Builder.beginCell().storeUint(2, 8).endCell();
+        o.resolver = hash -> other;
+        assertThrows(IllegalStateException.class, () -> Cell.fromBoc(partial, o));
+
+        Cell.SerializeOptions absentRoot = new Cell.SerializeOptions();
+        absentRoot.absent = c -> true;
+        assertThrows(IllegalArgumentException.class, () -> root.toBoc(absentRoot));
+    }
+
     /* ======================= helpers ======================= */
 
     private static byte[] readBase64ResourceOrSkip(String classpath) throws Exception {
@@ -242,6 +515,32 @@ class BocSerializationTest {
         }
     }
 
+    /** Single-cell BOC of x{075BCD15} with the given stored hash */
+    private static byte[] withStoredHash(byte[] hash) {
+        byte[] header = hexToBytes("B5EE9C72" + "01" + "01" + "01" + "01" + "00" + "28" + "00");
+        byte[] res = new byte[header.length + 40];
+        System.arraycopy(header, 0, res, 0, header.length);
+        res[header.length] = 0x10;     // d1: hashes present
+        res[header.length + 1] = 0x08; // d2: 4 bytes
+        System.arraycopy(hash, 0, res, header.length + 2, 32);
+        System.arraycopy(hexToBytes("0000075BCD15"), 0, res, header.length + 34, 6);
+        return res;
+    }
+
+    private static ReadableByteChannel trickle(byte[] src) {
+        ByteArrayInputStream in = new ByteArrayInputStream(src);
+        return new ReadableByteChannel() {
+            @Override public int read(ByteBuffer dst) {
+                int b = in.read();
+                if (b < 0) return -1;
+                dst.put((byte) b);
+                return 1;
+            }
+            @Override public boolean isOpen() { return true; }
+            @Override public void close() {}
+        };
+    }
+
     private static String base64(byte[] bytes) {
         return Base64.getEncoder().encodeToString(bytes);
     }
@@ -262,4 +561,23 @@ class BocSerializationTest {
         }
         return out;
     }
+
+    /**
+     * Header of a BOC without CRC claiming {@code cells} records of
+     * {@code totalCellSize} bytes, followed by {@code data} zero bytes
+     */
+    private static byte[] hostileBoc(boolean index, int offBytes, long cells, long totalCellSize, int data) {
+        ByteBuffer b = ByteBuffer.allocate(4 + 2 + 3 * 4 + offBytes + 4 + data);
+        b.putInt(0xb5ee9c72);
+        b.put((byte) ((index ? 0x80 : 0) | 4));
+        b.put((byte) offBytes);
+        b.putInt((int) cells);
+        b.putInt(1);
+        b.putInt(0);
+        for (int i = offBytes - 1; i >= 0; i--) {
+            b.put((byte) (totalCellSize >>> (8 * i)));
+        }
+        b.putInt(0);
+        return b.array();
+    }
 }
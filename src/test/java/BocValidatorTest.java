@@ -0,0 +1,198 @@
+import dev.quark.ton.core.boc.Builder;
+import dev.quark.ton.core.boc.Cell;
+import dev.quark.ton.core.boc.cell.serialization.BocSerialization;
+import dev.quark.ton.core.boc.cell.serialization.BocValidator;
+import dev.quark.ton.core.dict.Dictionary;
+import dev.quark.ton.core.utils.Crc32c;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BocValidatorTest {
+
+    private static final BocValidator UNLIMITED = new BocValidator(unlimited());
+
+    @Test
+    void shouldAcceptValidBocs() throws Exception {
+        String[] vectors = {
+                "/vectors/serialization/accountProof.txt",
+                "/vectors/serialization/accountState.txt",
+                "/vectors/serialization/accountStateTestPruned.txt",
+                "/vectors/serialization/block.txt",
+                "/vectors/serialization/configProof.txt",
+                "/vectors/serialization/manyCells.txt",
+        };
+        for (String v : vectors) {
+            byte[] boc = readBase64(v);
+            UNLIMITED.validate(boc);
+
+            Cell c = BocSerialization.deserializeBoc(boc).get(0);
+            UNLIMITED.validate(BocSerialization.serializeBoc(c, false, false));
+            UNLIMITED.validate(BocSerialization.serializeBoc(List.of(c), true, true, true, true));
+        }
+
+        // Legacy magic with index and checksum
+        UNLIMITED.validate(legacy(BocSerialization.serializeBoc(chain(3), true, true)));
+
+        byte[] boc = BocSerialization.serializeBoc(chain(3), true, true);
+        ByteBuffer buf = ByteBuffer.allocate(boc.length + 2).put(new byte[2]).put(boc);
+        buf.position(2);
+        new BocValidator().validate(buf);
+        assertEquals(2, buf.position());
+    }
+
+    @Test
+    void shouldRejectMalformedStructure() {
+        byte[] boc = BocSerialization.serializeBoc(chain(2), false, false);
+        // header: magic(4) flags(1) off(1) cells roots absent(3) total(1) root(1), then cell 0
+        int cell0 = 11;
+
+        assertInvalid(mutate(boc, 0, 0x00));                         // magic
+        assertInvalid(Arrays.copyOf(boc, boc.length - 1));           // truncated
+        assertInvalid(Arrays.copyOf(boc, boc.length + 1));           // trailing bytes
+        assertInvalid(mutate(boc, 4, 0x05));                         // ref size 5
+        assertInvalid(mutate(boc, 8, 0x01));                         // absent cells
+        assertInvalid(mutate(boc, 10, 0x02));                        // root out of bounds
+        assertInvalid(mutate(boc, cell0, 0x07));                     // 7 refs
+        assertInvalid(mutate(boc, boc.length - 5, 0x00));            // ref of cell 0 points back to it
+
+        // Padding bit is missing
+        Cell odd = new Builder().storeUint(0, 3).endCell();
+        byte[] padded = BocSerialization.serializeBoc(odd, false, false);
+        assertInvalid(mutate(padded, padded.length - 1, 0x00));
+
+        // Exotic flag on a cell that is not a valid exotic
+        Cell ordinary = new Builder().storeUint(7, 8).endCell();
+        byte[] exotic = BocSerialization.serializeBoc(ordinary, false, false);
+        assertInvalid(mutate(exotic, cell0, exotic[cell0] | 8));
+    }
+
+    @Test
+    void shouldCheckLevelMasks() {
+        int cell0 = 11;
+
+        // Ordinary cells: the OR of their children's masks, here 0
+        byte[] boc = BocSerialization.serializeBoc(chain(2), false, false);
+        assertInvalid(mutate(boc, cell0, boc[cell0] | 0x20));
+        assertInvalid(mutate(boc, cell0 + 5, boc[cell0 + 5] | 0x20));
+
+        // Above a pruned branch the mask is 1, a merkle proof shifts it back to 0
+        Dictionary<Long, Long> d = Dictionary.empty(Dictionary.Keys.Uint(8), Dictionary.Values.Uint(32));
+        for (long k = 1; k <= 5; k++) {
+            d.set(k, k * 11);
+        }
+        Cell proof = d.generateMerkleProof(3L);
+        byte[] merkle = BocSerialization.serializeBoc(proof, false, false);
+        UNLIMITED.validate(merkle);
+        assertInvalid(mutate(merkle, cell0, merkle[cell0] | 0x20));
+
+        byte[] pruned = BocSerialization.serializeBoc(proof.refs.get(0), false, false);
+        UNLIMITED.validate(pruned);
+        assertEquals(0x20, pruned[cell0] & 0xE0);
+        assertInvalid(mutate(pruned, cell0, pruned[cell0] & 0x1F));
+    }
+
+    @Test
+    void shouldCheckIndexAndChecksum() {
+        byte[] boc = BocSerialization.serializeBoc(chain(3), true, true);
+        UNLIMITED.validate(boc);
+
+        // index starts after the root list: magic(4) flags(1) off(1) cells roots absent(3) total(1) root(1)
+        assertInvalid(mutate(boc, 11, boc[11] + 1));
+        assertInvalid(mutate(boc, boc.length - 6, boc[boc.length - 6] ^ 0x10));
+        assertInvalid(mutate(boc, boc.length - 1, boc[boc.length - 1] ^ 1));
+    }
+
+    @Test
+    void shouldEnforceLimits() {
+        byte[] boc = BocSerialization.serializeBoc(chain(20), false, false);
+
+        BocValidator.Limits depth = unlimited();
+        depth.maxDepth = 19;
+        new BocValidator(depth).validate(boc);
+        depth.maxDepth = 18;
+        assertInvalid(new BocValidator(depth), boc);
+
+        BocValidator.Limits cells = unlimited();
+        cells.maxCells = 19;
+        assertInvalid(new BocValidator(cells), boc);
+
+        BocValidator.Limits bits = unlimited();
+        bits.maxBits = 20 * 16 - 1;
+        assertInvalid(new BocValidator(bits), boc);
+
+        BocValidator.Limits bytes = unlimited();
+        bytes.maxBytes = boc.length - 1;
+        assertInvalid(new BocValidator(bytes), boc);
+
+        assertTrue(UNLIMITED.isValid(boc));
+        assertThrows(IllegalArgumentException.class, () -> {
+            BocValidator.Limits negative = new BocValidator.Limits();
+            negative.maxDepth = -1;
+            new BocValidator(negative);
+        });
+    }
+
+    /* ======================= helpers ======================= */
+
+    private static Cell chain(int length) {
+        Cell c = new Builder().storeUint(0, 16).endCell();
+        for (int i = 1; i < length; i++) {
+            c = new Builder().storeUint(i, 16).storeRef(c).endCell();
+        }
+        return c;
+    }
+
+    /**
+     * Re-encode a single-root, 1-byte-ref BOC with index and CRC32C under the legacy magic
+     */
+    private static byte[] legacy(byte[] boc) {
+        // drop flags byte and root list, keep size byte in place of flags
+        byte[] res = new byte[boc.length - 1];
+        res[0] = (byte) 0xac; res[1] = (byte) 0xc3; res[2] = (byte) 0xa7; res[3] = 0x28;
+        res[4] = (byte) (boc[4] & 7);
+        System.arraycopy(boc, 5, res, 5, 5);            // off bytes, cells, roots, absent, total
+        System.arraycopy(boc, 11, res, 10, boc.length - 15);
+        byte[] crc = Crc32c.crc32c(res, 0, res.length - 4);
+        System.arraycopy(crc, 0, res, res.length - 4, 4);
+        return res;
+    }
+
+    private static BocValidator.Limits unlimited() {
+        BocValidator.Limits l = new BocValidator.Limits();
+        l.maxBytes = Long.MAX_VALUE;
+        l.maxCells = Integer.MAX_VALUE;
+        l.maxRoots = Integer.MAX_VALUE;
+        l.maxDepth = Integer.MAX_VALUE;
+        return l;
+    }
+
+    private static byte[] mutate(byte[] src, int at, int value) {
+        byte[] res = src.clone();
+        res[at] = (byte) value;
+        return res;
+    }
+
+    private static void assertInvalid(byte[] boc) {
+        assertInvalid(UNLIMITED, boc);
+    }
+
+    private static void assertInvalid(BocValidator validator, byte[] boc) {
+        assertThrows(IllegalStateException.class, () -> validator.validate(boc));
+        assertFalse(validator.isValid(boc));
+    }
+
+    private static byte[] readBase64(String classpath) throws Exception {
+        try (InputStream is = BocValidatorTest.class.getResourceAsStream(classpath)) {
+            assertNotNull(is, "Missing resource " + classpath);
+            return Base64.getDecoder().decode(new String(is.readAllBytes(), StandardCharsets.UTF_8).trim());
+        }
+    }
+}
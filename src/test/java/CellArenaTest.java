@@ -0,0 +1,202 @@
+import dev.quark.ton.core.boc.BitReader;
+import dev.quark.ton.core.boc.Builder;
+import dev.quark.ton.core.boc.Cell;
+import dev.quark.ton.core.boc.cell.serialization.BocSerialization;
+import dev.quark.ton.core.boc.cell.serialization.CellArena;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CellArenaTest {
+
+    private static final String[] VECTORS = {
+            "/vectors/serialization/accountProof.txt",
+            "/vectors/serialization/accountState.txt",
+            "/vectors/serialization/accountStateTest.txt",
+            "/vectors/serialization/accountStateTestPruned.txt",
+            "/vectors/serialization/block.txt",
+            "/vectors/serialization/configProof.txt",
+            "/vectors/serialization/largeBoc.txt",
+            "/vectors/serialization/manyCells.txt",
+    };
+
+    @Test
+    void shouldMatchHeapCellsOnVectors() throws Exception {
+        for (String v : VECTORS) {
+            byte[] bytes = readBase64(v);
+            List<Cell> expected = BocSerialization.deserializeBoc(bytes);
+            try (CellArena arena = CellArena.load(bytes)) {
+                assertEquals(expected.size(), arena.rootsCount(), v);
+                for (int r = 0; r < expected.size(); r++) {
+                    assertSameGraph(expected.get(r), arena.root(r), v);
+                    assertArrayEquals(expected.get(r).hash(), arena.root(r).toCell().hash(), v);
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldReadBitsAndRefsThroughSlice() {
+        Cell child = new Builder().storeUint(7, 3).endCell();
+        Cell cell = new Builder()
+                .storeBit(true)
+                .storeUint(0x1234_5678_9ABCL, 48)
+                .storeInt(-5, 13)
+                .storeUint(-1L >>> 1, 63)
+                .storeBuffer(new byte[]{1, 2, 3})
+                .storeRef(child)
+                .storeRef(child)
+                .endCell();
+
+        try (CellArena arena = CellArena.load(BocSerialization.serializeBoc(cell, false, false))) {
+            CellArena.CellRef root = arena.root();
+            assertEquals(cell.bits, root.bits());
+            assertEquals(2, root.refsCount());
+            assertEquals(root.ref(0), root.ref(1));
+
+            CellArena.Slice s = root.beginParse();
+            assertTrue(s.loadBit());
+            assertEquals(0x1234_5678_9ABCL, s.loadUint(48));
+            assertEquals(-5, s.loadInt(13));
+            assertEquals(-1L >>> 1, s.preloadUint(63));
+            BitReader expected = new BitReader(cell.bits);
+            expected.skip(62);
+            assertEquals(expected.loadBits(63), s.loadBits(63));
+            assertArrayEquals(new byte[]{1, 2, 3}, s.loadBuffer(3));
+            assertEquals(7, arena.beginParse(s.loadRefIndex()).loadUint(3));
+            assertEquals(7, s.loadRef().beginParse().loadUint(3));
+            s.endParse();
+
+            assertThrows(IllegalArgumentException.class, () -> root.beginParse().skip(200));
+            assertThrows(IllegalStateException.class, () -> arena.beginParse(root.ref(0).index()).loadRef());
+        }
+    }
+
+    @Test
+    void shouldOpenFileAndReleaseOnClose() throws Exception {
+        byte[] bytes = readBase64("/vectors/serialization/accountState.txt");
+        Cell expected = BocSerialization.deserializeBoc(bytes).get(0);
+        Path file = Files.createTempFile("arena", ".boc");
+        try {
+            Files.write(file, BocSerialization.serializeBoc(expected, true, true));
+            CellArena arena = CellArena.open(file);
+            CellArena.CellRef root = arena.root();
+            assertArrayEquals(expected.hash(), root.hash());
+            assertTrue(arena.byteSize() > 0);
+
+            arena.close();
+            assertThrows(IllegalStateException.class, root::hash);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void shouldRejectCorruptedChecksum() {
+        byte[] bytes = Base64.getDecoder().decode("te6ccsEBAQEABgAGAAgHW80ViGH1dQ==");
+        bytes[bytes.length - 5] ^= 1;
+        assertThrows(IllegalStateException.class, () -> CellArena.load(bytes));
+    }
+
+    @Test
+    void shouldMaterializeDeepChains() {
+        Cell c = new Builder().storeUint(0, 16).endCell();
+        for (int i = 1; i < 10_000; i++) {
+            c = new Builder().storeUint(i, 16).storeRef(c).endCell();
+        }
+
+        try (CellArena arena = CellArena.load(BocSerialization.serializeBoc(c, false, false))) {
+            Cell cell = arena.root(0).toCell();
+            assertArrayEquals(c.hash(), cell.hash());
+            assertEquals(c.depth(), cell.depth());
+        }
+    }
+
+    @Test
+    void shouldBuildSharedCellsOncePerCall() {
+        Cell shared = new Builder().storeUint(7, 8).endCell();
+        Cell left = new Builder().storeUint(1, 8).storeRef(shared).endCell();
+        Cell right = new Builder().storeUint(2, 8).storeRef(shared).endCell();
+        Cell root = new Builder().storeRef(left).storeRef(right).endCell();
+
+        try (CellArena arena = CellArena.load(BocSerialization.serializeBoc(root, false, false))) {
+            Cell cell = arena.root(0).toCell();
+            assertEquals(root, cell);
+            assertSame(cell.refs.get(0).refs.get(0), cell.refs.get(1).refs.get(0));
+            assertEquals(left, arena.root(0).ref(0).toCell());
+        }
+    }
+
+    @Test
+    void shouldRejectHostileHeaders() {
+        // 25 bytes claiming 2^31 - 1 cells
+        assertThrows(IllegalStateException.class, () -> CellArena.load(hostileBoc(false, 1, 0x7fffffffL, 2, 2)));
+        // Index of 100 cells does not fit
+        assertThrows(IllegalStateException.class, () -> CellArena.load(hostileBoc(true, 8, 100, 200, 200)));
+        // Data size beyond the buffer
+        assertThrows(IllegalStateException.class, () -> CellArena.load(hostileBoc(false, 8, 1_000_000, 1L << 40, 2)));
+    }
+
+    private static void assertSameGraph(Cell root, CellArena.CellRef arenaRoot, String v) {
+        BitSet seen = new BitSet();
+        ArrayDeque<Object[]> queue = new ArrayDeque<>();
+        queue.add(new Object[]{root, arenaRoot});
+        while (!queue.isEmpty()) {
+            Object[] e = queue.poll();
+            Cell c = (Cell) e[0];
+            CellArena.CellRef r = (CellArena.CellRef) e[1];
+            if (seen.get(r.index())) {
+                continue;
+            }
+            seen.set(r.index());
+
+            assertEquals(c.bits, r.bits(), v);
+            assertEquals(c.isExotic(), r.isExotic(), v);
+            assertEquals(c.mask.value(), r.levelMask(), v);
+            for (int level = 0; level < 4; level++) {
+                assertArrayEquals(c.hash(level), r.hash(level), v);
+                assertEquals(c.depth(level), r.depth(level), v);
+            }
+            assertEquals(c.refs.size(), r.refsCount(), v);
+            for (int i = 0; i < c.refs.size(); i++) {
+                queue.add(new Object[]{c.refs.get(i), r.ref(i)});
+            }
+        }
+    }
+
+    private static byte[] readBase64(String classpath) throws Exception {
+        try (InputStream is = CellArenaTest.class.getResourceAsStream(classpath)) {
+            assertNotNull(is, "Missing resource " + classpath);
+            return Base64.getDecoder().decode(new String(is.readAllBytes(), StandardCharsets.UTF_8).trim());
+        }
+    }
+
+    /**
+     * Header of a BOC without CRC claiming {@code cells} records of
+     * {@code totalCellSize} bytes, followed by {@code data} zero bytes
+     */
+    private static byte[] hostileBoc(boolean index, int offBytes, long cells, long totalCellSize, int data) {
+        ByteBuffer b = ByteBuffer.allocate(4 + 2 + 3 * 4 + offBytes + 4 + data);
+        b.putInt(0xb5ee9c72);
+        b.put((byte) ((index ? 0x80 : 0) | 4));
+        b.put((byte) offBytes);
+        b.putInt((int) cells);
+        b.putInt(1);
+        b.putInt(0);
+        for (int i = offBytes - 1; i >= 0; i--) {
+            b.put((byte) (totalCellSize >>> (8 * i)));
+        }
+        b.putInt(0);
+        return b.array();
+    }
+}
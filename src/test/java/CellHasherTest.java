@@ -0,0 +1,56 @@
+import dev.quark.ton.core.boc.BitString;
+import dev.quark.ton.core.boc.Builder;
+import dev.quark.ton.core.boc.Cell;
+import dev.quark.ton.core.boc.CellType;
+import dev.quark.ton.core.boc.cell.descriptor.Descriptor;
+import dev.quark.ton.core.boc.cell.wonder.CellHasher;
+import dev.quark.ton.core.crypto.Sha256;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CellHasherTest {
+
+    @Test
+    void shouldMatchHashOfRepr() {
+        Random r = new Random(5);
+        List<Cell> pool = new ArrayList<>();
+        pool.add(Cell.EMPTY);
+        for (int i = 0; i < 300; i++) {
+            Builder b = Builder.beginCell();
+            int bits = r.nextInt(1024);
+            for (int j = 0; j < bits; j++) {
+                b.storeBit(r.nextBoolean());
+            }
+            int refs = r.nextInt(5);
+            for (int j = 0; j < refs; j++) {
+                b.storeRef(pool.get(r.nextInt(pool.size())));
+            }
+            Cell c = b.endCell();
+            pool.add(c);
+
+            // offset view to exercise unaligned copies
+            BitString view = new Builder().storeBit(true).storeBits(c.bits).endCell().bits.substring(1, bits);
+            byte[] expected = Sha256.sha256Sync(Descriptor.getRepr(c.bits, view, c.refs, 0, 0, CellType.Ordinary));
+            assertArrayEquals(expected, CellHasher.hash(c.bits, view, c.refs, 0, 0, CellType.Ordinary));
+            assertArrayEquals(expected, c.hash());
+        }
+    }
+
+    @Test
+    void shouldHashHigherLevelsFromLowerHash() {
+        Random r = new Random(6);
+        for (int i = 0; i < 50; i++) {
+            byte[] lower = new byte[32];
+            r.nextBytes(lower);
+            BitString bits = new BitString(lower, 0, 256);
+            Cell c = Builder.beginCell().storeUint(i, 32).endCell();
+            byte[] expected = Sha256.sha256Sync(Descriptor.getRepr(c.bits, bits, List.of(c), 1, 1, CellType.Ordinary));
+            assertArrayEquals(expected, CellHasher.hash(c.bits, lower, List.of(c), 1, 1, CellType.Ordinary));
+        }
+    }
+}
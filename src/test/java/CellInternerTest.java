@@ -0,0 +1,105 @@
+import dev.quark.ton.core.boc.Builder;
+import dev.quark.ton.core.boc.Cell;
+import dev.quark.ton.core.boc.cell.serialization.BocSerialization;
+import dev.quark.ton.core.boc.cell.utils.CellInterner;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CellInternerTest {
+
+    @Test
+    void shouldCompareCellsByContent() {
+        Cell a = new Builder().storeUint(42, 32).storeRef(Cell.EMPTY).endCell();
+        Cell b = new Builder().storeUint(42, 32).storeRef(Cell.EMPTY).endCell();
+        Cell c = new Builder().storeUint(43, 32).endCell();
+
+        assertNotSame(a, b);
+        assertEquals(a, (Object) b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertNotEquals(a, (Object) c);
+        assertNotEquals(a, (Object) "cell");
+
+        Map<Cell, String> map = new HashMap<>();
+        map.put(a, "a");
+        assertEquals("a", map.get(b));
+    }
+
+    @Test
+    void shouldShareSubtreesDecodedFromDifferentBocs() {
+        Cell code = new Builder().storeUint(0xC0DE, 16).storeRef(new Builder().storeUint(1, 8).endCell()).endCell();
+        Cell first = new Builder().storeUint(1, 8).storeRef(code).endCell();
+        Cell second = new Builder().storeUint(2, 8).storeRef(code).endCell();
+
+        CellInterner interner = new CellInterner(1024);
+        Cell.DeserializeOptions opts = new Cell.DeserializeOptions();
+        opts.interner = interner;
+
+        Cell x = Cell.fromBoc(first.toBoc(), opts).get(0);
+        Cell y = Cell.fromBoc(second.toBoc(), opts).get(0);
+        assertSame(x.refs.get(0), y.refs.get(0));
+        assertSame(x.refs.get(0).refs.get(0), y.refs.get(0).refs.get(0));
+
+        opts.parallelHashing = true;
+        assertSame(x, Cell.fromBoc(first.toBoc(), opts).get(0));
+
+        assertSame(x.refs.get(0), new Builder().storeUint(0xC0DE, 16)
+                .storeRef(new Builder().storeUint(1, 8).endCell()).endCell(interner));
+    }
+
+    @Test
+    void shouldVerifyTrustedHashesBeforeInterning() {
+        Cell honest = new Builder().storeUint(0x11223344L, 32).endCell();
+        CellInterner interner = new CellInterner(1024);
+        assertSame(honest, interner.intern(honest));
+
+        // Other content under the stored hash of the honest cell
+        Cell content = new Builder().storeUint(0x55667788L, 32).endCell();
+        byte[] forged = BocSerialization.serializeBoc(List.of(content), false, false, false, true);
+        byte[] hash = content.hash();
+        for (int i = 0; i + 32 <= forged.length; i++) {
+            if (Arrays.equals(forged, i, i + 32, hash, 0, 32)) {
+                System.arraycopy(honest.hash(), 0, forged, i, 32);
+            }
+        }
+
+        Cell.DeserializeOptions opts = new Cell.DeserializeOptions();
+        opts.interner = interner;
+        opts.trustStoredHashes = true;
+        assertThrows(IllegalArgumentException.class, () -> Cell.fromBoc(forged, opts));
+
+        opts.verifyStoredHashes = true;
+        assertThrows(IllegalStateException.class, () -> Cell.fromBoc(forged, opts));
+        opts.parallelHashing = true;
+        assertThrows(IllegalStateException.class, () -> Cell.fromBoc(forged, opts));
+        assertEquals(1, interner.size());
+
+        // Honest trusted cells are interned once verified
+        Cell parent = new Builder().storeUint(1, 8).storeRef(new Builder().storeUint(0x11223344L, 32).endCell()).endCell();
+        Cell decoded = Cell.fromBoc(BocSerialization.serializeBoc(List.of(parent), false, false, false, true), opts).get(0);
+        assertSame(honest, decoded.refs.get(0));
+        assertSame(decoded, interner.intern(parent));
+    }
+
+    @Test
+    void shouldStayBounded() {
+        CellInterner interner = new CellInterner(8);
+        Cell[] keep = new Cell[32];
+        for (int i = 0; i < keep.length; i++) {
+            keep[i] = interner.intern(new Builder().storeUint(i, 16).endCell());
+        }
+        assertTrue(interner.size() <= 8);
+
+        Cell recent = new Builder().storeUint(31, 16).endCell();
+        assertSame(keep[31], interner.intern(recent));
+
+        interner.clear();
+        assertEquals(0, interner.size());
+        assertThrows(IllegalArgumentException.class, () -> new CellInterner(0));
+    }
+}
@@ -100,6 +100,56 @@ class CellTest {
         assertEquals(c.level(), c2.level());
     }
 
+    @Test
+    void shouldHashLongChainsLazily() {
+        // hashes are computed on first access, iteratively over the whole chain
+        Cell c = Builder.beginCell().storeUint(0, 8).endCell();
+        for (int i = 1; i < 20_000; i++) {
+            c = Builder.beginCell().storeUint(i & 0xFF, 8).storeRef(c).endCell();
+        }
+        assertEquals(19_999, c.depth());
+        assertEquals(19_998, c.refs.get(0).depth());
+
+        Cell expected = Builder.beginCell().storeUint(19_999 & 0xFF, 8).storeRef(c.refs.get(0)).endCell();
+        assertArrayEquals(expected.hash(), c.hash());
+    }
+
+    @Test
+    void shouldKeepCompactLayoutBehindPublicApi() {
+        Cell leaf = Builder.beginCell().storeUint(1, 8).endCell();
+        Cell a = Builder.beginCell().storeRef(leaf).endCell();
+        Cell b = Builder.beginCell().storeRef(leaf).storeRef(a).endCell();
+
+        assertSame(a.mask, b.mask);
+        assertSame(b.hash(0), b.hash(3));
+        assertEquals(2, b.depth(0));
+        assertEquals(2, b.depth(3));
+        assertEquals(List.of(leaf, a), b.refs);
+        assertThrows(UnsupportedOperationException.class, () -> b.refs.add(leaf));
+    }
+
+    @Test
+    void shouldMemoizeHashesAcrossThreads() throws Exception {
+        Cell leaf = Builder.beginCell().storeUint(42, 32).endCell();
+        Cell root = Builder.beginCell().storeRef(leaf).storeRef(leaf).endCell();
+        byte[] expected = Cell.fromBoc(root.toBoc()).get(0).hash();
+
+        List<Thread> threads = new ArrayList<>();
+        List<byte[]> results = java.util.Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 8; i++) {
+            Thread t = new Thread(() -> results.add(root.hash()));
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        for (byte[] r : results) {
+            assertArrayEquals(expected, r);
+        }
+        assertSame(root.hash(), root.hash());
+    }
+
     @Test
     void shouldEqualsWorkByHash() {
         Cell a = Builder.beginCell().storeUint(1, 1).endCell();
@@ -1,6 +1,7 @@
 import dev.quark.ton.core.utils.Crc32c;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -17,4 +18,21 @@ public class Crc32cTest {
                 (byte) 0x83, (byte) 0x92, (byte) 0x06, (byte) 0xE3
         }, crc);
     }
+
+    @Test
+    void shouldChecksumRangesIncrementally() {
+        byte[] data = "xx123456789yy".getBytes(StandardCharsets.UTF_8);
+        byte[] expected = Crc32c.crc32c("123456789".getBytes(StandardCharsets.UTF_8));
+
+        assertArrayEquals(expected, Crc32c.crc32c(data, 2, 9));
+
+        ByteBuffer buffer = ByteBuffer.wrap(data, 2, 9);
+        assertArrayEquals(expected, Crc32c.crc32c(buffer));
+        assertEquals(2, buffer.position());
+
+        Crc32c.Digest d = new Crc32c.Digest();
+        d.update(data, 2, 4).update(ByteBuffer.wrap(data, 6, 5));
+        assertArrayEquals(expected, d.toBytes());
+        assertArrayEquals(expected, Crc32c.toBytes(d.value()));
+    }
 }
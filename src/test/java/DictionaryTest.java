@@ -1,3 +1,4 @@
+import dev.quark.ton.core.address.Address;
 import dev.quark.ton.core.boc.BitReader;
 import dev.quark.ton.core.boc.BitString;
 import dev.quark.ton.core.boc.Builder;
@@ -5,6 +6,7 @@ import dev.quark.ton.core.boc.Cell;
 import dev.quark.ton.core.boc.CellType;
 import dev.quark.ton.core.boc.Slice;
 import dev.quark.ton.core.dict.Dictionary;
+import dev.quark.ton.core.dict.utils.InternalKeySerializer;
 import org.junit.jupiter.api.Test;
 
 import java.io.BufferedReader;
@@ -12,8 +14,13 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
@@ -198,6 +205,134 @@ class DictionaryTest {
         }
     }
 
+    @Test
+    void shouldMatchInternalKeyMapUnderRandomUpdates() {
+        // Reference: the TS layout, a LinkedHashMap keyed by serializeInternalKey
+        Random rnd = new Random(42);
+        Map<String, Long> model = new LinkedHashMap<>();
+        Dictionary<Long, Long> d = Dictionary.empty(Dictionary.Keys.Uint(32), Dictionary.Values.Uint(32));
+
+        for (int i = 0; i < 20_000; i++) {
+            long k = rnd.nextInt(2_000);
+            String ik = InternalKeySerializer.serializeInternalKey(k);
+            if (rnd.nextInt(3) == 0) {
+                assertEquals(model.remove(ik) != null, d.delete(k));
+            } else {
+                model.put(ik, (long) i);
+                d.set(k, (long) i);
+            }
+            assertEquals(model.get(ik), d.get(k));
+        }
+
+        assertEquals(model.size(), d.size());
+        List<Long> expectedKeys = new ArrayList<>();
+        for (String ik : model.keySet()) {
+            expectedKeys.add((Long) InternalKeySerializer.deserializeInternalKey(ik));
+        }
+        assertEquals(expectedKeys, d.keys());
+        assertEquals(new ArrayList<>(model.values()), d.values());
+
+        Dictionary<Long, Long> copy = Dictionary.loadDirect(Dictionary.Keys.Uint(32), Dictionary.Values.Uint(32),
+                Builder.beginCell().storeDictDirect(d, null, null).endCell());
+        for (Map.Entry<Long, Long> e : d) {
+            assertEquals(e.getValue(), copy.get(e.getKey()));
+        }
+    }
+
+    @Test
+    void shouldGrowWithDeletedBigintKeys() {
+        Random rnd = new Random(16);
+        Map<BigInteger, Long> model = new LinkedHashMap<>();
+        Dictionary<BigInteger, Long> d = Dictionary.empty(Dictionary.Keys.BigUint(16), Dictionary.Values.Uint(32));
+
+        for (int i = 0; i < 5_000; i++) {
+            BigInteger k = BigInteger.valueOf(rnd.nextInt(1 << i % 12));
+            if (rnd.nextInt(3) == 0) {
+                assertEquals(model.remove(k) != null, d.delete(k));
+            } else {
+                model.put(k, (long) i);
+                d.set(k, (long) i);
+            }
+            assertEquals(model.get(k), d.get(k));
+        }
+        assertEquals(new ArrayList<>(model.keySet()), d.keys());
+    }
+
+    @Test
+    void shouldNavigateSignedKeysInBitOrder() {
+        Dictionary<Long, Long> d = Dictionary.empty(Dictionary.Keys.Int(8), Dictionary.Values.Uint(8));
+        for (long k : new long[]{-3, 7, 0, -128, 127}) {
+            d.set(k, k & 0xFF);
+        }
+
+        // Two's complement bits: non-negative keys first
+        assertEquals(0L, d.first().getKey());
+        assertEquals(-3L, d.floor(-1L).getKey());                 // -1 is 0xFF, the greatest
+        assertEquals(127L, d.next(7L).getKey());
+        assertEquals(-128L, d.next(127L).getKey());
+        assertEquals(-3L, d.last().getKey());
+        assertNull(d.next(-3L));
+        assertEquals(List.of(7L, 127L, -128L), d.subMap(1L, -3L).keys());
+
+        assertThrows(IllegalStateException.class, () -> Dictionary.<Long, Long>empty().first());
+    }
+
+    @Test
+    void shouldKeepNavigationInSyncWithUpdates() {
+        Dictionary<Long, Long> d = Dictionary.empty(Dictionary.Keys.Uint(16), Dictionary.Values.Uint(16));
+        TreeMap<Long, Long> model = new TreeMap<>();
+        Random rnd = new Random(25);
+        for (int i = 0; i < 500; i++) {
+            long k = rnd.nextInt(200);
+            if (rnd.nextInt(3) == 0) {
+                assertEquals(model.remove(k) != null, d.delete(k));
+            } else {
+                model.put(k, (long) i);
+                d.set(k, (long) i);
+            }
+
+            long probe = rnd.nextInt(200);
+            assertEquals(model.ceilingEntry(probe), d.ceiling(probe));
+            assertEquals(model.floorEntry(probe), d.floor(probe));
+            assertEquals(model.higherEntry(probe), d.next(probe));
+            assertEquals(model.lowerEntry(probe), d.prev(probe));
+            assertEquals(model.isEmpty() ? null : model.firstEntry(), d.first());
+            assertEquals(new ArrayList<>(model.subMap(probe, probe + 30).keySet()), d.subMap(probe, Math.min(probe + 30, 0xFFFF)).keys());
+        }
+    }
+
+    @Test
+    void shouldCompareKeysByValueAcrossTypes() {
+        Dictionary<Object, String> d = Dictionary.empty();
+        Address a = Address.parseRaw("0:" + "ab".repeat(32));
+
+        d.set(5L, "long");
+        assertEquals("long", d.get(5));                     // Integer and Long are the same number
+        d.set(BigInteger.valueOf(5), "bigint");             // switches to value keys, keeps order
+        d.set(new byte[]{1, 2}, "buffer");
+        d.set(new BitString(new byte[]{(byte) 0x80}, 0, 3), "bits");
+        d.set(a, "address");
+
+        assertEquals(5, d.size());
+        assertEquals("long", d.get(5L));
+        assertEquals("bigint", d.get(BigInteger.valueOf(5)));
+        assertEquals("buffer", d.get(new byte[]{1, 2}));
+        assertEquals("bits", d.get(new BitString(new byte[]{(byte) 0x9F}, 0, 3)));
+        assertEquals("address", d.get(Address.parseRaw("0:" + "ab".repeat(32))));
+        assertNull(d.get(Address.parseRaw("-1:" + "ab".repeat(32))));
+        assertNull(d.get(new BitString(new byte[]{(byte) 0x80}, 0, 4)));
+
+        List<Object> keys = d.keys();
+        assertEquals(5L, keys.get(0));
+        assertEquals(BigInteger.valueOf(5), keys.get(1));
+        assertArrayEquals(new byte[]{1, 2}, (byte[]) keys.get(2));
+
+        assertTrue(d.delete(new byte[]{1, 2}));
+        assertFalse(d.has(new byte[]{1, 2}));
+        assertThrows(IllegalArgumentException.class, () -> d.get("5"));
+        assertThrows(IllegalArgumentException.class, () -> d.set(1L << 60, "unsafe"));
+    }
+
     @Test
     void shouldParseConfig_ifTestdataPresent() {
         // TS читает __testdata__/config.txt как base64 строку
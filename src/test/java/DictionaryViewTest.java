@@ -0,0 +1,180 @@
+import dev.quark.ton.core.boc.BitString;
+import dev.quark.ton.core.boc.Builder;
+import dev.quark.ton.core.boc.Cell;
+import dev.quark.ton.core.dict.Dictionary;
+import dev.quark.ton.core.dict.DictionaryView;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class DictionaryViewTest {
+
+    @Test
+    void shouldMatchParsedDictionary() {
+        Random rnd = new Random(3);
+
+        Dictionary<Long, Long> ints = Dictionary.empty(Dictionary.Keys.Int(16), Dictionary.Values.Uint(32));
+        for (int i = 0; i < 500; i++) {
+            ints.set((long) rnd.nextInt(1 << 16) - (1 << 15), (long) i);
+        }
+        DictionaryView<Long, Long> intView = DictionaryView.loadDirect(
+                Dictionary.Keys.Int(16), Dictionary.Values.Uint(32), Builder.beginCell().storeDictDirect(ints, null, null).endCell());
+        for (long k = -(1 << 15); k < (1 << 15); k++) {
+            assertEquals(ints.get(k), intView.get(k));
+            assertEquals(ints.has(k), intView.has(k));
+        }
+
+        Dictionary<BigInteger, Long> wide = Dictionary.empty(Dictionary.Keys.BigUint(256), Dictionary.Values.Uint(32));
+        for (int i = 0; i < 500; i++) {
+            wide.set(new BigInteger(256, rnd), (long) i);
+        }
+        DictionaryView<BigInteger, Long> wideView = DictionaryView.load(
+                Dictionary.Keys.BigUint(256), Dictionary.Values.Uint(32), Builder.beginCell().storeDict(wide, null, null).endCell());
+        for (Map.Entry<BigInteger, Long> e : wide) {
+            assertEquals(e.getValue(), wideView.get(e.getKey()));
+            assertNull(wideView.get(e.getKey().flipBit(0)));
+        }
+        assertEquals(wide.size(), wideView.toDictionary().size());
+
+        DictionaryView<BigInteger, Long> empty = DictionaryView.load(
+                Dictionary.Keys.BigUint(256), Dictionary.Values.Uint(32), Builder.beginCell().storeBit(false).endCell());
+        assertTrue(empty.isEmpty());
+        assertNull(empty.get(BigInteger.ONE));
+    }
+
+    @Test
+    void shouldReadConfigParams_ifTestdataPresent() throws Exception {
+        String base64;
+        try (InputStream is = DictionaryViewTest.class.getResourceAsStream("/__testdata__/config.txt")) {
+            assumeTrue(is != null, "config.txt not found in test resources");
+            base64 = new String(is.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+        Cell cell = Cell.fromBoc(Base64.getDecoder().decode(base64)).get(0);
+
+        Dictionary<Long, Cell> configs = cell.beginParse().loadDictDirect(Dictionary.Keys.Int(32), Dictionary.Values.Cell());
+        DictionaryView<Long, Cell> view = DictionaryView.loadDirect(Dictionary.Keys.Int(32), Dictionary.Values.Cell(), cell);
+        for (Map.Entry<Long, Cell> e : configs) {
+            assertEquals(e.getValue(), view.get(e.getKey()));
+        }
+        assertNull(view.get(-1000L));
+        assertNull(view.get(1000L));
+    }
+
+    @Test
+    void shouldTreatPrunedBranchesAsMissing() {
+        Dictionary<Long, Long> d = Dictionary.empty(Dictionary.Keys.Uint(8), Dictionary.Values.Uint(32));
+        for (long k = 1; k <= 5; k++) {
+            d.set(k, k * 11);
+        }
+        Cell proof = d.generateMerkleProof(3L);
+
+        DictionaryView<Long, Long> view = DictionaryView.loadDirect(
+                Dictionary.Keys.Uint(8), Dictionary.Values.Uint(32), proof.refs.get(0));
+        assertEquals(33L, view.get(3L));
+        assertNull(view.get(1L));
+        assertFalse(view.has(5L));
+    }
+
+    @Test
+    void shouldCacheDecodedValues() {
+        Dictionary<Long, BigInteger> d = Dictionary.empty(Dictionary.Keys.Uint(32), Dictionary.Values.BigUint(128));
+        for (long k = 0; k < 10; k++) {
+            d.set(k, BigInteger.ONE.shiftLeft(100).add(BigInteger.valueOf(k)));
+        }
+        Cell root = Builder.beginCell().storeDictDirect(d, null, null).endCell();
+
+        DictionaryView<Long, BigInteger> plain = DictionaryView.loadDirect(Dictionary.Keys.Uint(32), Dictionary.Values.BigUint(128), root);
+        assertNotSame(plain.get(7L), plain.get(7L));
+
+        DictionaryView<Long, BigInteger> cached = plain.withCache(2);
+        BigInteger first = cached.get(7L);
+        assertSame(first, cached.get(7L));
+        assertEquals(d.get(7L), first);
+        assertNull(cached.get(70L));
+        assertThrows(IllegalArgumentException.class, () -> plain.withCache(-1));
+    }
+
+    @Test
+    void shouldNavigateInKeyOrder() {
+        Random rnd = new Random(25);
+        var keys = Dictionary.Keys.BigUint(16);
+        var values = Dictionary.Values.Uint(32);
+        TreeMap<BigInteger, Long> model = new TreeMap<>();
+        Dictionary<BigInteger, Long> d = Dictionary.empty(keys, values);
+        for (int i = 0; i < 300; i++) {
+            BigInteger k = BigInteger.valueOf(rnd.nextInt(1 << 16) & ~0x0F0);
+            model.put(k, (long) i);
+            d.set(k, (long) i);
+        }
+        DictionaryView<BigInteger, Long> view = DictionaryView.loadDirect(keys, values,
+                Builder.beginCell().storeDictDirect(d, null, null).endCell());
+
+        assertEquals(model.firstEntry(), view.first());
+        assertEquals(model.lastEntry(), view.last());
+        assertEquals(model.firstEntry(), d.first());
+        assertEquals(model.lastEntry(), d.last());
+        for (int i = 0; i < 2_000; i++) {
+            BigInteger k = BigInteger.valueOf(rnd.nextInt(1 << 16));
+            assertEquals(model.ceilingEntry(k), view.ceiling(k));
+            assertEquals(model.floorEntry(k), view.floor(k));
+            assertEquals(model.higherEntry(k), view.next(k));
+            assertEquals(model.lowerEntry(k), view.prev(k));
+        }
+        for (BigInteger k : model.keySet()) {
+            assertEquals(model.higherEntry(k), view.next(k));
+            assertEquals(model.higherEntry(k), d.next(k));
+            assertEquals(model.ceilingEntry(k), d.ceiling(k));
+            assertEquals(model.lowerEntry(k), d.prev(k));
+        }
+
+        for (int i = 0; i < 200; i++) {
+            BigInteger from = BigInteger.valueOf(rnd.nextInt(1 << 16));
+            BigInteger to = from.add(BigInteger.valueOf(rnd.nextInt(4_000))).min(BigInteger.valueOf(0xFFFF));
+            List<BigInteger> expected = List.copyOf(model.subMap(from, to).keySet());
+            assertEquals(expected, view.subMap(from, to).keys());
+            assertEquals(expected, d.subMap(from, to).keys());
+        }
+        assertThrows(IllegalArgumentException.class, () -> view.subMap(BigInteger.TEN, BigInteger.ONE));
+
+        BitString prefix = new BitString(new byte[]{(byte) 0xA4}, 0, 6);   // 101001
+        Dictionary<BigInteger, Long> page = view.prefixScan(prefix);
+        List<BigInteger> expected = List.copyOf(model.subMap(BigInteger.valueOf(0xA400), BigInteger.valueOf(0xA800)).keySet());
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, page.keys());
+        assertEquals(model.get(expected.get(0)), page.get(expected.get(0)));
+        assertEquals(expected, d.prefixScan(prefix).keys());
+        assertEquals(model.size(), view.prefixScan(BitString.EMPTY).size());
+        assertThrows(IllegalArgumentException.class, () -> view.prefixScan(new BitString(new byte[3], 0, 17)));
+
+        DictionaryView<BigInteger, Long> empty = DictionaryView.loadDirect(keys, values, null);
+        assertNull(empty.first());
+        assertNull(empty.ceiling(BigInteger.ZERO));
+        assertEquals(0, empty.subMap(BigInteger.ZERO, BigInteger.TEN).size());
+    }
+
+    @Test
+    void shouldNavigateAroundPrunedBranches() {
+        Dictionary<Long, Long> d = Dictionary.empty(Dictionary.Keys.Uint(8), Dictionary.Values.Uint(32));
+        for (long k = 1; k <= 5; k++) {
+            d.set(k, k * 11);
+        }
+        DictionaryView<Long, Long> view = DictionaryView.loadDirect(
+                Dictionary.Keys.Uint(8), Dictionary.Values.Uint(32), d.generateMerkleProof(3L).refs.get(0));
+
+        assertEquals(Map.entry(3L, 33L), view.first());
+        assertEquals(Map.entry(3L, 33L), view.last());
+        assertNull(view.next(3L));
+        assertEquals(Map.entry(3L, 33L), view.ceiling(1L));
+        assertEquals(List.of(3L), view.subMap(0L, 255L).keys());
+    }
+}
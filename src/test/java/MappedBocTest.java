@@ -0,0 +1,148 @@
+import dev.quark.ton.core.boc.Builder;
+import dev.quark.ton.core.boc.Cell;
+import dev.quark.ton.core.boc.cell.serialization.BocSerialization;
+import dev.quark.ton.core.boc.cell.serialization.MappedBoc;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedBocTest {
+
+    @Test
+    void shouldWalkPathLazilyWithIndex() throws Exception {
+        Cell src = BocSerialization.deserializeBoc(readBase64("/vectors/serialization/accountState.txt")).get(0);
+        Path file = Files.createTempFile("mapped", ".boc");
+        try {
+            Files.write(file, BocSerialization.serializeBoc(src, true, true));
+            try (MappedBoc boc = MappedBoc.open(file)) {
+                assertTrue(boc.hasIndex());
+                boc.verifyCrc32c();
+
+                // Follow the first-ref path down to a leaf
+                MappedBoc.Handle h = boc.root();
+                Cell c = src;
+                while (true) {
+                    assertEquals(c.bits, h.bits());
+                    assertEquals(c.refs.size(), h.refsCount());
+                    assertEquals(c.isExotic(), h.isExotic());
+                    if (c.refs.isEmpty()) {
+                        break;
+                    }
+                    h = h.ref(c.refs.size() - 1);
+                    c = c.refs.get(c.refs.size() - 1);
+                }
+
+                assertArrayEquals(src.hash(), boc.root().toCell().hash());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void shouldScanOffsetsWithoutIndex() throws Exception {
+        byte[] bytes = readBase64("/vectors/serialization/accountProof.txt");
+        Cell src = BocSerialization.deserializeBoc(bytes).get(0);
+
+        MappedBoc boc = MappedBoc.of(MemorySegment.ofArray(BocSerialization.serializeBoc(src, false, true)));
+        assertFalse(boc.hasIndex());
+        assertEquals(1, boc.rootsCount());
+        assertArrayEquals(src.hash(), boc.root().toCell().hash());
+        assertEquals(src.refs.get(0).bits, boc.root().ref(0).bits());
+    }
+
+    @Test
+    void shouldHonourCacheBitsInIndex() throws Exception {
+        Cell src = BocSerialization.deserializeBoc(readBase64("/vectors/serialization/configProof.txt")).get(0);
+        byte[] bytes = BocSerialization.serializeBoc(java.util.List.of(src), true, true, true, false);
+
+        MappedBoc boc = MappedBoc.of(MemorySegment.ofArray(bytes));
+        boc.verifyCrc32c();
+        assertArrayEquals(src.hash(), boc.root().toCell().hash());
+    }
+
+    @Test
+    void shouldDetectCorruptedChecksum() {
+        byte[] bytes = Base64.getDecoder().decode("te6ccsEBAQEABgAGAAgHW80ViGH1dQ==");
+        bytes[bytes.length - 5] ^= 1;
+        MappedBoc boc = MappedBoc.of(MemorySegment.ofArray(bytes));
+        assertThrows(IllegalStateException.class, boc::verifyCrc32c);
+    }
+
+    @Test
+    void shouldMaterializeDeepChains() {
+        Cell c = Builder.beginCell().storeUint(0, 16).endCell();
+        for (int i = 1; i < 10_000; i++) {
+            c = Builder.beginCell().storeUint(i, 16).storeRef(c).endCell();
+        }
+
+        for (boolean idx : new boolean[]{false, true}) {
+            MappedBoc boc = MappedBoc.of(MemorySegment.ofArray(BocSerialization.serializeBoc(c, idx, false)));
+            Cell cell = boc.root().toCell();
+            assertArrayEquals(c.hash(), cell.hash());
+            assertEquals(cell, boc.root().toCell());
+        }
+    }
+
+    @Test
+    void shouldBuildSharedCellsOncePerCall() {
+        Cell shared = Builder.beginCell().storeUint(7, 8).endCell();
+        Cell root = Builder.beginCell()
+                .storeRef(Builder.beginCell().storeUint(1, 8).storeRef(shared).endCell())
+                .storeRef(Builder.beginCell().storeUint(2, 8).storeRef(shared).endCell())
+                .endCell();
+
+        MappedBoc boc = MappedBoc.of(MemorySegment.ofArray(BocSerialization.serializeBoc(root, true, false)));
+        Cell cell = boc.root().toCell();
+        assertEquals(root, cell);
+        assertSame(cell.refs.get(0).refs.get(0), cell.refs.get(1).refs.get(0));
+        assertNotSame(cell, boc.root().toCell());
+    }
+
+    @Test
+    void shouldRejectHostileHeaders() {
+        // 25 bytes claiming 2^31 - 1 cells: offsets would be scanned on first access
+        assertThrows(IllegalStateException.class,
+                () -> MappedBoc.of(MemorySegment.ofArray(hostileBoc(false, 1, 0x7fffffffL, 2, 2))).root());
+        // Index of 100 cells does not fit
+        assertThrows(IllegalStateException.class,
+                () -> MappedBoc.of(MemorySegment.ofArray(hostileBoc(true, 8, 100, 200, 200))));
+        // Data size beyond the buffer
+        assertThrows(IllegalStateException.class,
+                () -> MappedBoc.of(MemorySegment.ofArray(hostileBoc(false, 8, 1_000_000, 1L << 40, 2))));
+    }
+
+    private static byte[] readBase64(String classpath) throws Exception {
+        try (InputStream is = MappedBocTest.class.getResourceAsStream(classpath)) {
+            assertNotNull(is, "Missing resource " + classpath);
+            return Base64.getDecoder().decode(new String(is.readAllBytes(), StandardCharsets.UTF_8).trim());
+        }
+    }
+
+    /**
+     * Header of a BOC without CRC claiming {@code cells} records of
+     * {@code totalCellSize} bytes, followed by {@code data} zero bytes
+     */
+    private static byte[] hostileBoc(boolean index, int offBytes, long cells, long totalCellSize, int data) {
+        ByteBuffer b = ByteBuffer.allocate(4 + 2 + 3 * 4 + offBytes + 4 + data);
+        b.putInt(0xb5ee9c72);
+        b.put((byte) ((index ? 0x80 : 0) | 4));
+        b.put((byte) offBytes);
+        b.putInt((int) cells);
+        b.putInt(1);
+        b.putInt(0);
+        for (int i = offBytes - 1; i >= 0; i--) {
+            b.put((byte) (totalCellSize >>> (8 * i)));
+        }
+        b.putInt(0);
+        return b.array();
+    }
+}
@@ -0,0 +1,191 @@
+import dev.quark.ton.core.boc.Builder;
+import dev.quark.ton.core.boc.Cell;
+import dev.quark.ton.core.dict.Dictionary;
+import dev.quark.ton.core.boc.Slice;
+import dev.quark.ton.core.dict.PersistentDictionary;
+import dev.quark.ton.core.types.CurrencyCollection;
+import dev.quark.ton.core.types.DepthBalanceInfo;
+import dev.quark.ton.core.types.ShardAccount;
+import dev.quark.ton.core.types.ShardAccounts;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentDictionaryTest {
+
+    @Test
+    void shouldMatchFullSerializationUnderRandomUpdates() {
+        for (int keyBits : new int[]{4, 16, 256}) {
+            Random rnd = new Random(keyBits);
+            var keys = Dictionary.Keys.BigUint(keyBits);
+            var values = Dictionary.Values.Uint(32);
+            Dictionary<BigInteger, Long> model = Dictionary.empty(keys, values);
+            PersistentDictionary<BigInteger, Long> d = PersistentDictionary.empty(keys, values);
+
+            for (int i = 0; i < 600; i++) {
+                BigInteger k = new BigInteger(Math.min(keyBits, 6), rnd);
+                if (keyBits > 6) {
+                    k = k.shiftLeft(keyBits - 6 - rnd.nextInt(2)); // shared prefixes and same labels
+                }
+                if (rnd.nextInt(3) == 0) {
+                    PersistentDictionary<BigInteger, Long> next = d.delete(k);
+                    assertEquals(model.delete(k), next != d);
+                    d = next;
+                } else {
+                    model.set(k, (long) i);
+                    d = d.set(k, (long) i);
+                }
+
+                assertEquals(model.get(k), d.get(k));
+                if (model.size() == 0) {
+                    assertTrue(d.isEmpty());
+                } else {
+                    Cell expected = Builder.beginCell().storeDictDirect(model, null, null).endCell();
+                    assertEquals(expected, d.root());
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldShareUntouchedSubtrees() {
+        var keys = Dictionary.Keys.Uint(32);
+        var values = Dictionary.Values.Uint(32);
+        Dictionary<Long, Long> src = Dictionary.empty(keys, values);
+        for (long k = 0; k < 1000; k++) {
+            src.set(k * 7, k);
+        }
+        PersistentDictionary<Long, Long> before = PersistentDictionary.of(src, keys, values);
+        PersistentDictionary<Long, Long> after = before.set(7L, 100L);
+
+        assertEquals(1L, before.get(7L));
+        assertEquals(100L, after.get(7L));
+        assertSame(before.root().refs.get(1), after.root().refs.get(1));
+        assertSame(before, before.delete(8L));
+
+        Builder b = Builder.beginCell();
+        after.store(b);
+        Dictionary<Long, Long> loaded = b.endCell().beginParse().loadDict(keys, values);
+        assertEquals(1000, loaded.size());
+        assertEquals(100L, loaded.get(7L));
+        assertEquals(after.root(), PersistentDictionary.load(keys, values, b.endCell()).root());
+    }
+
+    @Test
+    void shouldRefuseToUpdatePrunedSubtrees() {
+        var keys = Dictionary.Keys.Uint(8);
+        var values = Dictionary.Values.Uint(32);
+        Dictionary<Long, Long> src = Dictionary.empty(keys, values);
+        for (long k = 1; k <= 5; k++) {
+            src.set(k, k * 11);
+        }
+        Cell proof = src.generateMerkleProof(3L);
+        PersistentDictionary<Long, Long> d = PersistentDictionary.loadDirect(keys, values, proof.refs.get(0));
+
+        assertEquals(66L, d.set(3L, 66L).get(3L));
+        assertNull(d.get(1L));
+        assertThrows(IllegalStateException.class, () -> d.set(1L, 1L));
+    }
+
+    @Test
+    void shouldRecomputeAugmentedForkExtras() {
+        var keys = Dictionary.Keys.Uint(16);
+        Random rnd = new Random(24);
+        Dictionary<Long, Long> model = Dictionary.empty(keys, SUMMED);
+        PersistentDictionary<Long, Long> d = PersistentDictionary.empty(keys, SUMMED, SUM);
+
+        for (int i = 0; i < 400; i++) {
+            long k = rnd.nextInt(64) << rnd.nextInt(10);
+            if (rnd.nextInt(3) == 0) {
+                model.delete(k);
+                d = d.delete(k);
+            } else {
+                model.set(k, (long) i);
+                d = d.set(k, (long) i);
+            }
+
+            long total = 0;
+            for (long v : model.values()) {
+                total += v;
+            }
+            Builder b = Builder.beginCell();
+            d.store(b);
+            Slice s = b.endCell().beginParse();
+            assertEquals(model.size() > 0, s.loadBit());
+            assertEquals(total, s.loadUint(32));
+
+            // Same trie whatever the order of updates
+            assertEquals(PersistentDictionary.of(model, keys, SUMMED, SUM).root(), d.root());
+        }
+    }
+
+    @Test
+    void shouldKeepShardAccountBalances() {
+        ShardAccount account = ShardAccount.loadShardAccount(Cell.fromBoc(Base64.getDecoder().decode(
+                "te6cckEBBAEA7wABUAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAEBAnfACD39VS5jcptHL8vMjEXrzGaRcCVYto7HUn4bpAOg8xqCAkCIGAAAACAAAAAAAAAAGgN4Lazp2QAAE0ACAwCAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAQCAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAjPUU3w="
+        )).get(0).beginParse());
+        var keys = Dictionary.Keys.BigUint(256);
+        PersistentDictionary<BigInteger, ShardAccounts.ShardAccountRef> d =
+                PersistentDictionary.empty(keys, ShardAccounts.ShardAccountRefValue, ShardAccounts.DepthBalanceAugmentation);
+        for (int i = 1; i <= 20; i++) {
+            DepthBalanceInfo info = new DepthBalanceInfo(i % 4, new CurrencyCollection(null, BigInteger.valueOf(i)));
+            d = d.set(BigInteger.valueOf(i).shiftLeft(240), new ShardAccounts.ShardAccountRef(account, info));
+        }
+        d = d.delete(BigInteger.valueOf(5).shiftLeft(240));
+
+        Builder b = Builder.beginCell();
+        d.store(b);
+        Slice s = b.endCell().beginParse();
+        PersistentDictionary<BigInteger, ShardAccounts.ShardAccountRef> loaded = ShardAccounts.loadShardAccountsPersistent(s);
+        DepthBalanceInfo total = DepthBalanceInfo.loadDepthBalanceInfo(s);
+        assertEquals(3, total.splitDepth);
+        assertEquals(BigInteger.valueOf(20 * 21 / 2 - 5), total.balance.coins());
+
+        assertEquals(d.root(), loaded.root());
+        assertEquals(19, loaded.toDictionary().size());
+        assertEquals(BigInteger.valueOf(7), loaded.get(BigInteger.valueOf(7).shiftLeft(240)).depthBalanceInfo.balance.coins());
+    }
+
+    /* ======================= helpers ======================= */
+
+    // Leaves start with their extra, the value itself
+    private static final Dictionary.DictionaryValue<Long> SUMMED = new Dictionary.DictionaryValue<>() {
+        @Override
+        public void serialize(Long src, Builder builder) {
+            builder.storeUint(src, 32);
+            builder.storeUint(src, 32);
+        }
+
+        @Override
+        public Long parse(Slice slice) {
+            slice.loadUint(32);
+            return slice.loadUint(32);
+        }
+    };
+
+    private static final PersistentDictionary.Augmentation<Long> SUM = new PersistentDictionary.Augmentation<>() {
+        @Override
+        public void serialize(Long src, Builder builder) {
+            builder.storeUint(src, 32);
+        }
+
+        @Override
+        public Long parse(Slice slice) {
+            return slice.loadUint(32);
+        }
+
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long empty() {
+            return 0L;
+        }
+    };
+}
@@ -1,11 +1,13 @@
 import dev.quark.ton.core.boc.Builder;
 import dev.quark.ton.core.boc.Cell;
+import dev.quark.ton.core.dict.ParseDict;
 import dev.quark.ton.core.dict.SerializeDict;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigInteger;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -56,4 +58,28 @@ class SerializeDictTest {
         assertEquals(expected.toString(), root.toString());
 
     }
+
+    @Test
+    void shouldRoundtripRandomDictsThroughParseDict() {
+        Random rnd = new Random(7);
+        for (int t = 0; t < 300; t++) {
+            int bits = 1 + rnd.nextInt(t % 2 == 0 ? 300 : 12);
+            int n = 1 + rnd.nextInt(bits >= 8 ? 300 : 1 << bits);
+            Map<BigInteger, Long> map = new LinkedHashMap<>();
+            while (map.size() < n) {
+                BigInteger k = new BigInteger(bits, rnd);
+                // shifted keys give long runs of equal bits, i.e. "same" labels
+                map.put(rnd.nextBoolean() ? k : k.shiftRight(rnd.nextInt(bits)), (long) rnd.nextInt(1 << 16));
+            }
+
+            Builder b = Builder.beginCell();
+            SerializeDict.serializeDict(map, bits, (v, to) -> to.storeUint(v, 16), b);
+            Map<BigInteger, Long> parsed = ParseDict.parseDict(b.endCell().beginParse(), bits, s -> s.loadUint(16));
+            assertEquals(map, parsed);
+        }
+
+        Map<BigInteger, Long> tooWide = Map.of(BigInteger.valueOf(256), 1L);
+        assertThrows(IllegalArgumentException.class,
+                () -> SerializeDict.serializeDict(tooWide, 8, (v, to) -> to.storeUint(v, 8), Builder.beginCell()));
+    }
 }
@@ -0,0 +1,59 @@
+import dev.quark.ton.core.boc.Builder;
+import dev.quark.ton.core.boc.Cell;
+import dev.quark.ton.core.boc.cell.utils.TopologicalSort;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopologicalSortTest {
+
+    @Test
+    void shouldDeduplicateEqualCellsByHash() {
+        Cell leaf = Builder.beginCell().storeUint(7, 8).endCell();
+        Cell sameLeaf = Builder.beginCell().storeUint(7, 8).endCell();
+        Cell a = Builder.beginCell().storeUint(1, 8).storeRef(leaf).endCell();
+        Cell b = Builder.beginCell().storeUint(2, 8).storeRef(sameLeaf).endCell();
+        Cell root = Builder.beginCell().storeRef(a).storeRef(b).endCell();
+
+        List<TopologicalSort.Entry> sorted = TopologicalSort.sort(root);
+
+        assertEquals(4, sorted.size());
+        assertSame(root, sorted.get(0).cell);
+        assertSame(a, sorted.get(1).cell);
+        assertSame(b, sorted.get(2).cell);
+        assertSame(leaf, sorted.get(3).cell);
+        assertArrayEquals(new int[]{1, 2}, sorted.get(0).refs);
+        assertArrayEquals(new int[]{3}, sorted.get(1).refs);
+        assertArrayEquals(new int[]{3}, sorted.get(2).refs);
+        assertArrayEquals(new int[0], sorted.get(3).refs);
+    }
+
+    @Test
+    void shouldSortLongChainsWithoutRecursion() {
+        Cell c = Builder.beginCell().storeUint(0, 8).endCell();
+        for (int i = 1; i < 100_000; i++) {
+            c = Builder.beginCell().storeUint(i & 0xFF, 8).storeRef(c).endCell();
+        }
+
+        List<TopologicalSort.Entry> sorted = TopologicalSort.sort(c);
+        assertEquals(100_000, sorted.size());
+        for (int i = 0; i < sorted.size() - 1; i++) {
+            assertArrayEquals(new int[]{i + 1}, sorted.get(i).refs);
+        }
+
+        Cell back = Cell.fromBoc(c.toBoc()).get(0);
+        assertArrayEquals(c.hash(), back.hash());
+    }
+
+    @Test
+    void shouldIndexRootsOfMultiRootBoc() {
+        Cell shared = Builder.beginCell().storeUint(3, 8).endCell();
+        Cell first = Builder.beginCell().storeRef(shared).endCell();
+
+        TopologicalSort.Sorted sorted = TopologicalSort.sortRoots(List.of(first, shared, first));
+        assertEquals(2, sorted.cells.size());
+        assertArrayEquals(new int[]{0, 1, 0}, sorted.roots);
+    }
+}